@@ -0,0 +1,11 @@
+package com.biblioteca.gateway.cache;
+
+/**
+ * Clave de una respuesta en caché: ruta, query sin decodificar y cabecera
+ * Accept (la misma ruta puede devolver representaciones distintas)
+ */
+public record CacheKey(
+    String path,
+    String query,
+    String accept
+) {}
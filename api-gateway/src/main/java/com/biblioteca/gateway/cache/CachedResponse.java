@@ -0,0 +1,30 @@
+package com.biblioteca.gateway.cache;
+
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+
+/**
+ * Respuesta guardada en la caché del gateway: cabeceras, cuerpo completo, su
+ * ETag y el tiempo de vida que le corresponde por su ruta
+ */
+public record CachedResponse(
+    HttpHeaders headers,
+    byte[] body,
+    String etag,
+    Duration ttl
+) {
+    // Coste aproximado de cabeceras y objetos, además del cuerpo
+    private static final int OVERHEAD_BYTES = 256;
+
+    /**
+     * Peso en bytes para acotar el tamaño total de la caché
+     */
+    public int weight() {
+        int headerBytes = headers.entrySet().stream()
+                .mapToInt(header -> header.getKey().length()
+                        + header.getValue().stream().mapToInt(String::length).sum())
+                .sum();
+        return OVERHEAD_BYTES + body.length + 2 * headerBytes;
+    }
+}
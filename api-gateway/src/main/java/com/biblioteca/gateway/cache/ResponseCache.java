@@ -0,0 +1,255 @@
+package com.biblioteca.gateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Caché en memoria de respuestas GET del gateway, acotada por tamaño en bytes
+ * y con tiempo de vida por ruta.
+ *
+ * Las purgas (explícitas desde el inventory-service tras cada escritura)
+ * eliminan las entradas cuya ruta coincide con alguno de sus patrones. Para
+ * que una respuesta leída antes de una purga no vuelva a entrar después, se
+ * recuerdan las últimas purgas y no se guarda una respuesta afectada por
+ * alguna posterior al inicio de su petición.
+ *
+ * Métricas: cache.gets, cache.evictions, etc. con cache=gateway.response-cache,
+ * gateway.response-cache.hit-ratio, gateway.response-cache.bytes (tamaño
+ * actual), gateway.response-cache.bytes-saved (cuerpos servidos sin pasar por
+ * el servicio o no enviados por un 304) y gateway.response-cache.not-modified
+ * (respuestas 304).
+ */
+@Component
+@Slf4j
+public class ResponseCache {
+
+    private static final int RECENT_PURGES = 256;
+
+    private final ResponseCacheProperties properties;
+    private final Cache<CacheKey, CachedResponse> responses;
+    private final List<PathTtl> ttls;
+    private final Counter bytesSaved;
+    private final Counter notModified;
+    // Purgas recientes y contador de purgas; también sincroniza guardar frente a purgar
+    private final Deque<Purge> recentPurges = new ArrayDeque<>();
+    private long purges;
+
+    public ResponseCache(ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.responses = CaffeineCacheMetrics.monitor(meterRegistry,
+                Caffeine.newBuilder()
+                        .maximumWeight(properties.maxSize().toBytes())
+                        .weigher((CacheKey key, CachedResponse response) -> response.weight())
+                        .expireAfter(new TtlExpiry())
+                        .recordStats()
+                        .<CacheKey, CachedResponse>build(),
+                "gateway.response-cache");
+        this.ttls = properties.ttls().stream()
+                .map(rule -> new PathTtl(PathPatternParser.defaultInstance.parse(rule.pattern()), rule.ttl()))
+                .toList();
+        this.bytesSaved = Counter.builder("gateway.response-cache.bytes-saved")
+                .description("Bytes de cuerpo servidos desde la caché o no enviados por un 304")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.notModified = Counter.builder("gateway.response-cache.not-modified")
+                .description("Respuestas 304 por If-None-Match")
+                .register(meterRegistry);
+        Gauge.builder("gateway.response-cache.hit-ratio", responses, cache -> cache.stats().hitRate())
+                .description("Proporción de peticiones GET servidas desde la caché del gateway")
+                .register(meterRegistry);
+        Gauge.builder("gateway.response-cache.bytes", this, ResponseCache::weightedSize)
+                .description("Tamaño actual de la caché de respuestas")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        log.info("Caché de respuestas del gateway: habilitada={}, tamaño máximo={}, ttl por defecto={}, {} reglas de ttl",
+                properties.enabled(), properties.maxSize(), properties.defaultTtl(), ttls.size());
+    }
+
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    /**
+     * Tamaño máximo del cuerpo de una respuesta para guardarla
+     */
+    public long maxEntryBytes() {
+        return properties.maxEntrySize().toBytes();
+    }
+
+    public CachedResponse get(CacheKey key) {
+        return responses.getIfPresent(key);
+    }
+
+    /**
+     * Número de purgas hechas hasta ahora; se toma al empezar una petición
+     * para pasarlo después a put
+     */
+    public long purgeCount() {
+        synchronized (recentPurges) {
+            return purges;
+        }
+    }
+
+    /**
+     * Tiempo de vida de la primera regla cuyo patrón coincide con la ruta
+     */
+    public Duration ttlFor(String path) {
+        PathContainer container = PathContainer.parsePath(path);
+        return ttls.stream()
+                .filter(rule -> rule.pattern().matches(container))
+                .map(PathTtl::ttl)
+                .findFirst()
+                .orElse(properties.defaultTtl());
+    }
+
+    /**
+     * Guardar una respuesta salvo que alguna purga hecha después de
+     * purgeCountAtStart afecte a su ruta. Devuelve si se guardó.
+     */
+    public boolean put(CacheKey key, CachedResponse response, long purgeCountAtStart) {
+        PathContainer path = PathContainer.parsePath(key.path());
+        synchronized (recentPurges) {
+            if (purgedSince(path, purgeCountAtStart)) {
+                return false;
+            }
+            responses.put(key, response);
+            return true;
+        }
+    }
+
+    private boolean purgedSince(PathContainer path, long purgeCountAtStart) {
+        if (purges - purgeCountAtStart > recentPurges.size()) {
+            // Ya no se recuerdan todas las purgas posteriores
+            return true;
+        }
+        for (Purge purge : recentPurges) {
+            if (purge.number() <= purgeCountAtStart) {
+                break;
+            }
+            if (purge.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Eliminar las respuestas cuya ruta coincide con alguno de los patrones
+     * (sintaxis de PathPattern, p. ej. /api/books/5/**). Devuelve cuántas.
+     */
+    public int purge(List<String> patterns) {
+        List<PathPattern> parsed = patterns.stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+        int purged = 0;
+        synchronized (recentPurges) {
+            record(new Purge(++purges, parsed));
+            for (CacheKey key : List.copyOf(responses.asMap().keySet())) {
+                PathContainer path = PathContainer.parsePath(key.path());
+                if (parsed.stream().anyMatch(pattern -> pattern.matches(path))) {
+                    responses.invalidate(key);
+                    purged++;
+                }
+            }
+        }
+        log.debug("Caché de respuestas: {} entradas purgadas para {}", purged, patterns);
+        return purged;
+    }
+
+    /**
+     * Vaciar la caché. Devuelve cuántas entradas había.
+     */
+    public long purgeAll() {
+        synchronized (recentPurges) {
+            record(new Purge(++purges, List.of(PathPatternParser.defaultInstance.parse("/**"))));
+            long size = responses.estimatedSize();
+            responses.invalidateAll();
+            log.info("Caché de respuestas vaciada: {} entradas", size);
+            return size;
+        }
+    }
+
+    private void record(Purge purge) {
+        recentPurges.addFirst(purge);
+        if (recentPurges.size() > RECENT_PURGES) {
+            recentPurges.removeLast();
+        }
+    }
+
+    /**
+     * Bytes de cuerpo ahorrados: servidos desde la caché sin llamar al servicio,
+     * o no enviados al cliente por un 304
+     */
+    public void recordSaved(int bodyBytes, boolean wasNotModified) {
+        bytesSaved.increment(bodyBytes);
+        if (wasNotModified) {
+            notModified.increment();
+        }
+    }
+
+    public ResponseCacheStats stats() {
+        CacheStats stats = responses.stats();
+        return new ResponseCacheStats(
+            properties.enabled(),
+            responses.estimatedSize(),
+            weightedSize(),
+            properties.maxSize().toBytes(),
+            stats.hitCount(),
+            stats.missCount(),
+            stats.hitRate(),
+            (long) bytesSaved.count(),
+            (long) notModified.count(),
+            stats.evictionCount()
+        );
+    }
+
+    private long weightedSize() {
+        return responses.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    private record PathTtl(PathPattern pattern, Duration ttl) {}
+
+    /**
+     * Cada entrada caduca según el ttl de su ruta, contado desde que se guardó
+     */
+    private static final class TtlExpiry implements Expiry<CacheKey, CachedResponse> {
+        @Override
+        public long expireAfterCreate(CacheKey key, CachedResponse response, long currentTime) {
+            return response.ttl().toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(CacheKey key, CachedResponse response, long currentTime, long currentDuration) {
+            return response.ttl().toNanos();
+        }
+
+        @Override
+        public long expireAfterRead(CacheKey key, CachedResponse response, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    private record Purge(long number, List<PathPattern> patterns) {
+        private boolean matches(PathContainer path) {
+            return patterns.stream().anyMatch(pattern -> pattern.matches(path));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.biblioteca.gateway.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Endpoint del actuator para la caché de respuestas:
+ * GET /actuator/responsecache (estado),
+ * POST /actuator/responsecache {"patterns": "/api/books/5/**,/api/books"}
+ * (purgar las rutas que coinciden con alguno de los patrones, separados por
+ * comas; lo usa el inventory-service tras cada escritura) y
+ * DELETE /actuator/responsecache (vaciar).
+ */
+@Component
+@Endpoint(id = "responsecache")
+@RequiredArgsConstructor
+public class ResponseCacheEndpoint {
+
+    private final ResponseCache cache;
+
+    @ReadOperation
+    public ResponseCacheStats stats() {
+        return cache.stats();
+    }
+
+    @WriteOperation
+    public Map<String, Long> purge(String[] patterns) {
+        return Map.of("purged", (long) cache.purge(List.of(patterns)));
+    }
+
+    @DeleteOperation
+    public Map<String, Long> purgeAll() {
+        return Map.of("purged", cache.purgeAll());
+    }
+}
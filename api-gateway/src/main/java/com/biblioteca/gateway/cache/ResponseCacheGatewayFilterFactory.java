@@ -0,0 +1,239 @@
+package com.biblioteca.gateway.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Filtro ResponseCache: sirve las peticiones GET desde ResponseCache y guarda
+ * las respuestas 200 del servicio.
+ *
+ * Cada respuesta guardada lleva un ETag fuerte (SHA-256 del cuerpo, salvo que
+ * el servicio ya envíe uno fuerte; uno débil W/ se sustituye). Un If-None-Match que coincide recibe un 304 sin
+ * cuerpo; si la respuesta estaba en caché, sin llamar al servicio. Una
+ * petición con Cache-Control: no-cache va siempre al servicio y renueva la
+ * entrada. No se guardan respuestas en streaming (NDJSON, SSE), con
+ * Set-Cookie, marcadas no-store/private ni mayores que max-entry-size; estas
+ * últimas se envían tal cual en cuanto superan el límite.
+ *
+ * Se ejecuta antes que el resto de filtros de la ruta, así que un acierto no
+ * pasa por el circuit breaker.
+ */
+@Component
+@Slf4j
+public class ResponseCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<Object> {
+
+    static final String CACHE_STATUS_HEADER = "X-Cache";
+
+    // Antes de NettyWriteResponseFilter, para envolver la respuesta que escribe, y
+    // antes que RequestCollapsing: los aciertos no llegan a agruparse
+    static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 2;
+
+    private final ResponseCache cache;
+
+    public ResponseCacheGatewayFilterFactory(ResponseCache cache) {
+        super(Object.class);
+        this.cache = cache;
+    }
+
+    @Override
+    public GatewayFilter apply(Object config) {
+        return new OrderedGatewayFilter(this::filter, ORDER);
+    }
+
+    private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!cache.isEnabled() || request.getMethod() != HttpMethod.GET) {
+            return chain.filter(exchange);
+        }
+        CacheKey key = new CacheKey(request.getPath().value(), request.getURI().getRawQuery(),
+                request.getHeaders().getFirst(HttpHeaders.ACCEPT));
+        List<String> ifNoneMatch = request.getHeaders().getIfNoneMatch();
+
+        String cacheControl = request.getHeaders().getCacheControl();
+        boolean revalidate = cacheControl != null && cacheControl.contains("no-cache");
+        if (!revalidate) {
+            CachedResponse cached = cache.get(key);
+            if (cached != null) {
+                return writeCached(exchange.getResponse(), cached, ifNoneMatch);
+            }
+        }
+
+        CachingResponse response = new CachingResponse(exchange.getResponse(), key, ifNoneMatch, cache.purgeCount());
+        return chain.filter(exchange.mutate().response(response).build());
+    }
+
+    private Mono<Void> writeCached(ServerHttpResponse response, CachedResponse cached, List<String> ifNoneMatch) {
+        HttpHeaders headers = response.getHeaders();
+        headers.putAll(cached.headers());
+        headers.set(CACHE_STATUS_HEADER, "HIT");
+        if (matches(ifNoneMatch, cached.etag())) {
+            cache.recordSaved(cached.body().length, true);
+            return notModified(response);
+        }
+        cache.recordSaved(cached.body().length, false);
+        response.setStatusCode(HttpStatus.OK);
+        headers.setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    private static Mono<Void> notModified(ServerHttpResponse response) {
+        response.setStatusCode(HttpStatus.NOT_MODIFIED);
+        response.getHeaders().remove(HttpHeaders.CONTENT_TYPE);
+        response.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+        return response.setComplete();
+    }
+
+    /**
+     * Comparación débil de If-None-Match (RFC 9110): se ignora el prefijo W/
+     */
+    private static boolean matches(List<String> ifNoneMatch, String etag) {
+        String opaque = opaqueTag(etag);
+        return ifNoneMatch.stream().anyMatch(tag -> tag.equals("*") || opaqueTag(tag).equals(opaque));
+    }
+
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static String strongEtag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Respuesta del servicio que, si se puede guardar, se acumula hasta
+     * max-entry-size para calcular su ETag y guardarla antes de enviarla
+     */
+    private final class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final CacheKey key;
+        private final List<String> ifNoneMatch;
+        private final long purgeCount;
+
+        private CachingResponse(ServerHttpResponse delegate, CacheKey key, List<String> ifNoneMatch, long purgeCount) {
+            super(delegate);
+            this.key = key;
+            this.ifNoneMatch = ifNoneMatch;
+            this.purgeCount = purgeCount;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (!isCacheable()) {
+                return super.writeWith(body);
+            }
+            long maxBytes = cache.maxEntryBytes();
+            AtomicLong size = new AtomicLong();
+            AtomicBoolean tooLarge = new AtomicBoolean();
+            Flux<DataBuffer> buffers = Flux.<DataBuffer>from(body)
+                    // Un único grupo si el cuerpo cabe; si no, el prefijo que lo desborda y el resto uno a uno
+                    .bufferUntil(buffer -> {
+                        boolean exceeded = size.addAndGet(buffer.readableByteCount()) > maxBytes;
+                        if (exceeded) {
+                            tooLarge.set(true);
+                        }
+                        return exceeded;
+                    })
+                    .index()
+                    .concatMap(group -> group.getT1() == 0 && !tooLarge.get()
+                            ? complete(group.getT2(), (int) size.get())
+                            : Flux.fromIterable(group.getT2()))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+            return super.writeWith(buffers);
+        }
+
+        private boolean isCacheable() {
+            HttpHeaders headers = getHeaders();
+            MediaType contentType = headers.getContentType();
+            String cacheControl = headers.getCacheControl();
+            return HttpStatus.OK.equals(getStatusCode())
+                    && contentType != null
+                    && !contentType.isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                    && !contentType.isCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                    && !headers.containsKey(HttpHeaders.SET_COOKIE)
+                    && (cacheControl == null || !(cacheControl.contains("no-store") || cacheControl.contains("private")));
+        }
+
+        /**
+         * Cuerpo completo: guardarlo con su ETag y enviarlo, o un 304 si el
+         * cliente ya lo tiene
+         */
+        private Flux<DataBuffer> complete(List<DataBuffer> buffers, int size) {
+            byte[] body = new byte[size];
+            int position = 0;
+            for (DataBuffer buffer : buffers) {
+                int length = buffer.readableByteCount();
+                buffer.read(body, position, length);
+                position += length;
+                DataBufferUtils.release(buffer);
+            }
+            HttpHeaders headers = getHeaders();
+            String upstreamEtag = headers.getETag();
+            String etag = upstreamEtag != null && !upstreamEtag.startsWith("W/") ? upstreamEtag : strongEtag(body);
+            headers.setETag(etag);
+            headers.set(CACHE_STATUS_HEADER, "MISS");
+
+            if (cache.put(key, new CachedResponse(storedHeaders(headers), body, etag, cache.ttlFor(key.path())), purgeCount)) {
+                log.debug("Respuesta guardada en caché: {} ({} bytes)", key.path(), body.length);
+            }
+            if (matches(ifNoneMatch, etag)) {
+                cache.recordSaved(body.length, true);
+                setStatusCode(HttpStatus.NOT_MODIFIED);
+                headers.remove(HttpHeaders.CONTENT_TYPE);
+                headers.remove(HttpHeaders.CONTENT_LENGTH);
+                return Flux.empty();
+            }
+            headers.setContentLength(body.length);
+            return Flux.just(bufferFactory().wrap(body));
+        }
+
+        /**
+         * Cabeceras a repetir en los aciertos: sin las de transporte ni las que
+         * el gateway calcula para cada petición (CORS, límites de peticiones)
+         */
+        private static HttpHeaders storedHeaders(HttpHeaders headers) {
+            HttpHeaders stored = new HttpHeaders();
+            headers.forEach((name, values) -> {
+                if (!name.equalsIgnoreCase(HttpHeaders.TRANSFER_ENCODING)
+                        && !name.equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH)
+                        && !name.equalsIgnoreCase(HttpHeaders.DATE)
+                        && !name.equalsIgnoreCase(HttpHeaders.CONNECTION)
+                        && !name.equalsIgnoreCase(CACHE_STATUS_HEADER)
+                        && !name.regionMatches(true, 0, "Access-Control-", 0, 15)
+                        && !name.regionMatches(true, 0, "X-RateLimit-", 0, 12)) {
+                    stored.put(name, List.copyOf(values));
+                }
+            });
+            return stored;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.biblioteca.gateway.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Caché de respuestas GET del gateway (gateway.response-cache). El tiempo de
+ * vida de cada respuesta es el de la primera regla de ttls cuyo patrón
+ * coincide con la ruta, o default-ttl si ninguna coincide.
+ */
+@ConfigurationProperties(prefix = "gateway.response-cache")
+public record ResponseCacheProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue("64MB") DataSize maxSize,
+    @DefaultValue("1MB") DataSize maxEntrySize,
+    @DefaultValue("30s") Duration defaultTtl,
+    @DefaultValue List<PathTtl> ttls
+) {
+    public record PathTtl(
+        String pattern,
+        Duration ttl
+    ) {}
+}
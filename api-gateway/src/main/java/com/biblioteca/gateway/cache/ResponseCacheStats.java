@@ -0,0 +1,17 @@
+package com.biblioteca.gateway.cache;
+
+/**
+ * Estado de la caché de respuestas del gateway
+ */
+public record ResponseCacheStats(
+    boolean enabled,
+    long entries,
+    long sizeBytes,
+    long maxSizeBytes,
+    long hits,
+    long misses,
+    double hitRatio,
+    long bytesSaved,
+    long notModified,
+    long evictions
+) {}
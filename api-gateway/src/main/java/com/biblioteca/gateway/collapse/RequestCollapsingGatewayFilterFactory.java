@@ -0,0 +1,291 @@
+package com.biblioteca.gateway.collapse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import com.biblioteca.gateway.ratelimit.ClientKeyResolver;
+import com.biblioteca.gateway.ratelimit.LocalRateLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Filtro RequestCollapsing: las peticiones GET idénticas que llegan mientras
+ * otra igual está en curso no se reenvían al servicio; esperan la respuesta de
+ * la primera (la líder), que se acumula en memoria y se comparte con todas.
+ *
+ * Solo se comparten respuestas 200 completas de hasta max-body-size que no
+ * sean streaming (NDJSON, SSE) ni lleven Set-Cookie. Si la respuesta de la
+ * líder no se puede compartir, o la líder falla o se cancela, cada petición en
+ * espera se reenvía por su cuenta. Como mucho max-waiters peticiones esperan
+ * a una misma líder; el resto se reenvía sin agrupar. No se agrupan peticiones
+ * condicionales ni con Range, cuya respuesta depende de esas cabeceras.
+ *
+ * Se ejecuta después de ResponseCache y antes que el resto de filtros de la
+ * ruta, así que las peticiones que reciben la respuesta compartida no pasan
+ * por su RequestRateLimiter: se cobran aquí en el localRateLimiter de la ruta
+ * con la clave de ClientKeyResolver y, si no tienen sitio, reciben un 429.
+ * Las que se reenvían por su cuenta las cobra el RequestRateLimiter.
+ *
+ * Métricas: gateway.request-collapsing.requests (tag result: leader,
+ * collapsed, not-shared, overflow), donde collapsed son las llamadas al
+ * servicio ahorradas, y gateway.request-collapsing.in-flight.
+ */
+@Component
+@Slf4j
+public class RequestCollapsingGatewayFilterFactory extends AbstractGatewayFilterFactory<Object> {
+
+    static final String COLLAPSED_HEADER = "X-Request-Collapsed";
+
+    // Después de ResponseCache y antes de NettyWriteResponseFilter
+    private static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+
+    private static final List<String> UNCOLLAPSIBLE_HEADERS = List.of(
+        HttpHeaders.RANGE, HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE
+    );
+
+    private final RequestCollapsingProperties properties;
+    private final LocalRateLimiter rateLimiter;
+    private final ClientKeyResolver clientKeyResolver;
+    private final Map<CollapseKey, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaders;
+    private final Counter collapsed;
+    private final Counter notShared;
+    private final Counter overflow;
+
+    public RequestCollapsingGatewayFilterFactory(RequestCollapsingProperties properties,
+                                                 LocalRateLimiter rateLimiter,
+                                                 ClientKeyResolver clientKeyResolver,
+                                                 MeterRegistry meterRegistry) {
+        super(Object.class);
+        this.properties = properties;
+        this.rateLimiter = rateLimiter;
+        this.clientKeyResolver = clientKeyResolver;
+        this.leaders = requests(meterRegistry, "leader");
+        this.collapsed = requests(meterRegistry, "collapsed");
+        this.notShared = requests(meterRegistry, "not-shared");
+        this.overflow = requests(meterRegistry, "overflow");
+        Gauge.builder("gateway.request-collapsing.in-flight", inFlight, Map::size)
+                .description("Peticiones líderes en curso con posibles peticiones en espera")
+                .register(meterRegistry);
+        log.info("Agrupación de peticiones idénticas: habilitada={}, cabeceras={}, cuerpo máximo={}, máximo en espera={}",
+                properties.enabled(), properties.varyHeaders(), properties.maxBodySize(), properties.maxWaiters());
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("gateway.request-collapsing.requests")
+                .description("Peticiones GET según se agruparon con otra idéntica en curso")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public GatewayFilter apply(Object config) {
+        return new OrderedGatewayFilter(this::filter, ORDER);
+    }
+
+    private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!properties.enabled() || request.getMethod() != HttpMethod.GET
+                || UNCOLLAPSIBLE_HEADERS.stream().anyMatch(request.getHeaders()::containsKey)) {
+            return chain.filter(exchange);
+        }
+        CollapseKey key = new CollapseKey(request.getPath().value(), request.getURI().getRawQuery(),
+                properties.varyHeaders().stream().map(request.getHeaders()::getValuesAsList).toList());
+
+        InFlight created = new InFlight(key);
+        InFlight existing = inFlight.putIfAbsent(key, created);
+        if (existing == null) {
+            leaders.increment();
+            return chain.filter(exchange.mutate().response(new LeaderResponse(exchange.getResponse(), created)).build())
+                    // Si la líder no llegó a compartir su respuesta, las demás siguen por su cuenta
+                    .doFinally(signal -> created.complete(null));
+        }
+        if (existing.waiters.incrementAndGet() > properties.maxWaiters()) {
+            existing.waiters.decrementAndGet();
+            overflow.increment();
+            return chain.filter(exchange);
+        }
+        return existing.result.asMono()
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(shared -> {
+                    if (shared.isEmpty()) {
+                        notShared.increment();
+                        return chain.filter(exchange);
+                    }
+                    return charge(exchange).flatMap(limit -> {
+                        ServerHttpResponse response = exchange.getResponse();
+                        response.getHeaders().setAll(limit.getHeaders());
+                        if (!limit.isAllowed()) {
+                            response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                            return response.setComplete();
+                        }
+                        collapsed.increment();
+                        return write(response, shared.get());
+                    });
+                });
+    }
+
+    /**
+     * Cobrar una petición en espera en el límite de su ruta, como haría su
+     * RequestRateLimiter; las rutas sin límites configurados no se cobran
+     */
+    private Mono<RateLimiter.Response> charge(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null || !rateLimiter.getConfig().containsKey(route.getId())) {
+            return Mono.just(new RateLimiter.Response(true, Map.of()));
+        }
+        return clientKeyResolver.resolve(exchange)
+                .flatMap(key -> rateLimiter.isAllowed(route.getId(), key));
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, SharedResponse shared) {
+        response.setStatusCode(HttpStatus.OK);
+        response.getHeaders().putAll(shared.headers());
+        response.getHeaders().setContentLength(shared.body().length);
+        response.getHeaders().set(COLLAPSED_HEADER, "true");
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(shared.body())));
+    }
+
+    /**
+     * Petición en curso y su respuesta: vacía si no se puede compartir
+     */
+    private final class InFlight {
+        private final CollapseKey key;
+        private final Sinks.One<SharedResponse> result = Sinks.one();
+        private final AtomicInteger waiters = new AtomicInteger();
+
+        private InFlight(CollapseKey key) {
+            this.key = key;
+        }
+
+        /**
+         * Publicar la respuesta (o null si no se comparte) y dejar de aceptar
+         * peticiones en espera: las siguientes iguales inician otra líder
+         */
+        private void complete(SharedResponse response) {
+            inFlight.remove(key, this);
+            if (response != null) {
+                result.tryEmitValue(response);
+            } else {
+                result.tryEmitEmpty();
+            }
+        }
+    }
+
+    private record CollapseKey(String path, String query, List<List<String>> varyValues) {}
+
+    private record SharedResponse(HttpHeaders headers, byte[] body) {}
+
+    /**
+     * Respuesta de la líder: si se puede compartir se acumula hasta
+     * max-body-size y se publica antes de enviarla
+     */
+    private final class LeaderResponse extends ServerHttpResponseDecorator {
+
+        private final InFlight flight;
+
+        private LeaderResponse(ServerHttpResponse delegate, InFlight flight) {
+            super(delegate);
+            this.flight = flight;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (!isShareable()) {
+                flight.complete(null);
+                return super.writeWith(body);
+            }
+            long maxBytes = properties.maxBodySize().toBytes();
+            AtomicLong size = new AtomicLong();
+            AtomicBoolean tooLarge = new AtomicBoolean();
+            Flux<DataBuffer> buffers = Flux.<DataBuffer>from(body)
+                    // Un único grupo si el cuerpo cabe; si no, el prefijo que lo desborda y el resto uno a uno
+                    .bufferUntil(buffer -> {
+                        boolean exceeded = size.addAndGet(buffer.readableByteCount()) > maxBytes;
+                        if (exceeded && !tooLarge.getAndSet(true)) {
+                            flight.complete(null);
+                        }
+                        return exceeded;
+                    })
+                    .index()
+                    .concatMap(group -> group.getT1() == 0 && !tooLarge.get()
+                            ? Flux.just(share(group.getT2(), (int) size.get()))
+                            : Flux.fromIterable(group.getT2()))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+            return super.writeWith(buffers);
+        }
+
+        private boolean isShareable() {
+            HttpHeaders headers = getHeaders();
+            MediaType contentType = headers.getContentType();
+            return HttpStatus.OK.equals(getStatusCode())
+                    && (contentType == null
+                        || !(contentType.isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                            || contentType.isCompatibleWith(MediaType.TEXT_EVENT_STREAM)))
+                    && !headers.containsKey(HttpHeaders.SET_COOKIE);
+        }
+
+        private DataBuffer share(List<DataBuffer> buffers, int size) {
+            byte[] body = new byte[size];
+            int position = 0;
+            for (DataBuffer buffer : buffers) {
+                int length = buffer.readableByteCount();
+                buffer.read(body, position, length);
+                position += length;
+                DataBufferUtils.release(buffer);
+            }
+            flight.complete(new SharedResponse(sharedHeaders(getHeaders()), body));
+            return bufferFactory().wrap(body);
+        }
+
+        /**
+         * Cabeceras de la respuesta del servicio, sin las de transporte ni las
+         * que el gateway calcula para cada petición (CORS, límites, caché)
+         */
+        private static HttpHeaders sharedHeaders(HttpHeaders headers) {
+            HttpHeaders shared = new HttpHeaders();
+            headers.forEach((name, values) -> {
+                if (!name.equalsIgnoreCase(HttpHeaders.TRANSFER_ENCODING)
+                        && !name.equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH)
+                        && !name.equalsIgnoreCase(HttpHeaders.CONNECTION)
+                        && !name.equalsIgnoreCase("X-Cache")
+                        && !name.regionMatches(true, 0, "Access-Control-", 0, 15)
+                        && !name.regionMatches(true, 0, "X-RateLimit-", 0, 12)) {
+                    shared.put(name, List.copyOf(values));
+                }
+            });
+            return shared;
+        }
+    }
+}
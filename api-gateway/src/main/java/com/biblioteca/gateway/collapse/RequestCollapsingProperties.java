@@ -0,0 +1,20 @@
+package com.biblioteca.gateway.collapse;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+
+/**
+ * Agrupación de peticiones GET idénticas en curso (gateway.request-collapsing).
+ * Dos peticiones son idénticas si coinciden ruta, query y los valores de las
+ * cabeceras de vary-headers.
+ */
+@ConfigurationProperties(prefix = "gateway.request-collapsing")
+public record RequestCollapsingProperties(
+    @DefaultValue("true") boolean enabled,
+    @DefaultValue({"Accept", "Accept-Encoding", "Authorization"}) List<String> varyHeaders,
+    @DefaultValue("1MB") DataSize maxBodySize,
+    @DefaultValue("1000") int maxWaiters
+) {}
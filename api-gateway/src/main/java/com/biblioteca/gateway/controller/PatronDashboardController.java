@@ -0,0 +1,66 @@
+package com.biblioteca.gateway.controller;
+
+import com.biblioteca.gateway.dashboard.PatronDashboard;
+import com.biblioteca.gateway.dashboard.PatronDashboardService;
+import com.biblioteca.gateway.ratelimit.ClientKeyResolver;
+import com.biblioteca.gateway.ratelimit.LocalRateLimiter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Controlador de vistas compuestas en el gateway a partir de varios servicios.
+ *
+ * Estas peticiones no pasan por las rutas ni por su filtro RequestRateLimiter,
+ * así que se limitan aquí con el mismo localRateLimiter y clientKeyResolver,
+ * como si fueran la ruta patron-dashboard (límites en
+ * gateway.rate-limit.routes.patron-dashboard).
+ */
+@RestController
+@RequestMapping("/api/patrons")
+public class PatronDashboardController {
+
+    static final String ROUTE_ID = "patron-dashboard";
+
+    private final PatronDashboardService dashboardService;
+    private final LocalRateLimiter rateLimiter;
+    private final ClientKeyResolver clientKeyResolver;
+
+    public PatronDashboardController(PatronDashboardService dashboardService,
+                                     LocalRateLimiter rateLimiter,
+                                     ClientKeyResolver clientKeyResolver) {
+        this.dashboardService = dashboardService;
+        this.rateLimiter = rateLimiter;
+        this.clientKeyResolver = clientKeyResolver;
+    }
+
+    /**
+     * Panel del lector: préstamos en curso con los datos de cada libro. Si algún
+     * servicio no responde a tiempo se devuelve lo disponible y el servicio
+     * aparece en unavailable. Al superar el límite se responde 429 sin llamar
+     * a los servicios.
+     * GET /api/patrons/{email}/dashboard
+     */
+    @GetMapping("/{email}/dashboard")
+    public Mono<ResponseEntity<PatronDashboard>> getDashboard(@PathVariable String email,
+                                                              ServerWebExchange exchange) {
+        return clientKeyResolver.resolve(exchange)
+                .flatMap(key -> rateLimiter.isAllowed(ROUTE_ID, key))
+                .flatMap(limit -> {
+                    if (!limit.isAllowed()) {
+                        return Mono.just(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                                .headers(headers -> headers.setAll(limit.getHeaders()))
+                                .<PatronDashboard>build());
+                    }
+                    return dashboardService.getDashboard(email)
+                            .map(dashboard -> ResponseEntity.ok()
+                                    .headers(headers -> headers.setAll(limit.getHeaders()))
+                                    .body(dashboard));
+                });
+    }
+}
@@ -0,0 +1,13 @@
+package com.biblioteca.gateway.dashboard;
+
+/**
+ * Libro tal como lo devuelve el inventory-service (solo los campos del panel)
+ */
+public record BookSummary(
+    Long id,
+    String isbn,
+    String title,
+    String author,
+    String category,
+    Boolean isAvailable
+) {}
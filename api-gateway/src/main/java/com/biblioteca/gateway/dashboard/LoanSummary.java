@@ -0,0 +1,16 @@
+package com.biblioteca.gateway.dashboard;
+
+import java.time.LocalDate;
+
+/**
+ * Préstamo tal como lo devuelve el loan-service (solo los campos del panel)
+ */
+public record LoanSummary(
+    Long id,
+    Long bookId,
+    String userName,
+    LocalDate loanDate,
+    LocalDate dueDate,
+    String status,
+    Boolean isOverdue
+) {}
@@ -0,0 +1,18 @@
+package com.biblioteca.gateway.dashboard;
+
+import java.util.List;
+
+/**
+ * Panel de un lector. activeLoans cuenta todos sus préstamos en curso,
+ * vencidos incluidos, y overdueLoans los vencidos. Si el loan-service no
+ * respondió, loans y los contadores son null (no se sabe si hay préstamos);
+ * unavailable lista los servicios que faltan en la respuesta.
+ */
+public record PatronDashboard(
+    String email,
+    String userName,
+    Integer activeLoans,
+    Integer overdueLoans,
+    List<PatronLoan> loans,
+    List<String> unavailable
+) {}
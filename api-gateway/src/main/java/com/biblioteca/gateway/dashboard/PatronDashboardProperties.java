@@ -0,0 +1,19 @@
+package com.biblioteca.gateway.dashboard;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Panel del lector compuesto en el gateway (gateway.patron-dashboard): dónde
+ * están los servicios y cuánto se espera a cada uno antes de responder sin él.
+ * Sus límites por cliente van en gateway.rate-limit.routes.patron-dashboard.
+ */
+@ConfigurationProperties(prefix = "gateway.patron-dashboard")
+public record PatronDashboardProperties(
+    @DefaultValue("http://loan-service:8082") String loanServiceUrl,
+    @DefaultValue("http://inventory-service:8081") String inventoryServiceUrl,
+    @DefaultValue("2s") Duration loanTimeout,
+    @DefaultValue("1s") Duration inventoryTimeout
+) {}
@@ -0,0 +1,118 @@
+package com.biblioteca.gateway.dashboard;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Composición del panel del lector: una llamada al loan-service con sus
+ * préstamos en curso (activos y vencidos) y otra al inventory-service con
+ * todos sus libros a la vez (GET /api/books/batch), en lugar de una petición
+ * por préstamo.
+ *
+ * Cada servicio tiene su tiempo máximo. Si el inventory-service falla o tarda
+ * demasiado, el panel sale con los préstamos sin datos de libro; si falla el
+ * loan-service, sale sin préstamos. En ambos casos el servicio aparece en
+ * unavailable.
+ *
+ * Métrica: gateway.patron-dashboard.requests (tag result: complete, partial).
+ */
+@Service
+@Slf4j
+public class PatronDashboardService {
+
+    static final String LOAN_SERVICE = "loan-service";
+    static final String INVENTORY_SERVICE = "inventory-service";
+
+    private final WebClient loanClient;
+    private final WebClient inventoryClient;
+    private final PatronDashboardProperties properties;
+    private final Counter complete;
+    private final Counter partial;
+
+    public PatronDashboardService(WebClient.Builder webClientBuilder,
+                                  PatronDashboardProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this.loanClient = webClientBuilder.clone().baseUrl(properties.loanServiceUrl()).build();
+        this.inventoryClient = webClientBuilder.clone().baseUrl(properties.inventoryServiceUrl()).build();
+        this.properties = properties;
+        this.complete = requests(meterRegistry, "complete");
+        this.partial = requests(meterRegistry, "partial");
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("gateway.patron-dashboard.requests")
+                .description("Paneles de lector compuestos, completos o sin algún servicio")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public Mono<PatronDashboard> getDashboard(String email) {
+        return openLoans(email)
+                .flatMap(loans -> books(email, loans)
+                        .map(books -> assemble(email, loans, books, List.of()))
+                        .switchIfEmpty(Mono.fromSupplier(() ->
+                                assemble(email, loans, Map.of(), List.of(INVENTORY_SERVICE)))))
+                .switchIfEmpty(Mono.fromSupplier(() ->
+                        new PatronDashboard(email, null, null, null, null, List.of(LOAN_SERVICE))))
+                .doOnNext(dashboard -> (dashboard.unavailable().isEmpty() ? complete : partial).increment());
+    }
+
+    /**
+     * Préstamos en curso del lector, o vacío si el loan-service no respondió
+     */
+    private Mono<List<LoanSummary>> openLoans(String email) {
+        return loanClient.get()
+                .uri("/api/loans/user/{email}/open", email)
+                .retrieve()
+                .bodyToFlux(LoanSummary.class)
+                .collectList()
+                .timeout(properties.loanTimeout())
+                .onErrorResume(error -> {
+                    log.warn("Panel de {} sin préstamos por error del loan-service: {}", email, error.toString());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Libros de los préstamos por ID, o vacío si el inventory-service no respondió
+     */
+    private Mono<Map<Long, BookSummary>> books(String email, List<LoanSummary> loans) {
+        List<Long> bookIds = loans.stream()
+                .map(LoanSummary::bookId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        if (bookIds.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        return inventoryClient.get()
+                .uri(builder -> builder.path("/api/books/batch").queryParam("ids", bookIds).build())
+                .retrieve()
+                .bodyToFlux(BookSummary.class)
+                .collectMap(BookSummary::id)
+                .timeout(properties.inventoryTimeout())
+                .onErrorResume(error -> {
+                    log.warn("Panel de {} sin datos de libros por error del inventory-service: {}",
+                            email, error.toString());
+                    return Mono.empty();
+                });
+    }
+
+    private static PatronDashboard assemble(String email, List<LoanSummary> loans,
+                                            Map<Long, BookSummary> books, List<String> unavailable) {
+        List<PatronLoan> items = loans.stream()
+                .map(loan -> PatronLoan.of(loan, books.get(loan.bookId())))
+                .toList();
+        int overdue = (int) items.stream().filter(loan -> Boolean.TRUE.equals(loan.isOverdue())).count();
+        String userName = loans.isEmpty() ? null : loans.get(0).userName();
+        return new PatronDashboard(email, userName, items.size(), overdue, items, unavailable);
+    }
+}
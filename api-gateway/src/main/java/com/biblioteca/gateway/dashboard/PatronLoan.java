@@ -0,0 +1,25 @@
+package com.biblioteca.gateway.dashboard;
+
+import java.time.LocalDate;
+
+/**
+ * Préstamo del panel con los datos de su libro; book es null si el
+ * inventory-service no respondió o el libro ya no existe. isOverdue incluye
+ * los ya marcados como vencidos y los activos con la fecha pasada.
+ */
+public record PatronLoan(
+    Long id,
+    Long bookId,
+    LocalDate loanDate,
+    LocalDate dueDate,
+    String status,
+    Boolean isOverdue,
+    BookSummary book
+) {
+    private static final String OVERDUE = "OVERDUE";
+
+    public static PatronLoan of(LoanSummary loan, BookSummary book) {
+        return new PatronLoan(loan.id(), loan.bookId(), loan.loanDate(), loan.dueDate(),
+                loan.status(), OVERDUE.equals(loan.status()) || Boolean.TRUE.equals(loan.isOverdue()), book);
+    }
+}
@@ -0,0 +1,62 @@
+package com.biblioteca.gateway.metrics;
+
+/**
+ * Marcas de tiempo de una petición enrutada. Se guarda en los atributos del
+ * intercambio y en el contexto de Reactor, desde donde la leen los ganchos
+ * del cliente HTTP del gateway.
+ */
+public final class RequestTiming {
+
+    public static final String ATTRIBUTE = RequestTiming.class.getName();
+
+    private final String route;
+    private final String upstream;
+    private final long start;
+    private volatile long upstreamStart;
+    private volatile long requestStart;
+
+    public RequestTiming(String route, String upstream, long start) {
+        this.route = route;
+        this.upstream = upstream;
+        this.start = start;
+    }
+
+    public String route() {
+        return route;
+    }
+
+    public String upstream() {
+        return upstream;
+    }
+
+    public long start() {
+        return start;
+    }
+
+    /**
+     * Empieza a enrutarse hacia el servicio (se repite en cada reintento)
+     */
+    public void upstreamStarted(long nanos) {
+        this.upstreamStart = nanos;
+        this.requestStart = 0;
+    }
+
+    /**
+     * Nanosegundos desde upstreamStarted hasta obtener la conexión, o -1 si no
+     * se marcó el inicio
+     */
+    public long requestStarted(long nanos) {
+        this.requestStart = nanos;
+        long upstream = upstreamStart;
+        return upstream == 0 ? -1 : nanos - upstream;
+    }
+
+    /**
+     * Nanosegundos desde que salió la petición hasta recibir las cabeceras de
+     * respuesta, o -1 si no se marcó la salida
+     */
+    public long responseReceived(long nanos) {
+        long request = requestStart;
+        return request == 0 ? -1 : nanos - request;
+    }
+}
@@ -0,0 +1,96 @@
+package com.biblioteca.gateway.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Temporizadores por ruta con histograma de percentiles (p50, p99... se
+ * calculan al consultar, también agregando instancias):
+ *
+ * - gateway.route.duration (route, upstream, status): desde que el gateway
+ *   recibe la petición hasta que termina de escribir la respuesta
+ * - gateway.upstream.connect (route, upstream): desde que empieza a enrutar
+ *   hasta tener conexión con el servicio (del pool o nueva)
+ * - gateway.upstream.response (route, upstream, status): desde que sale la
+ *   petición hasta recibir las cabeceras de respuesta del servicio
+ *
+ * Los temporizadores se registran una vez por combinación de etiquetas y se
+ * reutilizan, para no pasar por el registro en cada petición.
+ */
+@Component
+public class RouteMetrics {
+
+    static final String ROUTE_DURATION = "gateway.route.duration";
+    static final String UPSTREAM_CONNECT = "gateway.upstream.connect";
+    static final String UPSTREAM_RESPONSE = "gateway.upstream.response";
+
+    // Acota los cubos del histograma al rango útil
+    private static final Duration MIN_EXPECTED = Duration.ofMillis(1);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(30);
+    private static final String NO_STATUS = "";
+    private static final String[] STATUS_VALUES = new String[600];
+
+    static {
+        for (int code = 100; code < STATUS_VALUES.length; code++) {
+            STATUS_VALUES[code] = Integer.toString(code);
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    public RouteMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void recordRoute(RequestTiming timing, String status, long nanos) {
+        timer(ROUTE_DURATION, timing, status).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordConnect(RequestTiming timing, long nanos) {
+        timer(UPSTREAM_CONNECT, timing, NO_STATUS).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordResponse(RequestTiming timing, String status, long nanos) {
+        timer(UPSTREAM_RESPONSE, timing, status).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Etiqueta de un código de estado, sin crear la cadena en cada petición
+     */
+    public static String status(int code) {
+        return code >= 100 && code < STATUS_VALUES.length ? STATUS_VALUES[code] : Integer.toString(code);
+    }
+
+    private Timer timer(String name, RequestTiming timing, String status) {
+        TimerKey key = new TimerKey(name, timing.route(), timing.upstream(), status);
+        Timer timer = timers.get(key);
+        return timer != null ? timer : timers.computeIfAbsent(key, this::register);
+    }
+
+    private Timer register(TimerKey key) {
+        Timer.Builder builder = Timer.builder(key.name())
+                .description(switch (key.name()) {
+                    case ROUTE_DURATION -> "Duración total de las peticiones por ruta";
+                    case UPSTREAM_CONNECT -> "Tiempo hasta tener conexión con el servicio de la ruta";
+                    default -> "Tiempo de respuesta del servicio de la ruta (hasta las cabeceras)";
+                })
+                .tag("route", key.route())
+                .tag("upstream", key.upstream())
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED);
+        if (!key.status().isEmpty()) {
+            builder.tag("status", key.status());
+        }
+        return builder.register(meterRegistry);
+    }
+
+    private record TimerKey(String name, String route, String upstream, String status) {}
+}
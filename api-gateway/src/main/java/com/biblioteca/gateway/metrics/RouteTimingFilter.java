@@ -0,0 +1,66 @@
+package com.biblioteca.gateway.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+/**
+ * Primer filtro de cada ruta: mide la petición completa (incluidas las que
+ * resuelven la caché o el limitador sin llamar al servicio) y deja las marcas
+ * de tiempo para UpstreamTimingFilter y UpstreamTimingCustomizer.
+ *
+ * Sustituye al filtro de métricas de Spring Cloud Gateway
+ * (spring.cloud.gateway.metrics.enabled), que crea sus etiquetas en cada petición.
+ */
+@Component
+@RequiredArgsConstructor
+public class RouteTimingFilter implements GlobalFilter, Ordered {
+
+    private final RouteMetrics routeMetrics;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return chain.filter(exchange);
+        }
+        RequestTiming timing = new RequestTiming(route.getId(), upstream(route.getUri()), System.nanoTime());
+        exchange.getAttributes().put(RequestTiming.ATTRIBUTE, timing);
+        return chain.filter(exchange)
+                .doOnSuccess(v -> record(timing, status(exchange)))
+                // Los errores aún sin respuesta los convierte después el manejador de errores
+                .doOnError(error -> record(timing, error instanceof ResponseStatusException e
+                        ? RouteMetrics.status(e.getStatusCode().value())
+                        : "500"))
+                .doOnCancel(() -> record(timing, "CANCELLED"))
+                .contextWrite(context -> context.put(RequestTiming.class, timing));
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    private void record(RequestTiming timing, String status) {
+        routeMetrics.recordRoute(timing, status, System.nanoTime() - timing.start());
+    }
+
+    private static String status(ServerWebExchange exchange) {
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        return RouteMetrics.status(status != null ? status.value() : 200);
+    }
+
+    private static String upstream(URI uri) {
+        return uri.getAuthority() != null ? uri.getAuthority() : uri.getScheme();
+    }
+}
@@ -0,0 +1,46 @@
+package com.biblioteca.gateway.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.stereotype.Component;
+import reactor.netty.http.client.HttpClient;
+import reactor.util.context.ContextView;
+
+/**
+ * Ganchos en el cliente HTTP del gateway: al enviar la petición se registra el
+ * tiempo de conexión y al recibir las cabeceras el de respuesta del servicio.
+ * La ruta se toma del RequestTiming que RouteTimingFilter deja en el contexto.
+ */
+@Component
+@RequiredArgsConstructor
+public class UpstreamTimingCustomizer implements HttpClientCustomizer {
+
+    private final RouteMetrics routeMetrics;
+
+    @Override
+    public HttpClient customize(HttpClient httpClient) {
+        return httpClient
+                .doOnRequest((request, connection) -> {
+                    RequestTiming timing = timing(request.currentContextView());
+                    if (timing != null) {
+                        long connect = timing.requestStarted(System.nanoTime());
+                        if (connect >= 0) {
+                            routeMetrics.recordConnect(timing, connect);
+                        }
+                    }
+                })
+                .doOnResponse((response, connection) -> {
+                    RequestTiming timing = timing(response.currentContextView());
+                    if (timing != null) {
+                        long elapsed = timing.responseReceived(System.nanoTime());
+                        if (elapsed >= 0) {
+                            routeMetrics.recordResponse(timing, RouteMetrics.status(response.status().code()), elapsed);
+                        }
+                    }
+                });
+    }
+
+    private static RequestTiming timing(ContextView context) {
+        return context.getOrDefault(RequestTiming.class, null);
+    }
+}
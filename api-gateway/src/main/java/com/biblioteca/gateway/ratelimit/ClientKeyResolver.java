@@ -0,0 +1,77 @@
+package com.biblioteca.gateway.ratelimit;
+
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.support.ipresolver.RemoteAddressResolver;
+import org.springframework.cloud.gateway.support.ipresolver.XForwardedRemoteAddressResolver;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Clave de limitación de cada petición. Siempre incluye el cubo de la IP del
+ * cliente: la API key (cabecera api-key-header) o el email de las rutas
+ * /api/loans/user/{email} los elige el propio cliente, así que solo añaden un
+ * segundo cubo que también debe tener sitio (separado por un espacio). Las
+ * API keys de trusted-api-keys sustituyen al cubo de la IP.
+ *
+ * Cada cubo empieza por read: (GET, HEAD, OPTIONS) o write: (el resto), así
+ * que lecturas y escrituras de un mismo cliente usan cubos distintos con los
+ * límites de cada tipo de LocalRateLimiter.
+ */
+@Component
+public class ClientKeyResolver implements KeyResolver {
+
+    static final String READ_PREFIX = "read:";
+    static final String WRITE_PREFIX = "write:";
+    static final char SUB_KEY_SEPARATOR = ' ';
+
+    private static final Set<HttpMethod> READ_METHODS = Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS);
+    private static final PathPattern USER_PATH = PathPatternParser.defaultInstance.parse("/api/loans/user/{email}/**");
+
+    private final String apiKeyHeader;
+    private final Set<String> trustedApiKeys;
+    private final RemoteAddressResolver addressResolver;
+
+    public ClientKeyResolver(RateLimitProperties properties) {
+        this.apiKeyHeader = properties.apiKeyHeader();
+        this.trustedApiKeys = Set.copyOf(properties.trustedApiKeys());
+        this.addressResolver = properties.trustedProxies() > 0
+                ? XForwardedRemoteAddressResolver.maxTrustedIndex(properties.trustedProxies())
+                : new RemoteAddressResolver() { };
+    }
+
+    @Override
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest();
+        String prefix = READ_METHODS.contains(request.getMethod()) ? READ_PREFIX : WRITE_PREFIX;
+
+        String apiKey = request.getHeaders().getFirst(apiKeyHeader);
+        apiKey = apiKey == null || apiKey.isBlank() ? null : apiKey.trim();
+        if (apiKey != null && trustedApiKeys.contains(apiKey)) {
+            return Mono.just(prefix + "key:" + apiKey);
+        }
+
+        InetSocketAddress address = addressResolver.resolve(exchange);
+        String ip = address == null ? "desconocida"
+                : address.getAddress() != null ? address.getAddress().getHostAddress()
+                : address.getHostString();
+        String key = prefix + "ip:" + ip;
+        if (apiKey != null) {
+            return Mono.just(key + SUB_KEY_SEPARATOR + prefix + "key:" + apiKey);
+        }
+        PathPattern.PathMatchInfo user = USER_PATH.matchAndExtract(request.getPath().pathWithinApplication());
+        if (user != null) {
+            return Mono.just(key + SUB_KEY_SEPARATOR + prefix + "user:"
+                    + user.getUriVariables().get("email").toLowerCase(Locale.ROOT));
+        }
+        return Mono.just(key);
+    }
+}
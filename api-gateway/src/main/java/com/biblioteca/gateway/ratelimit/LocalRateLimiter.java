@@ -0,0 +1,182 @@
+package com.biblioteca.gateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limitador en memoria para el filtro RequestRateLimiter, sin Redis.
+ *
+ * Cada cubo (ruta + clave de ClientKeyResolver) es un cubo de tokens
+ * implementado con GCRA: solo guarda el instante teórico de la siguiente
+ * llegada en un AtomicLong y decide con un compareAndSet, sin bloqueos ni
+ * tareas de recarga, así que no frena el event loop de Netty. Los cubos se
+ * guardan en una caché acotada y desaparecen tras idle-timeout sin uso (para
+ * entonces ya estarían llenos). Con dos cubos (IP y API key o email) se
+ * comprueban los dos antes de tomar el token de ninguno, así que una petición
+ * rechazada por uno no gasta el del otro.
+ *
+ * Límites por ruta en los argumentos del filtro, por separado para lecturas y
+ * escrituras (peticiones por segundo y ráfaga):
+ * local-rate-limiter.read-rate, read-burst, write-rate y write-burst. Un rate
+ * de 0 o menos no limita ese tipo de petición. Lo que no pasa por una ruta
+ * toma sus límites de gateway.rate-limit.routes.
+ *
+ * Métricas: gateway.rate-limit.requests (tags route y result: allowed o
+ * denied) y gateway.rate-limit.buckets.
+ */
+@Component
+@Slf4j
+public class LocalRateLimiter extends AbstractRateLimiter<LocalRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "local-rate-limiter";
+
+    static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    static final String REPLENISH_RATE_HEADER = "X-RateLimit-Replenish-Rate";
+    static final String BURST_CAPACITY_HEADER = "X-RateLimit-Burst-Capacity";
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Cache<String, AtomicLong> buckets;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, RouteCounters> routeCounters = new ConcurrentHashMap<>();
+    private final Config defaultConfig = new Config();
+
+    public LocalRateLimiter(ConfigurationService configurationService,
+                            RateLimitProperties properties,
+                            MeterRegistry meterRegistry) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.meterRegistry = meterRegistry;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.maxKeys())
+                .expireAfterAccess(properties.idleTimeout())
+                .build();
+        Gauge.builder("gateway.rate-limit.buckets", buckets, Cache::estimatedSize)
+                .description("Cubos de limitación de peticiones en memoria")
+                .register(meterRegistry);
+        getConfig().putAll(properties.routes());
+        log.info("Limitador de peticiones en memoria: máximo {} cubos, caducidad {}",
+                properties.maxKeys(), properties.idleTimeout());
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        boolean write = id.startsWith(ClientKeyResolver.WRITE_PREFIX);
+        int rate = write ? config.getWriteRate() : config.getReadRate();
+        int burst = Math.max(1, write ? config.getWriteBurst() : config.getReadBurst());
+        if (rate <= 0) {
+            return Mono.just(new Response(true, Map.of()));
+        }
+
+        // Con una segunda clave (API key o email) la petición necesita sitio en los dos cubos
+        int split = id.indexOf(ClientKeyResolver.SUB_KEY_SEPARATOR);
+        Decision decision = split < 0
+                ? acquire(routeId + '|' + id, rate, burst, true)
+                : acquireBoth(routeId + '|' + id.substring(0, split), routeId + '|' + id.substring(split + 1),
+                        rate, burst);
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put(REMAINING_HEADER, Long.toString(decision.remaining()));
+        headers.put(REPLENISH_RATE_HEADER, Integer.toString(rate));
+        headers.put(BURST_CAPACITY_HEADER, Integer.toString(burst));
+        if (!decision.allowed()) {
+            // Segundos enteros hasta que vuelva a haber un token, como mínimo 1
+            long seconds = Math.max(1, (decision.waitNanos() + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND);
+            headers.put(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+            log.debug("Petición limitada en {} para {}: reintentar en {} s", routeId, id, seconds);
+        }
+        RouteCounters counters = routeCounters.computeIfAbsent(routeId, this::routeCounters);
+        (decision.allowed() ? counters.allowed() : counters.denied()).increment();
+        return Mono.just(new Response(decision.allowed(), headers));
+    }
+
+    private RouteCounters routeCounters(String routeId) {
+        return new RouteCounters(requests(routeId, "allowed"), requests(routeId, "denied"));
+    }
+
+    private Counter requests(String routeId, String result) {
+        return Counter.builder("gateway.rate-limit.requests")
+                .description("Peticiones admitidas o rechazadas por el limitador en memoria")
+                .tag("route", routeId)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Tomar un token de cada cubo solo si los dos tienen sitio. Si otra
+     * petición se lleva el del segundo entre la comprobación y la toma, se
+     * devuelve el del primero.
+     */
+    private Decision acquireBoth(String ipKey, String clientKey, int rate, int burst) {
+        Decision ipCheck = acquire(ipKey, rate, burst, false);
+        Decision clientCheck = acquire(clientKey, rate, burst, false);
+        if (!ipCheck.allowed() || !clientCheck.allowed()) {
+            return ipCheck.waitNanos() >= clientCheck.waitNanos() ? ipCheck : clientCheck;
+        }
+        Decision ip = acquire(ipKey, rate, burst, true);
+        if (!ip.allowed()) {
+            return ip;
+        }
+        Decision client = acquire(clientKey, rate, burst, true);
+        if (!client.allowed()) {
+            long interval = NANOS_PER_SECOND / rate;
+            buckets.get(ipKey, k -> new AtomicLong(System.nanoTime())).addAndGet(-interval);
+            return client;
+        }
+        return client.remaining() < ip.remaining() ? client : ip;
+    }
+
+    /**
+     * GCRA: cada petición adelanta el instante teórico de llegada (tat) un
+     * intervalo de 1/rate; se admite mientras tat no supere ahora + burst
+     * intervalos. Sin take solo se comprueba, sin tomar el token.
+     */
+    private Decision acquire(String key, int rate, int burst, boolean take) {
+        long interval = NANOS_PER_SECOND / rate;
+        long tolerance = interval * burst;
+        long now = System.nanoTime();
+        AtomicLong tat = buckets.get(key, k -> new AtomicLong(now));
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, now) + interval;
+            long waitNanos = next - now - tolerance;
+            if (waitNanos > 0) {
+                return new Decision(false, 0, waitNanos);
+            }
+            if (!take || tat.compareAndSet(current, next)) {
+                return new Decision(true, (tolerance - (next - now)) / interval, 0);
+            }
+        }
+    }
+
+    private record Decision(boolean allowed, long remaining, long waitNanos) {}
+
+    private record RouteCounters(Counter allowed, Counter denied) {}
+
+    /**
+     * Límites de una ruta: peticiones por segundo y ráfaga máxima, para
+     * lecturas y escrituras
+     */
+    @Data
+    public static class Config {
+        private int readRate = 50;
+        private int readBurst = 100;
+        private int writeRate = 10;
+        private int writeBurst = 20;
+    }
+}
@@ -0,0 +1,32 @@
+package com.biblioteca.gateway.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Limitación de peticiones en el gateway (gateway.rate-limit). Los límites de
+ * cada ruta van en los argumentos de su filtro RequestRateLimiter
+ * (local-rate-limiter.*); aquí solo se configura cómo se identifica al
+ * cliente y cuántos cubos se guardan.
+ *
+ * trusted-proxies es el número de proxies de confianza delante del gateway
+ * cuya cabecera X-Forwarded-For se acepta; con 0 se usa la dirección remota.
+ * trusted-api-keys son las API keys con cubo propio en lugar del de su IP
+ * (p. ej. integraciones que comparten salida a Internet).
+ *
+ * routes son los límites de lo que se limita fuera de las rutas (como el
+ * panel del lector), por el identificador con que se llama a LocalRateLimiter.
+ */
+@ConfigurationProperties(prefix = "gateway.rate-limit")
+public record RateLimitProperties(
+    @DefaultValue("X-API-Key") String apiKeyHeader,
+    @DefaultValue("0") int trustedProxies,
+    @DefaultValue List<String> trustedApiKeys,
+    @DefaultValue("100000") long maxKeys,
+    @DefaultValue("10m") Duration idleTimeout,
+    @DefaultValue Map<String, LocalRateLimiter.Config> routes
+) {}
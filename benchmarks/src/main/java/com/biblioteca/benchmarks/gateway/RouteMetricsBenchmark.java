@@ -0,0 +1,170 @@
+package com.biblioteca.benchmarks.gateway;
+
+import com.biblioteca.gateway.metrics.RequestTiming;
+import com.biblioteca.gateway.metrics.RouteMetrics;
+import com.biblioteca.gateway.metrics.RouteTimingFilter;
+import com.biblioteca.gateway.metrics.UpstreamTimingCustomizer;
+import com.biblioteca.gateway.metrics.UpstreamTimingFilter;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Coste de la instrumentación por ruta del gateway (RouteTimingFilter,
+ * UpstreamTimingFilter y UpstreamTimingCustomizer, registrando en Prometheus
+ * con histogramas) sobre la misma petición sin instrumentar:
+ *
+ * - inMemory*: servicio que responde sin red, para aislar el coste de los
+ *   filtros y de registrar los tres tiempos
+ * - loopback*: llamada HTTP real a un inventory-service simulado en local con
+ *   el cliente de Reactor Netty, con y sin los ganchos de tiempos
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RouteMetricsBenchmark {
+
+    private final Route route = Route.async()
+            .id("inventory-service")
+            .uri("http://inventory-service:8081")
+            .predicate(exchange -> true)
+            .build();
+
+    private PrometheusMeterRegistry meterRegistry;
+    private RouteMetrics routeMetrics;
+    private List<GlobalFilter> filters;
+    private DisposableServer server;
+    private ConnectionProvider connectionProvider;
+    private HttpClient plainClient;
+    private HttpClient instrumentedClient;
+    private String bookUrl;
+    private MockServerWebExchange exchange;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        routeMetrics = new RouteMetrics(meterRegistry);
+        filters = List.of(new RouteTimingFilter(routeMetrics), new UpstreamTimingFilter());
+
+        // Inventory simulado: devuelve siempre el mismo libro
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .route(routes -> routes.get("/api/books/{id}",
+                        (request, response) -> response.header("Content-Type", "application/json")
+                                .sendString(Mono.just("{\"id\":1,\"title\":\"Libro\"}"))))
+                .bindNow();
+        bookUrl = "http://127.0.0.1:" + server.port() + "/api/books/1";
+        connectionProvider = ConnectionProvider.create("benchmark", 16);
+        plainClient = HttpClient.create(connectionProvider);
+        instrumentedClient = new UpstreamTimingCustomizer(routeMetrics).customize(plainClient);
+
+        // Un único intercambio reutilizado: crearlo cuesta más que lo que se mide
+        exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/books/1"));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%nSeries de gateway.* registradas en Prometheus: %d%n", meterRegistry.scrape().lines()
+                .filter(line -> line.startsWith("gateway_"))
+                .count());
+        connectionProvider.dispose();
+        server.disposeNow();
+        meterRegistry.close();
+    }
+
+    @Benchmark
+    public Object inMemoryBaseline() {
+        return run(List.of(), this::respondInMemory);
+    }
+
+    /**
+     * Mismos registros que hacen los ganchos del cliente HTTP, sin red
+     */
+    @Benchmark
+    public Object inMemoryInstrumented() {
+        return run(filters, exchange -> Mono.deferContextual(context -> {
+            RequestTiming timing = context.get(RequestTiming.class);
+            routeMetrics.recordConnect(timing, timing.requestStarted(System.nanoTime()));
+            routeMetrics.recordResponse(timing, RouteMetrics.status(200), timing.responseReceived(System.nanoTime()));
+            return respondInMemory(exchange);
+        }));
+    }
+
+    @Benchmark
+    public Object loopbackBaseline() {
+        return run(List.of(), exchange -> call(plainClient, exchange));
+    }
+
+    @Benchmark
+    public Object loopbackInstrumented() {
+        return run(filters, exchange -> call(instrumentedClient, exchange));
+    }
+
+    private Object run(List<GlobalFilter> chainFilters, Function<ServerWebExchange, Mono<Void>> upstream) {
+        new Chain(chainFilters, 0, upstream).filter(exchange).block();
+        return exchange.getResponse().getStatusCode();
+    }
+
+    private Mono<Void> respondInMemory(ServerWebExchange exchange) {
+        exchange.getResponse().setStatusCode(HttpStatus.OK);
+        return Mono.empty();
+    }
+
+    private Mono<Void> call(HttpClient client, ServerWebExchange exchange) {
+        return client.get()
+                .uri(bookUrl)
+                .responseSingle((response, body) -> {
+                    exchange.getResponse().setStatusCode(HttpStatus.valueOf(response.status().code()));
+                    return body.asByteArray();
+                })
+                .then();
+    }
+
+    /**
+     * Cadena de filtros globales terminada en la llamada al servicio, como
+     * la que arma el FilteringWebHandler del gateway
+     */
+    private record Chain(List<GlobalFilter> filters, int index, Function<ServerWebExchange, Mono<Void>> upstream)
+            implements GatewayFilterChain {
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            return index < filters.size()
+                    ? filters.get(index).filter(exchange, new Chain(filters, index + 1, upstream))
+                    : upstream.apply(exchange);
+        }
+    }
+}
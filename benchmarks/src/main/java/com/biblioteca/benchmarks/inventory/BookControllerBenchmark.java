@@ -0,0 +1,111 @@
+package com.biblioteca.benchmarks.inventory;
+
+import com.biblioteca.inventory.InventoryServiceApplication;
+import com.biblioteca.inventory.controller.BookController;
+import com.biblioteca.inventory.dto.BookPage;
+import com.biblioteca.inventory.dto.BookResponse;
+import com.biblioteca.inventory.repository.BookRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Camino completo BookController → BookService → BookRepository sobre H2 R2DBC
+ * en memoria. Mide el coste propio del servicio (mapeo, caché, operadores
+ * reactivos y driver) sin la latencia de red de PostgreSQL.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookControllerBenchmark {
+
+    private static final int CATALOG_SIZE = 1000;
+
+    private ConfigurableApplicationContext context;
+    private BookController bookController;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Los argumentos de línea de comandos tienen prioridad sobre el application.yml del servicio
+        context = new SpringApplicationBuilder(InventoryServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                    "--spring.main.banner-mode=off",
+                    "--spring.r2dbc.url=r2dbc:h2:mem:///inventory-benchmark;DB_CLOSE_DELAY=-1",
+                    "--spring.r2dbc.username=sa",
+                    "--spring.r2dbc.password=",
+                    "--spring.sql.init.mode=always",
+                    "--spring.sql.init.schema-locations=classpath:benchmark-inventory-schema.sql",
+                    "--inventory.availability-feed.enabled=false",
+                    "--inventory.gateway-cache.purge-url=",
+                    "--spring.cloud.gateway.enabled=false",
+                    "--logging.level.root=WARN",
+                    "--logging.level.com.biblioteca=WARN"
+                );
+        bookController = context.getBean(BookController.class);
+
+        BookRepository repository = context.getBean(BookRepository.class);
+        repository.deleteAll()
+                .thenMany(repository.saveAll(Flux.fromStream(
+                        LongStream.rangeClosed(1, CATALOG_SIZE).mapToObj(Books::newSample))))
+                .blockLast();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Lectura por ID (servida por la caché tras la primera llamada)
+     */
+    @Benchmark
+    public ResponseEntity<BookResponse> getBookById() {
+        return bookController.getBookById(CATALOG_SIZE / 2L).block();
+    }
+
+    /**
+     * Disponibilidad de un libro (siempre contra la base de datos)
+     */
+    @Benchmark
+    public ResponseEntity<Boolean> checkAvailability() {
+        return bookController.checkAvailability(CATALOG_SIZE / 2L).block();
+    }
+
+    /**
+     * Listado completo del catálogo como array JSON
+     */
+    @Benchmark
+    public List<BookResponse> getAllBooks() {
+        return bookController.getAllBooks().collectList().block();
+    }
+
+    /**
+     * Primera página de 50 libros por cursor
+     */
+    @Benchmark
+    public BookPage getAllBooksPage() {
+        return bookController.getAllBooksPage(50, null).block();
+    }
+}
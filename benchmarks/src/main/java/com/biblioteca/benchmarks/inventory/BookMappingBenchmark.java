@@ -0,0 +1,49 @@
+package com.biblioteca.benchmarks.inventory;
+
+import com.biblioteca.inventory.dto.BookResponse;
+import com.biblioteca.inventory.model.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste por libro de BookResponse.fromBook y de Book.withAvailableCopies,
+ * que se ejecutan en cada lectura y en cada préstamo/devolución
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BookMappingBenchmark {
+
+    private Book book;
+    private int copies;
+
+    @Setup
+    public void setUp() {
+        book = Books.sample(1L);
+        copies = book.availableCopies();
+    }
+
+    @Benchmark
+    public BookResponse fromBook() {
+        return BookResponse.fromBook(book);
+    }
+
+    @Benchmark
+    public Book withAvailableCopies() {
+        copies = copies == 0 ? book.totalCopies() : copies - 1;
+        return book.withAvailableCopies(copies);
+    }
+}
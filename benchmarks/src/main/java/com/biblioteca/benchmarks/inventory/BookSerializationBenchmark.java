@@ -0,0 +1,75 @@
+package com.biblioteca.benchmarks.inventory;
+
+import com.biblioteca.inventory.dto.BookResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Serialización con Jackson de un Flux&lt;BookResponse&gt; tal como la hace WebFlux
+ * para los listados: array JSON (application/json) y NDJSON en streaming
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookSerializationBenchmark {
+
+    private static final ResolvableType BOOK_RESPONSE = ResolvableType.forClass(BookResponse.class);
+
+    @Param({"10", "1000", "100000"})
+    public int pageSize;
+
+    private List<BookResponse> page;
+    private Jackson2JsonEncoder encoder;
+
+    @Setup
+    public void setUp() {
+        page = LongStream.rangeClosed(1, pageSize)
+                .mapToObj(id -> BookResponse.fromBook(Books.sample(id)))
+                .toList();
+        encoder = new Jackson2JsonEncoder(Jackson2ObjectMapperBuilder.json().build());
+    }
+
+    @Benchmark
+    public int jsonArray() {
+        return encode(MediaType.APPLICATION_JSON);
+    }
+
+    @Benchmark
+    public int ndjson() {
+        return encode(MediaType.APPLICATION_NDJSON);
+    }
+
+    private int encode(MediaType mediaType) {
+        Flux<DataBuffer> encoded = encoder.encode(Flux.fromIterable(page), DefaultDataBufferFactory.sharedInstance,
+                BOOK_RESPONSE, mediaType, Map.of());
+        DataBuffer joined = DataBufferUtils.join(encoded).block();
+        int bytes = joined.readableByteCount();
+        DataBufferUtils.release(joined);
+        return bytes;
+    }
+}
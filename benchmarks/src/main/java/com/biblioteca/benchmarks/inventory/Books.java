@@ -0,0 +1,31 @@
+package com.biblioteca.benchmarks.inventory;
+
+import com.biblioteca.inventory.model.Book;
+
+/**
+ * Datos sintéticos de libros para los benchmarks
+ */
+final class Books {
+
+    private Books() {
+    }
+
+    static Book sample(Long id) {
+        return new Book(
+            id,
+            String.format("978-0-%09d", id),
+            "Reactive Spring Volume " + id,
+            "Josh Long",
+            "O Reilly",
+            2020,
+            "Programación Reactiva",
+            5,
+            4,
+            "Programación reactiva con Spring, edición " + id
+        );
+    }
+
+    static Book newSample(long sequence) {
+        return sample(sequence).withId(null);
+    }
+}
@@ -0,0 +1,95 @@
+package com.biblioteca.benchmarks.loan;
+
+import com.biblioteca.loan.client.InventoryClient;
+import com.biblioteca.loan.config.WebClientConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia (p50/p99 en el resultado de SampleTime) de la consulta de
+ * disponibilidad del loan-service contra un inventory-service simulado:
+ * el WebClient construido en cada llamada, como lo hacía LoanService, frente
+ * al InventoryClient con pool de conexiones de WebClientConfig.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class InventoryClientBenchmark {
+
+    private DisposableServer server;
+    private String inventoryServiceUrl;
+    private WebClient.Builder webClientBuilder;
+    private ConnectionProvider connectionProvider;
+    private InventoryClient inventoryClient;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Inventory simulado: responde siempre que el libro está disponible
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .route(routes -> routes.get("/api/books/{id}/availability",
+                        (request, response) -> response.header("Content-Type", "application/json")
+                                .sendString(Mono.just("true"))))
+                .bindNow();
+        inventoryServiceUrl = "http://127.0.0.1:" + server.port();
+        webClientBuilder = WebClient.builder();
+
+        WebClientConfig config = new WebClientConfig();
+        connectionProvider = config.inventoryConnectionProvider(
+                50, 500, Duration.ofSeconds(2), Duration.ofSeconds(30), Duration.ofMinutes(5));
+        inventoryClient = config.inventoryClient(WebClient.builder(), connectionProvider, inventoryServiceUrl,
+                Duration.ofSeconds(1), false,
+                Duration.ofSeconds(2), Duration.ofSeconds(3), Duration.ofSeconds(3));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        connectionProvider.dispose();
+        server.disposeNow();
+    }
+
+    /**
+     * Implementación anterior: WebClient nuevo y URL concatenada en cada llamada
+     */
+    @Benchmark
+    public Boolean buildPerCall() {
+        return webClientBuilder.build()
+                .get()
+                .uri(inventoryServiceUrl + "/api/books/{id}/availability", 1L)
+                .retrieve()
+                .bodyToMono(Boolean.class)
+                .block();
+    }
+
+    /**
+     * InventoryClient compartido con pool dimensionado y tiempos máximos
+     */
+    @Benchmark
+    public Boolean pooledClient() {
+        return inventoryClient.checkAvailability(1L).block();
+    }
+}
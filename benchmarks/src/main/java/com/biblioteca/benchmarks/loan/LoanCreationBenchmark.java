@@ -0,0 +1,199 @@
+package com.biblioteca.benchmarks.loan;
+
+import com.biblioteca.loan.client.AvailabilityLookup;
+import com.biblioteca.loan.client.InventoryClient;
+import com.biblioteca.loan.config.BorrowingLimitProperties;
+import com.biblioteca.loan.config.WebClientConfig;
+import com.biblioteca.loan.dto.LoanRequest;
+import com.biblioteca.loan.dto.LoanResponse;
+import com.biblioteca.loan.model.InventoryOutboxEntry;
+import com.biblioteca.loan.model.Loan;
+import com.biblioteca.loan.model.LoanStatus;
+import com.biblioteca.loan.model.StockOperation;
+import com.biblioteca.loan.overdue.OverdueWheel;
+import com.biblioteca.loan.repository.InventoryOutboxRepository;
+import com.biblioteca.loan.repository.LoanRepository;
+import com.biblioteca.loan.repository.LoanStatsRepository;
+import com.biblioteca.loan.repository.OverdueSweepRepository;
+import com.biblioteca.loan.service.ActiveLoanCounters;
+import com.biblioteca.loan.service.BorrowingLimits;
+import com.biblioteca.loan.service.InventoryOutboxDispatcher;
+import com.biblioteca.loan.service.LoanService;
+import com.biblioteca.loan.service.OverdueSweeper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencia de crear un préstamo con latencia inyectada en el inventory-service
+ * simulado y en los repositorios: el flujo anterior (límite, disponibilidad y
+ * guardado uno tras otro) frente al de LoanService, que reserva la copia a la
+ * vez que comprueba el límite y ya no consulta la disponibilidad por separado.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoanCreationBenchmark {
+
+    @Param({"20"})
+    public long inventoryLatencyMs;
+
+    @Param({"5"})
+    public long databaseLatencyMs;
+
+    private final AtomicLong books = new AtomicLong();
+    private DisposableServer server;
+    private ConnectionProvider connectionProvider;
+    private LoanRepository loanRepository;
+    private InventoryOutboxRepository outboxRepository;
+    private InventoryClient inventoryClient;
+    private LoanService loanService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Duration inventoryLatency = Duration.ofMillis(inventoryLatencyMs);
+        // Inventory simulado: siempre hay copias y cada respuesta tarda inventoryLatencyMs
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .route(routes -> routes
+                        .get("/api/books/{id}/availability",
+                                (request, response) -> response.header("Content-Type", "application/json")
+                                        .sendString(Mono.delay(inventoryLatency).thenReturn("true")))
+                        .post("/api/books/{id}/decrement",
+                                (request, response) -> response.header("Content-Type", "application/json")
+                                        .sendString(Mono.delay(inventoryLatency).thenReturn("{}"))))
+                .bindNow();
+
+        WebClientConfig config = new WebClientConfig();
+        connectionProvider = config.inventoryConnectionProvider(
+                50, 500, Duration.ofSeconds(2), Duration.ofSeconds(30), Duration.ofMinutes(5));
+        inventoryClient = config.inventoryClient(WebClient.builder(), connectionProvider,
+                "http://127.0.0.1:" + server.port(), Duration.ofSeconds(1), false,
+                Duration.ofSeconds(2), Duration.ofSeconds(3), Duration.ofSeconds(3));
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        loanRepository = stub(LoanRepository.class);
+        outboxRepository = stub(InventoryOutboxRepository.class);
+        AvailabilityLookup availabilityLookup = new AvailabilityLookup(meterRegistry, Duration.ZERO, 0);
+        InventoryOutboxDispatcher dispatcher = new InventoryOutboxDispatcher(outboxRepository, inventoryClient,
+                availabilityLookup, meterRegistry, 100, 8, Duration.ofSeconds(30),
+                Duration.ofSeconds(1), Duration.ofMinutes(5), 10);
+        TransactionalOperator transactionalOperator = stub(TransactionalOperator.class);
+        ActiveLoanCounters activeLoanCounters = new ActiveLoanCounters(loanRepository, meterRegistry,
+                100_000, Duration.ofHours(1));
+        OverdueSweeper overdueSweeper = new OverdueSweeper(stub(OverdueSweepRepository.class),
+                activeLoanCounters, meterRegistry, 500);
+        BorrowingLimits borrowingLimits = new BorrowingLimits(new BorrowingLimitProperties(5, Map.of()));
+
+        loanService = new LoanService(loanRepository, outboxRepository, dispatcher, availabilityLookup,
+                inventoryClient, transactionalOperator, overdueSweeper, activeLoanCounters, borrowingLimits,
+                stub(LoanStatsRepository.class),
+                new OverdueWheel(loanRepository, activeLoanCounters, meterRegistry, true, 500));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        connectionProvider.dispose();
+        server.disposeNow();
+    }
+
+    /**
+     * Flujo anterior: límite del usuario, disponibilidad en el inventario y
+     * guardado con el decremento encolado, en serie
+     */
+    @Benchmark
+    public LoanResponse sequential() {
+        LoanRequest request = nextRequest();
+        return loanRepository.countActiveLoanssByUser(request.userEmail())
+                .flatMap(count -> inventoryClient.checkAvailability(request.bookId()))
+                .flatMap(available -> loanRepository.save(newLoan(request)))
+                .flatMap(loan -> outboxRepository.enqueue(loan.id(), loan.bookId(), StockOperation.DECREMENT.name(),
+                                InventoryOutboxEntry.idempotencyKey(loan.id(), StockOperation.DECREMENT))
+                        .thenReturn(loan))
+                .map(LoanResponse::fromLoan)
+                .block();
+    }
+
+    /**
+     * LoanService.createLoan: reserva y límite en paralelo, después el guardado
+     */
+    @Benchmark
+    public LoanResponse pipelined() {
+        return loanService.createLoan(nextRequest()).block();
+    }
+
+    private LoanRequest nextRequest() {
+        // Un libro y un lector distintos por llamada: ni se agrupan consultas ni
+        // se reutiliza el contador de préstamos activos en memoria
+        long id = books.incrementAndGet();
+        return new LoanRequest(id, "lector" + id + "@biblioteca.com", "Lector",
+                LocalDate.now().plusDays(14), null);
+    }
+
+    private static Loan newLoan(LoanRequest request) {
+        return new Loan(request.bookId(), request.userEmail(), request.userName(),
+                LocalDate.now(), request.dueDate(), LoanStatus.ACTIVE, request.notes());
+    }
+
+    /**
+     * Repositorio simulado: cada consulta tarda databaseLatencyMs. El operador
+     * transaccional devuelve la publicación sin envolverla.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T stub(Class<T> type) {
+        Duration latency = Duration.ofMillis(databaseLatencyMs);
+        AtomicLong ids = new AtomicLong();
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) ->
+                switch (method.getName()) {
+                    case "countActiveLoanssByUser" -> Mono.delay(latency).thenReturn(0L);
+                    case "save" -> {
+                        Loan loan = (Loan) args[0];
+                        yield Mono.delay(latency).thenReturn(new Loan(ids.incrementAndGet(), loan.bookId(),
+                                loan.userEmail(), loan.userName(), loan.loanDate(), loan.dueDate(),
+                                loan.returnDate(), loan.status(), loan.notes()));
+                    }
+                    case "insertActiveLoans" -> {
+                        Long[] bookIds = (Long[]) args[0];
+                        yield Mono.delay(latency).thenMany(Flux.fromArray(bookIds)
+                                .map(bookId -> new Loan(ids.incrementAndGet(), bookId, (String) args[1],
+                                        (String) args[2], (LocalDate) args[3], (LocalDate) args[4], null,
+                                        LoanStatus.ACTIVE, (String) args[5])));
+                    }
+                    case "enqueue" -> Mono.delay(latency).thenReturn(1);
+                    case "transactional" -> args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> type.getSimpleName() + " simulado";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,132 @@
+package com.biblioteca.benchmarks.loan;
+
+import com.biblioteca.loan.model.Loan;
+import com.biblioteca.loan.model.LoanStatus;
+import com.biblioteca.loan.overdue.DueDateWheel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detección diaria de vencidos con activeLoans préstamos activos repartidos en
+ * los próximos dueWindowDays días: avanzar un día la rueda de vencimientos
+ * (solo toca los que vencen ese día, que se vuelven a programar para mantener
+ * el tamaño) frente a recorrer todos los préstamos con Loan.isOverdue(), que es
+ * lo que hace en memoria un barrido completo. También mide la carga de la
+ * rueda al arrancar e imprime la memoria retenida por cada representación.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class OverdueWheelBenchmark {
+
+    @Param({"1000000"})
+    public int activeLoans;
+
+    @Param({"60"})
+    public int dueWindowDays;
+
+    private long[] dueDays;
+    private List<Loan> loans;
+    private DueDateWheel wheel;
+    private long day;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long today = LocalDate.now().toEpochDay();
+        SplittableRandom random = new SplittableRandom(42);
+        dueDays = new long[activeLoans];
+        for (int i = 0; i < activeLoans; i++) {
+            dueDays[i] = today + random.nextInt(dueWindowDays);
+        }
+
+        long before = usedMemory();
+        wheel = load(today);
+        long wheelBytes = usedMemory() - before;
+
+        before = usedMemory();
+        loans = new ArrayList<>(activeLoans);
+        for (int i = 0; i < activeLoans; i++) {
+            loans.add(new Loan((long) i + 1, (long) (i % 5000) + 1, "lector" + i + "@biblioteca.com", "Lector " + i,
+                    LocalDate.ofEpochDay(dueDays[i] - 14), LocalDate.ofEpochDay(dueDays[i]), null,
+                    LoanStatus.ACTIVE, null));
+        }
+        long loanBytes = usedMemory() - before;
+
+        System.out.printf("%nRueda de vencimientos con %d préstamos: %.1f MB retenidos (%.1f MB estimados)%n",
+                activeLoans, wheelBytes / 1048576.0, wheel.estimatedBytes() / 1048576.0);
+        System.out.printf("List<Loan> con %d préstamos: %.1f MB retenidos%n", activeLoans, loanBytes / 1048576.0);
+        day = today;
+    }
+
+    /**
+     * Avanzar un día: se disparan los que vencen hoy y se vuelven a programar
+     * al final de la ventana
+     */
+    @Benchmark
+    public int wheelAdvanceOneDay() {
+        day++;
+        long[] expired = wheel.advance(day);
+        for (long loanId : expired) {
+            wheel.add(loanId, day + dueWindowDays - 1);
+        }
+        return expired.length;
+    }
+
+    /**
+     * Recorrer todos los préstamos activos comprobando si han vencido
+     */
+    @Benchmark
+    public int fullScan() {
+        int overdue = 0;
+        for (Loan loan : loans) {
+            if (loan.isOverdue()) {
+                overdue++;
+            }
+        }
+        return overdue;
+    }
+
+    /**
+     * Cargar la rueda con todos los préstamos activos, como al arrancar
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public DueDateWheel load() {
+        return load(LocalDate.now().toEpochDay());
+    }
+
+    private DueDateWheel load(long today) {
+        DueDateWheel loaded = new DueDateWheel(today);
+        for (int i = 0; i < dueDays.length; i++) {
+            loaded.add(i + 1, dueDays[i]);
+        }
+        return loaded;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,52 @@
+-- Benchmark de búsqueda de libros sobre un catálogo sintético de 1.000.000 filas
+-- Ejecutar contra una base con el esquema de books ya creado:
+--   psql -U biblioteca_user -d biblioteca_db -f database/benchmark-search.sql
+-- Trabaja sobre una copia temporal (bench_books), no modifica la tabla books.
+
+\timing on
+
+-- Copia de la estructura con columna generada e índices incluidos
+DROP TABLE IF EXISTS bench_books;
+CREATE TABLE bench_books (LIKE books INCLUDING ALL);
+
+-- Catálogo sintético: títulos y autores combinados a partir de vocabularios pequeños
+INSERT INTO bench_books (isbn, title, author, publisher, publication_year, category,
+                         total_copies, available_copies, description)
+SELECT 'BENCH-' || g,
+       (ARRAY['Spring', 'Reactive', 'Clean', 'Effective', 'Domain', 'Patterns', 'Microservices', 'Kotlin', 'Java', 'Refactoring'])[1 + g % 10]
+           || ' ' ||
+       (ARRAY['Architecture', 'Code', 'Design', 'Systems', 'Programming', 'Testing', 'Cloud', 'Data', 'Boot', 'Action'])[1 + (g / 10) % 10]
+           || ' ' || g,
+       (ARRAY['Robert Martin', 'Martin Fowler', 'Joshua Bloch', 'Craig Walls', 'Sam Newman', 'Eric Evans', 'Josh Long', 'Kent Beck'])[1 + g % 8]
+           || ' ' || (g % 5000),
+       'Editorial ' || (g % 200),
+       1950 + g % 75,
+       (ARRAY['Programación', 'Arquitectura', 'Frameworks', 'Desarrollo Profesional', 'Programación Reactiva'])[1 + g % 5],
+       5,
+       g % 6,
+       'Descripción sintética del libro número ' || g
+FROM generate_series(1, 1000000) AS g;
+
+ANALYZE bench_books;
+
+-- 1. Búsqueda anterior: ILIKE '%x%' (antes sin índice utilizable)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM bench_books WHERE title ILIKE '%' || 'reactive arch' || '%';
+
+-- 2. Texto completo con prefijos, ordenado por relevancia
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM bench_books
+WHERE search_vector @@ to_tsquery('simple', 'reac:* & arch:*')
+ORDER BY ts_rank(search_vector, to_tsquery('simple', 'reac:* & arch:*')) DESC, id
+LIMIT 20;
+
+-- 3. Consulta completa del endpoint /api/books/search con error de escritura ("Fowlr")
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM bench_books
+WHERE search_vector @@ to_tsquery('simple', 'fowlr:*')
+   OR 'Fowlr' <% title OR 'Fowlr' <% author
+ORDER BY ts_rank(search_vector, to_tsquery('simple', 'fowlr:*'))
+       + GREATEST(word_similarity('Fowlr', title), word_similarity('Fowlr', author)) DESC, id
+LIMIT 20;
+
+DROP TABLE bench_books;
@@ -30,6 +30,53 @@ CREATE INDEX IF NOT EXISTS idx_books_title ON books(title);
 CREATE INDEX IF NOT EXISTS idx_books_category ON books(category);
 CREATE INDEX IF NOT EXISTS idx_books_available ON books(available_copies);
 
+-- Búsqueda de texto completo (ponderada) y por similitud de trigramas
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE books ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('simple', coalesce(title, '')), 'A') ||
+    setweight(to_tsvector('simple', coalesce(author, '')), 'B') ||
+    setweight(to_tsvector('simple', coalesce(category, '')), 'C') ||
+    setweight(to_tsvector('simple', coalesce(description, '')), 'D')
+) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_books_search_vector ON books USING gin(search_vector);
+CREATE INDEX IF NOT EXISTS idx_books_title_trgm ON books USING gin(title gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_books_author_trgm ON books USING gin(author gin_trgm_ops);
+
+-- Notificar cambios de disponibilidad (LISTEN book_availability) al confirmar la transacción
+CREATE OR REPLACE FUNCTION notify_book_availability() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        PERFORM pg_notify('book_availability', json_build_object(
+            'bookId', OLD.id, 'availableCopies', 0, 'totalCopies', 0, 'type', 'DELETED')::text);
+        RETURN OLD;
+    END IF;
+    IF NEW.available_copies IS DISTINCT FROM OLD.available_copies
+       OR NEW.total_copies IS DISTINCT FROM OLD.total_copies THEN
+        PERFORM pg_notify('book_availability', json_build_object(
+            'bookId', NEW.id, 'availableCopies', NEW.available_copies,
+            'totalCopies', NEW.total_copies, 'type', 'UPDATED')::text);
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_books_availability ON books;
+CREATE TRIGGER trg_books_availability
+    AFTER UPDATE OR DELETE ON books
+    FOR EACH ROW EXECUTE FUNCTION notify_book_availability();
+
+-- Operaciones de stock ya aplicadas por clave de idempotencia (cabecera Idempotency-Key)
+CREATE TABLE IF NOT EXISTS stock_operations (
+    idempotency_key VARCHAR(100) PRIMARY KEY,
+    book_id BIGINT NOT NULL,
+    operation VARCHAR(20) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_stock_operations_created_at ON stock_operations(created_at);
+
 -- Insertar datos de ejemplo para books
 INSERT INTO books (isbn, title, author, publisher, publication_year, category, total_copies, available_copies, description) VALUES
 ('978-0-13-468599-1', 'Effective Java', 'Joshua Bloch', 'Addison-Wesley', 2018, 'Programación', 5, 5, 'Guía completa de mejores prácticas en Java'),
@@ -73,12 +120,64 @@ CREATE TABLE IF NOT EXISTS loans (
 );
 
 -- Crear índices para loans
-CREATE INDEX IF NOT EXISTS idx_loans_book_id ON loans(book_id);
-CREATE INDEX IF NOT EXISTS idx_loans_user_email ON loans(user_email);
-CREATE INDEX IF NOT EXISTS idx_loans_status ON loans(status);
 CREATE INDEX IF NOT EXISTS idx_loans_due_date ON loans(due_date);
-CREATE INDEX IF NOT EXISTS idx_loans_loan_date ON loans(loan_date);
+-- Historial paginado por (loan_date, id), del más reciente al más antiguo;
+-- también sirven para filtrar solo por libro, usuario o estado
+CREATE INDEX IF NOT EXISTS idx_loans_history ON loans(loan_date, id);
+CREATE INDEX IF NOT EXISTS idx_loans_book_history ON loans(book_id, loan_date, id);
+CREATE INDEX IF NOT EXISTS idx_loans_user_history ON loans(user_email, loan_date, id);
+CREATE INDEX IF NOT EXISTS idx_loans_status_history ON loans(status, loan_date, id);
 CREATE INDEX IF NOT EXISTS idx_loans_active ON loans(status) WHERE status = 'ACTIVE';
+-- Conteo de préstamos activos por usuario (límite de préstamos)
+CREATE INDEX IF NOT EXISTS idx_loans_user_status ON loans(user_email, status);
+
+-- Bandeja de salida de cambios de stock hacia el inventory-service. Se escribe
+-- en la misma transacción que el préstamo y la vacía un proceso en segundo plano
+CREATE TABLE IF NOT EXISTS inventory_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    loan_id BIGINT, -- NULL al liberar una reserva que no llegó a ser préstamo
+    book_id BIGINT NOT NULL,
+    operation VARCHAR(20) NOT NULL,
+    idempotency_key VARCHAR(100) NOT NULL UNIQUE,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    locked_until TIMESTAMP,
+    last_error TEXT,
+    failed_at TIMESTAMP,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Entradas pendientes por libro en orden de creación (se envían en ese orden)
+CREATE INDEX IF NOT EXISTS idx_inventory_outbox_pending ON inventory_outbox(book_id, id) WHERE failed_at IS NULL;
+
+-- Índice del barrido de vencidos: préstamos activos en orden de id
+CREATE INDEX IF NOT EXISTS idx_loans_overdue_sweep ON loans(id, due_date) WHERE status = 'ACTIVE' AND return_date IS NULL;
+
+-- Progreso del barrido de préstamos vencidos. Cada tramo actualiza su fila en la
+-- misma sentencia, así que tras una caída el barrido sigue desde last_loan_id
+CREATE TABLE IF NOT EXISTS overdue_sweeps (
+    id BIGSERIAL PRIMARY KEY,
+    sweep_date DATE NOT NULL,
+    last_loan_id BIGINT NOT NULL DEFAULT 0,
+    marked_count BIGINT NOT NULL DEFAULT 0,
+    chunks INTEGER NOT NULL DEFAULT 0,
+    started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    finished_at TIMESTAMP
+);
+
+-- Agregados de préstamos por libro para las estadísticas (/api/loans/stats).
+-- Los mantiene el loan-service en las mismas sentencias o transacciones que
+-- cambian loans; POST /api/loans/stats/rebuild los recalcula desde cero
+CREATE TABLE IF NOT EXISTS loan_book_stats (
+    book_id BIGINT PRIMARY KEY,
+    total_loans BIGINT NOT NULL DEFAULT 0,
+    active_loans BIGINT NOT NULL DEFAULT 0,
+    overdue_loans BIGINT NOT NULL DEFAULT 0,
+    returned_loans BIGINT NOT NULL DEFAULT 0,
+    cancelled_loans BIGINT NOT NULL DEFAULT 0,
+    total_loan_days BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
 
 -- Insertar datos de ejemplo para loans
 INSERT INTO loans (book_id, user_email, user_name, loan_date, due_date, status, notes) VALUES
@@ -94,6 +193,17 @@ ON CONFLICT DO NOTHING;
 UPDATE loans SET return_date = CURRENT_DATE - INTERVAL '6 days' WHERE id = 3 AND return_date IS NULL;
 UPDATE loans SET return_date = CURRENT_DATE - INTERVAL '10 days' WHERE id = 5 AND return_date IS NULL;
 
+-- Agregados de los préstamos de ejemplo
+INSERT INTO loan_book_stats (book_id, total_loans, active_loans, overdue_loans, returned_loans, cancelled_loans, total_loan_days)
+SELECT book_id, COUNT(*),
+       COUNT(*) FILTER (WHERE status = 'ACTIVE'),
+       COUNT(*) FILTER (WHERE status = 'OVERDUE'),
+       COUNT(*) FILTER (WHERE status = 'RETURNED'),
+       COUNT(*) FILTER (WHERE status = 'CANCELLED'),
+       COALESCE(SUM(return_date - loan_date) FILTER (WHERE status = 'RETURNED'), 0)
+FROM loans GROUP BY book_id
+ON CONFLICT (book_id) DO NOTHING;
+
 -- ============================================================================
 -- VERIFICACIÓN
 -- ============================================================================
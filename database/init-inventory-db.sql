@@ -26,6 +26,53 @@ CREATE INDEX idx_books_title ON books(title);
 CREATE INDEX idx_books_category ON books(category);
 CREATE INDEX idx_books_available ON books(available_copies);
 
+-- Búsqueda de texto completo (ponderada) y por similitud de trigramas
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE books ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('simple', coalesce(title, '')), 'A') ||
+    setweight(to_tsvector('simple', coalesce(author, '')), 'B') ||
+    setweight(to_tsvector('simple', coalesce(category, '')), 'C') ||
+    setweight(to_tsvector('simple', coalesce(description, '')), 'D')
+) STORED;
+
+CREATE INDEX idx_books_search_vector ON books USING gin(search_vector);
+CREATE INDEX idx_books_title_trgm ON books USING gin(title gin_trgm_ops);
+CREATE INDEX idx_books_author_trgm ON books USING gin(author gin_trgm_ops);
+
+-- Notificar cambios de disponibilidad (LISTEN book_availability) al confirmar la transacción
+CREATE OR REPLACE FUNCTION notify_book_availability() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        PERFORM pg_notify('book_availability', json_build_object(
+            'bookId', OLD.id, 'availableCopies', 0, 'totalCopies', 0, 'type', 'DELETED')::text);
+        RETURN OLD;
+    END IF;
+    IF NEW.available_copies IS DISTINCT FROM OLD.available_copies
+       OR NEW.total_copies IS DISTINCT FROM OLD.total_copies THEN
+        PERFORM pg_notify('book_availability', json_build_object(
+            'bookId', NEW.id, 'availableCopies', NEW.available_copies,
+            'totalCopies', NEW.total_copies, 'type', 'UPDATED')::text);
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_books_availability ON books;
+CREATE TRIGGER trg_books_availability
+    AFTER UPDATE OR DELETE ON books
+    FOR EACH ROW EXECUTE FUNCTION notify_book_availability();
+
+-- Operaciones de stock ya aplicadas por clave de idempotencia (cabecera Idempotency-Key)
+CREATE TABLE stock_operations (
+    idempotency_key VARCHAR(100) PRIMARY KEY,
+    book_id BIGINT NOT NULL,
+    operation VARCHAR(20) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_stock_operations_created_at ON stock_operations(created_at);
+
 -- Insertar datos de ejemplo
 INSERT INTO books (isbn, title, author, publisher, publication_year, category, total_copies, available_copies, description) VALUES
 ('978-0-13-468599-1', 'Effective Java', 'Joshua Bloch', 'Addison-Wesley', 2018, 'Programación', 5, 5, 'Guía completa de mejores prácticas en Java'),
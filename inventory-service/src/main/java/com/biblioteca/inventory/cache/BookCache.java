@@ -0,0 +1,91 @@
+package com.biblioteca.inventory.cache;
+
+import com.biblioteca.inventory.dto.BookResponse;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Caché en memoria de lectura de libros por ID e ISBN.
+ *
+ * Se usa una caché asíncrona: las cargas en curso también se descartan al
+ * invalidar, de modo que una lectura iniciada antes de una escritura nunca
+ * deja en caché el valor anterior. Las métricas se publican en el endpoint
+ * metrics del actuator como cache.gets, cache.evictions, etc.
+ *
+ * Invalidar un libro también purga sus respuestas en la caché del api-gateway.
+ */
+@Component
+@Slf4j
+public class BookCache {
+
+    private final AsyncCache<Long, BookResponse> booksById;
+    private final Cache<String, Long> idsByIsbn;
+    private final GatewayCachePurger gatewayCachePurger;
+
+    public BookCache(MeterRegistry meterRegistry,
+                     GatewayCachePurger gatewayCachePurger,
+                     @Value("${inventory.cache.max-size:10000}") long maxSize,
+                     @Value("${inventory.cache.ttl:5m}") Duration ttl) {
+        this.booksById = CaffeineCacheMetrics.monitor(meterRegistry,
+                Caffeine.newBuilder()
+                        .maximumSize(maxSize)
+                        .expireAfterWrite(ttl)
+                        .recordStats()
+                        .<Long, BookResponse>buildAsync(),
+                "books.by-id");
+        this.idsByIsbn = CaffeineCacheMetrics.monitor(meterRegistry,
+                Caffeine.newBuilder()
+                        .maximumSize(maxSize)
+                        .expireAfterWrite(ttl)
+                        .recordStats()
+                        .<String, Long>build(),
+                "books.by-isbn");
+        this.gatewayCachePurger = gatewayCachePurger;
+        log.info("Caché de libros configurada: tamaño máximo={}, ttl={}", maxSize, ttl);
+    }
+
+    /**
+     * Obtener un libro por ID, cargándolo con el loader si no está en caché.
+     * Las peticiones concurrentes del mismo ID comparten una única carga.
+     */
+    public Mono<BookResponse> getById(Long id, Function<Long, Mono<BookResponse>> loader) {
+        return Mono.fromFuture(() -> booksById.get(id, (key, executor) -> loader.apply(key).toFuture()), true);
+    }
+
+    /**
+     * ID asociado a un ISBN, si se ha resuelto antes
+     */
+    public Long getIdByIsbn(String isbn) {
+        return idsByIsbn.getIfPresent(isbn);
+    }
+
+    public void putIsbn(String isbn, Long id) {
+        idsByIsbn.put(isbn, id);
+    }
+
+    /**
+     * Invalidar un libro tras una escritura local. La relación ISBN → ID no se
+     * toca: quien la use verifica que el libro cargado siga teniendo ese ISBN.
+     */
+    public void invalidate(Long id) {
+        booksById.synchronous().invalidate(id);
+        gatewayCachePurger.purgeBooks(List.of(id));
+    }
+
+    public void invalidateAll(Collection<Long> ids) {
+        booksById.synchronous().invalidateAll(ids);
+        gatewayCachePurger.purgeBooks(ids);
+    }
+}
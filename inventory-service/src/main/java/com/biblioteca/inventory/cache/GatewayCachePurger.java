@@ -0,0 +1,109 @@
+package com.biblioteca.inventory.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Purga de la caché de respuestas del api-gateway tras las escrituras.
+ *
+ * Los libros modificados se acumulan y se envían juntos en una única llamada
+ * al endpoint responsecache del gateway cada flush-interval-ms; cada libro
+ * purga sus propias rutas (/api/books/{id}/**) y cualquier escritura purga los
+ * listados y búsquedas, que pueden incluirlo. La llamada no bloquea el hilo
+ * del planificador y solo hay una en curso; si falla, sus libros vuelven a
+ * quedar pendientes para el siguiente ciclo. Sin purge-url no se purga nada.
+ */
+@Component
+@Slf4j
+public class GatewayCachePurger {
+
+    // Rutas de listados y búsquedas, que pueden cambiar con cualquier libro
+    private static final List<String> COLLECTION_PATTERNS = List.of(
+        "/api/books",
+        "/api/books/batch",
+        "/api/books/isbn/**",
+        "/api/books/search/**",
+        "/api/books/category/**",
+        "/api/books/available",
+        "/api/books/availability"
+    );
+
+    private final WebClient webClient;
+    private final boolean enabled;
+    private final Duration timeout;
+    private final Set<Long> pendingBooks = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private final AtomicBoolean inFlight = new AtomicBoolean();
+
+    public GatewayCachePurger(WebClient.Builder webClientBuilder,
+                              @Value("${inventory.gateway-cache.purge-url:}") String purgeUrl,
+                              @Value("${inventory.gateway-cache.timeout:2s}") Duration timeout) {
+        this.enabled = !purgeUrl.isBlank();
+        this.webClient = enabled ? webClientBuilder.baseUrl(purgeUrl).build() : null;
+        this.timeout = timeout;
+        log.info("Purga de la caché del gateway: {}", enabled ? purgeUrl : "deshabilitada");
+    }
+
+    /**
+     * Purgar las rutas de estos libros y los listados
+     */
+    public void purgeBooks(Collection<Long> ids) {
+        if (enabled) {
+            pendingBooks.addAll(ids);
+            pending.set(true);
+        }
+    }
+
+    /**
+     * Purgar solo los listados (p. ej. tras crear libros)
+     */
+    public void purgeCollections() {
+        if (enabled) {
+            pending.set(true);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.gateway-cache.flush-interval-ms:100}")
+    public void flush() {
+        if (!enabled || !inFlight.compareAndSet(false, true)) {
+            return;
+        }
+        if (!pending.getAndSet(false)) {
+            inFlight.set(false);
+            return;
+        }
+        List<Long> ids = new ArrayList<>();
+        List<String> patterns = new ArrayList<>(COLLECTION_PATTERNS);
+        for (Long id : List.copyOf(pendingBooks)) {
+            pendingBooks.remove(id);
+            ids.add(id);
+            patterns.add("/api/books/" + id + "/**");
+        }
+        webClient.post()
+                // El actuator recibe los parámetros como texto: patrones separados por comas
+                .bodyValue(Map.of("patterns", String.join(",", patterns)))
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(timeout)
+                .doFinally(signal -> inFlight.set(false))
+                .subscribe(
+                        response -> log.debug("Caché del gateway purgada: {} rutas", patterns.size()),
+                        error -> {
+                            log.warn("No se pudo purgar la caché del gateway: {}", error.getMessage());
+                            pendingBooks.addAll(ids);
+                            pending.set(true);
+                        });
+    }
+}
@@ -1,16 +1,32 @@
 package com.biblioteca.inventory.controller;
 
+import com.biblioteca.inventory.dto.BookAvailabilityEvent;
+import com.biblioteca.inventory.dto.BookBatchRequest;
+import com.biblioteca.inventory.dto.BookPage;
 import com.biblioteca.inventory.dto.BookRequest;
 import com.biblioteca.inventory.dto.BookResponse;
+import com.biblioteca.inventory.dto.BookStockResult;
+import com.biblioteca.inventory.dto.BulkImportResult;
+import com.biblioteca.inventory.dto.HotTitleStatus;
+import com.biblioteca.inventory.event.BookAvailabilityNotifier;
+import com.biblioteca.inventory.ledger.HotTitleLedger;
+import com.biblioteca.inventory.service.BookImportService;
 import com.biblioteca.inventory.service.BookService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Controlador REST reactivo para gestionar libros
  */
@@ -20,6 +36,9 @@ import reactor.core.publisher.Mono;
 public class BookController {
 
     private final BookService bookService;
+    private final BookImportService bookImportService;
+    private final BookAvailabilityNotifier availabilityNotifier;
+    private final HotTitleLedger hotTitleLedger;
 
     /**
      * Obtener todos los libros
@@ -30,6 +49,26 @@ public class BookController {
         return bookService.getAllBooks();
     }
 
+    /**
+     * Obtener libros paginados por cursor
+     * GET /api/books?size=50&cursor=...
+     */
+    @GetMapping(params = "size")
+    public Mono<BookPage> getAllBooksPage(
+            @RequestParam int size,
+            @RequestParam(required = false) String cursor) {
+        return bookService.getBooksPage(cursor, size);
+    }
+
+    /**
+     * Streaming NDJSON de todos los libros
+     * GET /api/books (Accept: application/x-ndjson)
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BookResponse> streamAllBooks() {
+        return bookService.streamAllBooks();
+    }
+
     /**
      * Obtener libro por ID
      * GET /api/books/{id}
@@ -41,6 +80,15 @@ public class BookController {
                 .defaultIfEmpty(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Obtener varios libros por ID en una sola consulta (los inexistentes se omiten)
+     * GET /api/books/batch?ids=1,2,3
+     */
+    @GetMapping("/batch")
+    public Flux<BookResponse> getBooksByIds(@RequestParam List<Long> ids) {
+        return bookService.getBooksByIds(ids);
+    }
+
     /**
      * Obtener libro por ISBN
      * GET /api/books/isbn/{isbn}
@@ -52,6 +100,17 @@ public class BookController {
                 .defaultIfEmpty(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Búsqueda general ordenada por relevancia
+     * GET /api/books/search?q=texto&limit=20
+     */
+    @GetMapping("/search")
+    public Flux<BookResponse> search(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit) {
+        return bookService.search(q, limit);
+    }
+
     /**
      * Buscar libros por autor
      * GET /api/books/search/author?name=autor
@@ -79,6 +138,27 @@ public class BookController {
         return bookService.getBooksByCategory(category);
     }
 
+    /**
+     * Obtener libros de una categoría paginados por cursor
+     * GET /api/books/category/{category}?size=50&cursor=...
+     */
+    @GetMapping(value = "/category/{category}", params = "size")
+    public Mono<BookPage> getBooksByCategoryPage(
+            @PathVariable String category,
+            @RequestParam int size,
+            @RequestParam(required = false) String cursor) {
+        return bookService.getBooksByCategoryPage(category, cursor, size);
+    }
+
+    /**
+     * Streaming NDJSON de libros de una categoría
+     * GET /api/books/category/{category} (Accept: application/x-ndjson)
+     */
+    @GetMapping(value = "/category/{category}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BookResponse> streamBooksByCategory(@PathVariable String category) {
+        return bookService.streamBooksByCategory(category);
+    }
+
     /**
      * Obtener libros disponibles
      * GET /api/books/available
@@ -88,6 +168,26 @@ public class BookController {
         return bookService.getAvailableBooks();
     }
 
+    /**
+     * Obtener libros disponibles paginados por cursor
+     * GET /api/books/available?size=50&cursor=...
+     */
+    @GetMapping(value = "/available", params = "size")
+    public Mono<BookPage> getAvailableBooksPage(
+            @RequestParam int size,
+            @RequestParam(required = false) String cursor) {
+        return bookService.getAvailableBooksPage(cursor, size);
+    }
+
+    /**
+     * Streaming NDJSON de libros disponibles
+     * GET /api/books/available (Accept: application/x-ndjson)
+     */
+    @GetMapping(value = "/available", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BookResponse> streamAvailableBooks() {
+        return bookService.streamAvailableBooks();
+    }
+
     /**
      * Verificar disponibilidad de un libro
      * GET /api/books/{id}/availability
@@ -99,6 +199,33 @@ public class BookController {
                 .defaultIfEmpty(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Verificar disponibilidad de varios libros
+     * GET /api/books/availability?ids=1,2,3
+     */
+    @GetMapping("/availability")
+    public Mono<Map<Long, Boolean>> checkAvailabilityBatch(@RequestParam List<Long> ids) {
+        return bookService.checkAvailability(ids);
+    }
+
+    /**
+     * Feed en vivo de cambios de disponibilidad (todos los libros o los indicados)
+     * GET /api/books/availability/stream?ids=1,2,3
+     */
+    @GetMapping(value = "/availability/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<BookAvailabilityEvent>> streamAvailability(
+            @RequestParam(required = false, defaultValue = "") List<Long> ids) {
+        Flux<ServerSentEvent<BookAvailabilityEvent>> changes = availabilityNotifier.subscribe(ids)
+                .map(event -> ServerSentEvent.builder(event)
+                        .event("availability")
+                        .id(String.valueOf(event.bookId()))
+                        .build());
+        // Comentario periódico para que proxies y el gateway no cierren la conexión inactiva
+        Flux<ServerSentEvent<BookAvailabilityEvent>> heartbeat = Flux.interval(Duration.ofSeconds(15))
+                .map(tick -> ServerSentEvent.<BookAvailabilityEvent>builder().comment("keep-alive").build());
+        return Flux.merge(changes, heartbeat);
+    }
+
     /**
      * Crear un nuevo libro
      * POST /api/books
@@ -109,6 +236,25 @@ public class BookController {
         return bookService.createBook(request);
     }
 
+    /**
+     * Importación masiva en streaming desde NDJSON (una BookRequest por línea)
+     * POST /api/books/bulk (Content-Type: application/x-ndjson)
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+                 produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BulkImportResult> bulkImportNdjson(@RequestBody Flux<DataBuffer> body) {
+        return bookImportService.importNdjson(body);
+    }
+
+    /**
+     * Importación masiva en streaming desde CSV con cabecera
+     * POST /api/books/bulk (Content-Type: text/csv)
+     */
+    @PostMapping(value = "/bulk", consumes = "text/csv", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BulkImportResult> bulkImportCsv(@RequestBody Flux<DataBuffer> body) {
+        return bookImportService.importCsv(body);
+    }
+
     /**
      * Actualizar un libro
      * PUT /api/books/{id}
@@ -122,6 +268,17 @@ public class BookController {
                 .defaultIfEmpty(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Crear o actualizar metadatos de un libro por ISBN (sincronizaciones)
+     * PUT /api/books/isbn/{isbn}
+     */
+    @PutMapping("/isbn/{isbn}")
+    public Mono<BookResponse> upsertBookByIsbn(
+            @PathVariable String isbn,
+            @Valid @RequestBody BookRequest request) {
+        return bookService.upsertBookByIsbn(isbn, request);
+    }
+
     /**
      * Eliminar un libro
      * DELETE /api/books/{id}
@@ -135,25 +292,82 @@ public class BookController {
     }
 
     /**
-     * Decrementar copias disponibles (para préstamo)
+     * Decrementar copias disponibles (para préstamo). Con la cabecera
+     * Idempotency-Key los reintentos de la misma operación se aplican una vez.
      * POST /api/books/{id}/decrement
      */
     @PostMapping("/{id}/decrement")
-    public Mono<ResponseEntity<BookResponse>> decrementCopies(@PathVariable Long id) {
-        return bookService.decrementAvailableCopies(id)
+    public Mono<ResponseEntity<BookResponse>> decrementCopies(
+            @PathVariable Long id,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return bookService.decrementAvailableCopies(id, idempotencyKey)
                 .map(ResponseEntity::ok)
                 .defaultIfEmpty(ResponseEntity.notFound().build());
     }
 
     /**
-     * Incrementar copias disponibles (para devolución)
+     * Incrementar copias disponibles (para devolución). Con la cabecera
+     * Idempotency-Key los reintentos de la misma operación se aplican una vez.
      * POST /api/books/{id}/increment
      */
     @PostMapping("/{id}/increment")
-    public Mono<ResponseEntity<BookResponse>> incrementCopies(@PathVariable Long id) {
-        return bookService.incrementAvailableCopies(id)
+    public Mono<ResponseEntity<BookResponse>> incrementCopies(
+            @PathVariable Long id,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return bookService.incrementAvailableCopies(id, idempotencyKey)
                 .map(ResponseEntity::ok)
                 .defaultIfEmpty(ResponseEntity.notFound().build());
     }
-}
 
+    /**
+     * Decrementar copias de varios libros (préstamo múltiple). Con la cabecera
+     * Idempotency-Key cada libro se aplica una vez.
+     * POST /api/books/batch/decrement
+     */
+    @PostMapping("/batch/decrement")
+    public Flux<BookStockResult> decrementCopiesBatch(
+            @Valid @RequestBody BookBatchRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return bookService.decrementAvailableCopies(request.bookIds(), idempotencyKey);
+    }
+
+    /**
+     * Incrementar copias de varios libros (devolución múltiple). Con la cabecera
+     * Idempotency-Key cada libro se aplica una vez.
+     * POST /api/books/batch/increment
+     */
+    @PostMapping("/batch/increment")
+    public Flux<BookStockResult> incrementCopiesBatch(
+            @Valid @RequestBody BookBatchRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return bookService.incrementAvailableCopies(request.bookIds(), idempotencyKey);
+    }
+
+    /**
+     * Listar los títulos gestionados por el ledger en memoria
+     * GET /api/books/hot
+     */
+    @GetMapping("/hot")
+    public Flux<HotTitleStatus> getHotTitles() {
+        return hotTitleLedger.status();
+    }
+
+    /**
+     * Marcar un título como caliente (reservas desde el ledger en memoria)
+     * PUT /api/books/{id}/hot
+     */
+    @PutMapping("/{id}/hot")
+    public Mono<HotTitleStatus> markHot(@PathVariable Long id) {
+        return hotTitleLedger.markHot(id);
+    }
+
+    /**
+     * Retirar un título del ledger, escribiendo antes sus cambios pendientes
+     * DELETE /api/books/{id}/hot
+     */
+    @DeleteMapping("/{id}/hot")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> unmarkHot(@PathVariable Long id) {
+        return hotTitleLedger.unmarkHot(id);
+    }
+}
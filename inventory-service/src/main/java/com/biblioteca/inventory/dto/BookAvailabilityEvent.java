@@ -0,0 +1,11 @@
+package com.biblioteca.inventory.dto;
+
+/**
+ * DTO Record para un cambio de disponibilidad de un libro (feed SSE)
+ */
+public record BookAvailabilityEvent(
+    Long bookId,
+    Integer availableCopies,
+    Integer totalCopies,
+    String type
+) {}
@@ -0,0 +1,16 @@
+package com.biblioteca.inventory.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+/**
+ * DTO Record para operaciones de stock sobre varios libros en una sola llamada.
+ * Un ID repetido reserva/libera tantas copias como repeticiones tenga.
+ */
+public record BookBatchRequest(
+    @NotEmpty(message = "Debe indicar al menos un libro")
+    @Size(max = 100, message = "No se pueden procesar más de 100 libros por llamada")
+    List<@NotNull(message = "Los IDs de libro no pueden ser nulos") Long> bookIds
+) {}
@@ -0,0 +1,13 @@
+package com.biblioteca.inventory.dto;
+
+import java.util.List;
+
+/**
+ * DTO Record para una página de libros paginada por cursor.
+ * nextCursor es null cuando no hay más resultados.
+ */
+public record BookPage(
+    List<BookResponse> content,
+    Integer size,
+    String nextCursor
+) {}
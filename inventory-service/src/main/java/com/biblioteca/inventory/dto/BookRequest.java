@@ -3,25 +3,31 @@ package com.biblioteca.inventory.dto;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 
 /**
  * DTO Record para recibir solicitudes de creación/actualización de libros
  */
 public record BookRequest(
     @NotBlank(message = "El ISBN es obligatorio")
+    @Size(max = 20, message = "El ISBN no puede superar 20 caracteres")
     String isbn,
     
     @NotBlank(message = "El título es obligatorio")
+    @Size(max = 255, message = "El título no puede superar 255 caracteres")
     String title,
     
     @NotBlank(message = "El autor es obligatorio")
+    @Size(max = 255, message = "El autor no puede superar 255 caracteres")
     String author,
     
+    @Size(max = 255, message = "La editorial no puede superar 255 caracteres")
     String publisher,
     
     @Min(value = 1000, message = "El año de publicación debe ser válido")
     Integer publicationYear,
     
+    @Size(max = 100, message = "La categoría no puede superar 100 caracteres")
     String category,
     
     @NotNull(message = "El total de copias es obligatorio")
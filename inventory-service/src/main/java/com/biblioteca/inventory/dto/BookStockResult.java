@@ -0,0 +1,22 @@
+package com.biblioteca.inventory.dto;
+
+import com.biblioteca.inventory.model.Book;
+
+/**
+ * DTO Record con el resultado de una operación de stock para un libro
+ */
+public record BookStockResult(
+    Long bookId,
+    Integer quantity,
+    Boolean success,
+    Integer availableCopies,
+    String message
+) {
+    public static BookStockResult applied(Book book, int quantity) {
+        return new BookStockResult(book.id(), quantity, true, book.availableCopies(), null);
+    }
+
+    public static BookStockResult rejected(Long bookId, int quantity, String message) {
+        return new BookStockResult(bookId, quantity, false, null, message);
+    }
+}
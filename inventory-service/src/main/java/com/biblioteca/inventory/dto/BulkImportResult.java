@@ -0,0 +1,21 @@
+package com.biblioteca.inventory.dto;
+
+/**
+ * DTO Record con el resultado de una fila de la importación masiva.
+ * La última línea del stream es un resumen con estado SUMMARY.
+ */
+public record BulkImportResult(
+    Long line,
+    String isbn,
+    Status status,
+    Long id,
+    String message
+) {
+    public enum Status {
+        CREATED,     // Libro insertado
+        DUPLICATE,   // Ya existía un libro con ese ISBN
+        INVALID,     // La fila no superó la validación
+        FAILED,      // Error al escribir el lote
+        SUMMARY      // Resumen final de la importación
+    }
+}
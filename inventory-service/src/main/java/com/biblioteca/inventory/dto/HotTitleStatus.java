@@ -0,0 +1,13 @@
+package com.biblioteca.inventory.dto;
+
+/**
+ * DTO Record con el estado de un título gestionado por el ledger en memoria
+ */
+public record HotTitleStatus(
+    Long bookId,
+    Integer totalCopies,
+    Long availableCopies,
+    Long lentCopies,
+    Long pendingDelta
+) {
+}
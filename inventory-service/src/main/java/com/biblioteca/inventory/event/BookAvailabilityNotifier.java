@@ -0,0 +1,133 @@
+package com.biblioteca.inventory.event;
+
+import com.biblioteca.inventory.dto.BookAvailabilityEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.postgresql.api.Notification;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.postgresql.api.PostgresqlResult;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Difusión de cambios de disponibilidad de libros a los suscriptores SSE.
+ *
+ * Los cambios llegan por LISTEN/NOTIFY de PostgreSQL (trigger
+ * trg_books_availability), de modo que las escrituras hechas por cualquier
+ * instancia alcanzan a todos los suscriptores y solo se publican tras el commit.
+ * Cada suscriptor tiene un buffer acotado: si no consume a tiempo se descartan
+ * sus eventos más antiguos sin afectar al resto.
+ */
+@Component
+@Slf4j
+public class BookAvailabilityNotifier implements DisposableBean {
+
+    static final String CHANNEL = "book_availability";
+
+    private final ConnectionFactory connectionFactory;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int subscriberBufferSize;
+    private final Sinks.Many<BookAvailabilityEvent> sink = Sinks.many().multicast().directBestEffort();
+    private Disposable listener;
+
+    public BookAvailabilityNotifier(ConnectionFactory connectionFactory,
+                                    ObjectMapper objectMapper,
+                                    @Value("${inventory.availability-feed.enabled:true}") boolean enabled,
+                                    @Value("${inventory.availability-feed.subscriber-buffer-size:256}") int subscriberBufferSize) {
+        this.connectionFactory = connectionFactory;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.subscriberBufferSize = subscriberBufferSize;
+    }
+
+    /**
+     * Abrir la conexión dedicada de LISTEN una vez arrancada la aplicación.
+     * Si la conexión se pierde se reintenta con backoff exponencial.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Feed de disponibilidad deshabilitado");
+            return;
+        }
+        listener = Flux.usingWhen(connectionFactory.create(), this::listen, Connection::close)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> log.warn("Reconectando LISTEN {}: {}",
+                                CHANNEL, signal.failure().getMessage())))
+                .subscribe(sink::tryEmitNext);
+        log.info("Escuchando cambios de disponibilidad en el canal {}", CHANNEL);
+    }
+
+    /**
+     * Suscribirse a los cambios de todos los libros (bookIds vacío) o de un conjunto
+     */
+    public Flux<BookAvailabilityEvent> subscribe(Collection<Long> bookIds) {
+        Set<Long> filter = Set.copyOf(bookIds);
+        Flux<BookAvailabilityEvent> events = sink.asFlux();
+        if (!filter.isEmpty()) {
+            events = events.filter(event -> filter.contains(event.bookId()));
+        }
+        return events.onBackpressureBuffer(subscriberBufferSize,
+                dropped -> log.debug("Suscriptor lento, evento descartado: {}", dropped),
+                BufferOverflowStrategy.DROP_OLDEST);
+    }
+
+    private Flux<BookAvailabilityEvent> listen(Connection connection) {
+        PostgresqlConnection postgres = unwrap(connection);
+        return postgres.createStatement("LISTEN " + CHANNEL)
+                .execute()
+                .flatMap(PostgresqlResult::getRowsUpdated)
+                .thenMany(postgres.getNotifications())
+                .mapNotNull(this::parse);
+    }
+
+    private BookAvailabilityEvent parse(Notification notification) {
+        try {
+            return objectMapper.readValue(notification.getParameter(), BookAvailabilityEvent.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Notificación de disponibilidad inválida: {}", notification.getParameter());
+            return null;
+        }
+    }
+
+    /**
+     * La conexión del pool es un envoltorio: se desenvuelve hasta llegar a la
+     * conexión nativa de PostgreSQL, que es la que expone las notificaciones
+     */
+    private static PostgresqlConnection unwrap(Connection connection) {
+        Object current = connection;
+        while (!(current instanceof PostgresqlConnection) && current instanceof Wrapped<?> wrapped) {
+            current = wrapped.unwrap();
+        }
+        if (current instanceof PostgresqlConnection postgres) {
+            return postgres;
+        }
+        throw new IllegalStateException("LISTEN/NOTIFY requiere una conexión PostgreSQL");
+    }
+
+    @Override
+    public void destroy() {
+        if (listener != null) {
+            listener.dispose();
+        }
+        sink.tryEmitComplete();
+    }
+}
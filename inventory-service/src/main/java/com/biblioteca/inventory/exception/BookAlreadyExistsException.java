@@ -0,0 +1,11 @@
+package com.biblioteca.inventory.exception;
+
+/**
+ * Excepción lanzada al intentar crear un libro con un ISBN ya registrado
+ */
+public class BookAlreadyExistsException extends RuntimeException {
+
+    public BookAlreadyExistsException(String isbn) {
+        super("Ya existe un libro con ISBN: " + isbn);
+    }
+}
@@ -0,0 +1,15 @@
+package com.biblioteca.inventory.exception;
+
+/**
+ * Excepción lanzada cuando no existe el libro solicitado
+ */
+public class BookNotFoundException extends RuntimeException {
+
+    public BookNotFoundException(String message) {
+        super(message);
+    }
+
+    public BookNotFoundException(Long id) {
+        this("Libro no encontrado con ID: " + id);
+    }
+}
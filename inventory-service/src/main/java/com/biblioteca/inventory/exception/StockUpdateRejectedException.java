@@ -0,0 +1,12 @@
+package com.biblioteca.inventory.exception;
+
+/**
+ * Excepción lanzada cuando un cambio de stock no se puede aplicar (sin copias
+ * disponibles o ya están todas devueltas). El cliente no debe reintentarlo.
+ */
+public class StockUpdateRejectedException extends RuntimeException {
+
+    public StockUpdateRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,472 @@
+package com.biblioteca.inventory.ledger;
+
+import com.biblioteca.inventory.cache.BookCache;
+import com.biblioteca.inventory.dto.BookResponse;
+import com.biblioteca.inventory.dto.HotTitleStatus;
+import com.biblioteca.inventory.exception.BookNotFoundException;
+import com.biblioteca.inventory.model.AppliedDelta;
+import com.biblioteca.inventory.model.Book;
+import com.biblioteca.inventory.repository.BookRepository;
+import com.biblioteca.inventory.repository.StockOperationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * Ledger de reservas en memoria para títulos "calientes" (p. ej. manuales al
+ * inicio del semestre), que de otro modo serializarían todas las peticiones
+ * sobre la misma fila de books.
+ *
+ * Por cada título se mantienen dos contadores repartidos (copias disponibles y
+ * prestadas): conceder una copia resta de disponibles y suma a prestadas, y
+ * devolverla hace lo contrario, así que ninguno baja de cero. El cambio neto se
+ * acumula y se escribe en books en lotes periódicos con una única sentencia.
+ *
+ * El ledger supone que esta instancia es la única que modifica el stock de los
+ * títulos calientes. Se reconstruye desde la base de datos al arrancar y vacía
+ * los cambios pendientes al detenerse; si el proceso termina de forma abrupta
+ * se pierden como mucho los cambios de un intervalo de escritura. Las
+ * operaciones con clave de idempotencia guardan la clave junto a su cambio y
+ * ambos se escriben en la misma sentencia: tras una caída se pierden los dos y
+ * el reintento del cliente se vuelve a aplicar.
+ *
+ * Si otra vía ha cambiado el stock, la escritura acota el resultado a
+ * [0, total_copies]; cada recorte se registra como error y en la métrica
+ * inventory.ledger.clamped, porque significa que se concedieron copias que no
+ * había (o se devolvieron de más).
+ */
+@Component
+@Slf4j
+public class HotTitleLedger implements DisposableBean {
+
+    private static final Duration FLUSH_TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * Resultado de una operación sobre el ledger
+     */
+    public enum Grant {
+        GRANTED,
+        DENIED,
+        // El título no está en el ledger: la operación debe ir a la base de datos
+        UNTRACKED,
+        // La clave de idempotencia ya se aplicó (pendiente de escribir o en stock_operations)
+        ALREADY_APPLIED
+    }
+
+    private final BookRepository bookRepository;
+    private final StockOperationRepository stockOperationRepository;
+    private final BookCache bookCache;
+    private final boolean enabled;
+    private final List<Long> configuredIds;
+    private final int stripes;
+    private final Map<Long, HotTitle> titles = new ConcurrentHashMap<>();
+    // Claves concedidas por el ledger que aún no están escritas en stock_operations
+    private final Set<String> pendingKeys = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private final Counter clamped;
+
+    public HotTitleLedger(BookRepository bookRepository,
+                          StockOperationRepository stockOperationRepository,
+                          BookCache bookCache,
+                          MeterRegistry meterRegistry,
+                          @Value("${inventory.ledger.enabled:false}") boolean enabled,
+                          @Value("${inventory.ledger.hot-book-ids:}") List<Long> configuredIds,
+                          @Value("${inventory.ledger.stripes:0}") int stripes) {
+        this.bookRepository = bookRepository;
+        this.stockOperationRepository = stockOperationRepository;
+        this.bookCache = bookCache;
+        this.enabled = enabled;
+        this.configuredIds = configuredIds;
+        this.stripes = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+        this.clamped = Counter.builder("inventory.ledger.clamped")
+                .description("Escrituras del ledger acotadas a [0, total_copies]")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reconstruir los títulos configurados a partir de la base de datos
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || configuredIds.isEmpty()) {
+            return;
+        }
+        Flux.fromIterable(configuredIds)
+                .concatMap(this::markHot)
+                .onErrorContinue((error, id) -> log.warn("No se pudo cargar el título caliente {}: {}", id, error.getMessage()))
+                .blockLast(FLUSH_TIMEOUT);
+        log.info("Ledger de títulos calientes reconstruido: {} títulos", titles.size());
+    }
+
+    public boolean isHot(Long id) {
+        return titles.containsKey(id);
+    }
+
+    /**
+     * Conceder quantity copias de un título, todas o ninguna
+     */
+    public Grant reserve(Long id, int quantity) {
+        HotTitle title = titles.get(id);
+        if (title == null) {
+            return Grant.UNTRACKED;
+        }
+        return move(title.available, title.lent, quantity, -quantity, title.pendingDelta::add);
+    }
+
+    /**
+     * Conceder quantity copias como máximo una vez por clave de idempotencia
+     */
+    public Mono<Grant> reserve(Long id, int quantity, String idempotencyKey) {
+        return applyOnce(id, idempotencyKey, "DECREMENT",
+                title -> move(title.available, title.lent, quantity, -quantity,
+                        delta -> title.keyed.add(new KeyedDelta(idempotencyKey, "DECREMENT", delta))));
+    }
+
+    /**
+     * Devolver quantity copias de un título sin superar su total, todas o ninguna
+     */
+    public Grant release(Long id, int quantity) {
+        HotTitle title = titles.get(id);
+        if (title == null) {
+            return Grant.UNTRACKED;
+        }
+        return move(title.lent, title.available, quantity, quantity, title.pendingDelta::add);
+    }
+
+    /**
+     * Devolver quantity copias como máximo una vez por clave de idempotencia
+     */
+    public Mono<Grant> release(Long id, int quantity, String idempotencyKey) {
+        return applyOnce(id, idempotencyKey, "INCREMENT",
+                title -> move(title.lent, title.available, quantity, quantity,
+                        delta -> title.keyed.add(new KeyedDelta(idempotencyKey, "INCREMENT", delta))));
+    }
+
+    /**
+     * La clave se reserva en memoria antes de comprobar stock_operations, así
+     * que dos peticiones con la misma clave no se conceden las dos. Si la
+     * operación no llega a concederse la clave se libera para un reintento.
+     */
+    private Mono<Grant> applyOnce(Long id, String idempotencyKey, String operation, Function<HotTitle, Grant> grant) {
+        return Mono.defer(() -> {
+            if (!titles.containsKey(id)) {
+                return Mono.just(Grant.UNTRACKED);
+            }
+            if (!pendingKeys.add(idempotencyKey)) {
+                return Mono.just(Grant.ALREADY_APPLIED);
+            }
+            AtomicBoolean decided = new AtomicBoolean();
+            return stockOperationRepository.existsById(idempotencyKey)
+                    .map(exists -> {
+                        if (!decided.compareAndSet(false, true)) {
+                            return Grant.DENIED;
+                        }
+                        HotTitle title = titles.get(id);
+                        Grant result = exists ? Grant.ALREADY_APPLIED
+                                : title == null ? Grant.UNTRACKED
+                                : grant.apply(title);
+                        if (result != Grant.GRANTED) {
+                            pendingKeys.remove(idempotencyKey);
+                        }
+                        log.debug("Ledger: operación {} {} sobre el título {}: {}", operation, idempotencyKey, id, result);
+                        return result;
+                    })
+                    .doOnError(error -> pendingKeys.remove(idempotencyKey))
+                    .doOnCancel(() -> {
+                        if (decided.compareAndSet(false, true)) {
+                            pendingKeys.remove(idempotencyKey);
+                        }
+                    });
+        });
+    }
+
+    private Grant move(StripedCounter from, StripedCounter to, int quantity, int delta, IntConsumer pending) {
+        for (int acquired = 0; acquired < quantity; acquired++) {
+            if (!from.tryAcquire()) {
+                // Deshacer lo adquirido para no conceder una parte de la petición
+                for (int i = 0; i < acquired; i++) {
+                    from.release();
+                }
+                return Grant.DENIED;
+            }
+        }
+        for (int i = 0; i < quantity; i++) {
+            to.release();
+        }
+        pending.accept(delta);
+        return Grant.GRANTED;
+    }
+
+    /**
+     * Copias disponibles según el ledger, o null si el título no está en él
+     */
+    public Integer availableCopies(Long id) {
+        HotTitle title = titles.get(id);
+        return title == null ? null : (int) title.available.sum();
+    }
+
+    /**
+     * Sustituir las copias disponibles de la respuesta por las del ledger, que
+     * van por delante de la base de datos hasta la siguiente escritura
+     */
+    public BookResponse overlay(BookResponse book) {
+        Integer available = availableCopies(book.id());
+        if (available == null) {
+            return book;
+        }
+        return new BookResponse(
+            book.id(),
+            book.isbn(),
+            book.title(),
+            book.author(),
+            book.publisher(),
+            book.publicationYear(),
+            book.category(),
+            book.totalCopies(),
+            available,
+            book.description(),
+            available > 0
+        );
+    }
+
+    /**
+     * Marcar un título como caliente cargando su stock actual. Si ya lo era se
+     * conserva el estado en memoria.
+     */
+    public Mono<HotTitleStatus> markHot(Long id) {
+        if (!enabled) {
+            return Mono.error(new IllegalStateException("El ledger de títulos calientes está deshabilitado"));
+        }
+        return bookRepository.findById(id)
+                .switchIfEmpty(Mono.error(new BookNotFoundException(id)))
+                .map(book -> titles.computeIfAbsent(id, key -> {
+                    log.info("Título {} gestionado por el ledger: {} de {} copias disponibles",
+                            id, book.availableCopies(), book.totalCopies());
+                    return new HotTitle(book, stripes);
+                }))
+                .map(HotTitle::status);
+    }
+
+    /**
+     * Dejar de gestionar un título, escribiendo antes su cambio pendiente. Se
+     * escribe primero con el título aún en el ledger y, ya retirado, lo que se
+     * concediera entretanto. Si una escritura falla el título sigue (o vuelve)
+     * en el ledger con sus cambios y el error llega a quien lo retiraba.
+     */
+    public Mono<Void> unmarkHot(Long id) {
+        return Mono.defer(() -> {
+            HotTitle title = titles.get(id);
+            if (title == null) {
+                return Mono.empty();
+            }
+            return flush(List.of(title))
+                    .then(Mono.defer(() -> {
+                        if (!titles.remove(id, title)) {
+                            // Recargado mientras tanto: retirar el título nuevo
+                            return unmarkHot(id);
+                        }
+                        log.info("Título {} retirado del ledger", id);
+                        return flush(List.of(title)).then();
+                    }));
+        });
+    }
+
+    /**
+     * Recargar un título tras una escritura directa de sus copias (PUT): el
+     * valor guardado sustituye al del ledger y se descarta el cambio pendiente.
+     * Las claves pendientes se conservan, sin cambio, para que sigan constando
+     * como aplicadas.
+     */
+    public void reload(Book book) {
+        titles.computeIfPresent(book.id(), (id, title) -> {
+            HotTitle reloaded = new HotTitle(book, stripes);
+            for (KeyedDelta change; (change = title.keyed.poll()) != null; ) {
+                reloaded.keyed.add(new KeyedDelta(change.idempotencyKey(), change.operation(), 0));
+            }
+            return reloaded;
+        });
+    }
+
+    /**
+     * Olvidar un título eliminado
+     */
+    public void forget(Long id) {
+        HotTitle title = titles.remove(id);
+        if (title != null) {
+            title.deleted = true;
+            title.keyed.forEach(change -> pendingKeys.remove(change.idempotencyKey()));
+        }
+    }
+
+    public Flux<HotTitleStatus> status() {
+        return Flux.fromStream(titles.values().stream()
+                .map(HotTitle::status)
+                .sorted(Comparator.comparing(HotTitleStatus::bookId)));
+    }
+
+    /**
+     * Escritura periódica de los cambios netos acumulados. No bloquea el hilo
+     * del planificador: si la escritura anterior sigue en curso, este intervalo
+     * se salta y los cambios esperan al siguiente.
+     */
+    @Scheduled(fixedDelayString = "${inventory.ledger.flush-interval-ms:200}")
+    public void scheduledFlush() {
+        if (titles.isEmpty() || !flushing.compareAndSet(false, true)) {
+            return;
+        }
+        flush(List.copyOf(titles.values()))
+                .doFinally(signal -> flushing.set(false))
+                // flush ya registra el error y devuelve los cambios a su título
+                .subscribe(count -> { }, error -> { });
+    }
+
+    /**
+     * Aplicar el cambio neto de cada título con un solo UPDATE, que registra a
+     * la vez las claves de idempotencia de las operaciones incluidas. Si la
+     * escritura falla o tarda más de FLUSH_TIMEOUT, los cambios y sus claves
+     * vuelven a quedar pendientes y se propaga el error. Repetir los cambios con
+     * clave es seguro (la sentencia solo cuenta las claves nuevas); los que no
+     * tienen clave se aplicarían dos veces si la sentencia llegó a confirmarse
+     * después del tiempo máximo.
+     */
+    private Mono<Long> flush(List<HotTitle> pending) {
+        List<HotTitle> changed = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        List<Integer> deltas = new ArrayList<>();
+        List<List<KeyedDelta>> keyedChanges = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        List<Long> keyBookIds = new ArrayList<>();
+        List<String> operations = new ArrayList<>();
+        List<Integer> keyDeltas = new ArrayList<>();
+        for (HotTitle title : pending) {
+            long unkeyed = title.pendingDelta.sumThenReset();
+            List<KeyedDelta> keyed = new ArrayList<>();
+            for (KeyedDelta change; (change = title.keyed.poll()) != null; ) {
+                keyed.add(change);
+                keys.add(change.idempotencyKey());
+                keyBookIds.add(title.bookId);
+                operations.add(change.operation());
+                keyDeltas.add(change.delta());
+            }
+            if (unkeyed != 0 || !keyed.isEmpty()) {
+                changed.add(title);
+                ids.add(title.bookId);
+                deltas.add((int) unkeyed);
+                keyedChanges.add(keyed);
+            }
+        }
+        if (changed.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return bookRepository.applyAvailabilityDeltas(ids.toArray(Long[]::new), deltas.toArray(Integer[]::new),
+                        keys.toArray(String[]::new), keyBookIds.toArray(Long[]::new), operations.toArray(String[]::new),
+                        keyDeltas.toArray(Integer[]::new))
+                .collectList()
+                .timeout(FLUSH_TIMEOUT)
+                .doOnNext(applied -> {
+                    applied.stream().filter(AppliedDelta::clamped).forEach(row -> {
+                        clamped.increment();
+                        log.error("Ledger: el título {} quedaba con {} copias disponibles y se ha acotado a {}; "
+                                + "el stock cambió fuera del ledger", row.id(), row.requestedCopies(), row.availableCopies());
+                    });
+                    bookCache.invalidateAll(applied.stream().map(AppliedDelta::id).toList());
+                    keys.forEach(pendingKeys::remove);
+                })
+                .map(applied -> (long) applied.size())
+                .doOnNext(count -> log.debug("Ledger: {} títulos y {} claves escritos", count, keys.size()))
+                .onErrorResume(error -> {
+                    log.error("Error al escribir el ledger de títulos calientes: {}", error.getMessage(), error);
+                    for (int i = 0; i < changed.size(); i++) {
+                        requeue(changed.get(i), deltas.get(i), keyedChanges.get(i));
+                    }
+                    return Mono.error(error);
+                });
+    }
+
+    /**
+     * Devolver a su título los cambios de una escritura fallida. Si se retiró
+     * del ledger mientras tanto vuelve a él para no perderlos, salvo que el
+     * libro se haya eliminado; si se recargó, las claves pasan al título nuevo
+     * sin cambio, como en reload.
+     */
+    private void requeue(HotTitle title, int unkeyed, List<KeyedDelta> keyed) {
+        HotTitle current = titles.computeIfAbsent(title.bookId, id -> {
+            if (title.deleted) {
+                return null;
+            }
+            log.warn("Título {} devuelto al ledger: su escritura pendiente ha fallado", id);
+            return title;
+        });
+        if (current == null) {
+            keyed.forEach(change -> pendingKeys.remove(change.idempotencyKey()));
+        } else if (current == title) {
+            title.pendingDelta.add(unkeyed);
+            title.keyed.addAll(keyed);
+        } else {
+            keyed.forEach(change -> current.keyed.add(new KeyedDelta(change.idempotencyKey(), change.operation(), 0)));
+        }
+    }
+
+    /**
+     * Vaciar los cambios pendientes al detener la aplicación
+     */
+    @Override
+    public void destroy() {
+        if (!titles.isEmpty()) {
+            try {
+                flush(List.copyOf(titles.values())).block(FLUSH_TIMEOUT);
+            } catch (RuntimeException e) {
+                // Ya registrado en flush: los cambios de este intervalo se pierden
+            }
+        }
+    }
+
+    private static final class HotTitle {
+        private final long bookId;
+        private final int totalCopies;
+        private final StripedCounter available;
+        private final StripedCounter lent;
+        private final LongAdder pendingDelta = new LongAdder();
+        // Cambios con clave de idempotencia: se escriben junto con su clave
+        private final Queue<KeyedDelta> keyed = new ConcurrentLinkedQueue<>();
+        // Libro eliminado: sus cambios ya no vuelven al ledger
+        private volatile boolean deleted;
+
+        private HotTitle(Book book, int stripes) {
+            this.bookId = book.id();
+            this.totalCopies = book.totalCopies();
+            this.available = new StripedCounter(stripes, book.availableCopies());
+            this.lent = new StripedCounter(stripes, book.totalCopies() - book.availableCopies());
+        }
+
+        private HotTitleStatus status() {
+            long keyedDelta = keyed.stream().mapToLong(KeyedDelta::delta).sum();
+            return new HotTitleStatus(bookId, totalCopies, available.sum(), lent.sum(), pendingDelta.sum() + keyedDelta);
+        }
+    }
+
+    private record KeyedDelta(String idempotencyKey, String operation, int delta) {
+    }
+}
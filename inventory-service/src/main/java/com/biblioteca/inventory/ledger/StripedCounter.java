@@ -0,0 +1,77 @@
+package com.biblioteca.inventory.ledger;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Contador no negativo repartido en varias celdas para reducir la contención.
+ *
+ * Cada hilo empieza por su propia celda; si está vacía recorre las demás. Toda
+ * resta se hace con compareAndSet sobre una celda con saldo positivo, de modo
+ * que ninguna celda (ni el total) baja nunca de cero aunque muchos hilos
+ * adquieran a la vez. Las celdas se separan para no compartir línea de caché.
+ */
+final class StripedCounter {
+
+    // 16 longs = 128 bytes entre celdas consecutivas
+    private static final int PADDING = 16;
+
+    private final AtomicLongArray cells;
+    private final int stripes;
+
+    StripedCounter(int stripes, long initialValue) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("El número de celdas debe ser al menos 1");
+        }
+        if (initialValue < 0) {
+            throw new IllegalArgumentException("El valor inicial no puede ser negativo");
+        }
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * PADDING);
+        // Reparto inicial uniforme; el resto va a las primeras celdas
+        for (int i = 0; i < stripes; i++) {
+            cells.set(i * PADDING, initialValue / stripes + (i < initialValue % stripes ? 1 : 0));
+        }
+    }
+
+    /**
+     * Restar una unidad si el total es positivo. Devuelve false solo si todas
+     * las celdas se vieron a cero durante el recorrido.
+     */
+    boolean tryAcquire() {
+        int start = probe();
+        for (int i = 0; i < stripes; i++) {
+            int index = ((start + i) % stripes) * PADDING;
+            long current;
+            while ((current = cells.get(index)) > 0) {
+                if (cells.compareAndSet(index, current, current - 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sumar una unidad en la celda del hilo actual
+     */
+    void release() {
+        cells.getAndIncrement(probe() * PADDING);
+    }
+
+    /**
+     * Total aproximado: exacto si no hay operaciones en curso
+     */
+    long sum() {
+        long total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += cells.get(i * PADDING);
+        }
+        return total;
+    }
+
+    private int probe() {
+        long id = Thread.currentThread().getId();
+        // Mezcla de bits para que IDs consecutivos caigan en celdas distintas
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 33) % stripes;
+    }
+}
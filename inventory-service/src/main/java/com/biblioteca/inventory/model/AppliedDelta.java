@@ -0,0 +1,20 @@
+package com.biblioteca.inventory.model;
+
+/**
+ * Proyección con el resultado de aplicar un cambio neto del ledger a un libro:
+ * las copias que quedaron y las que pedía el cambio antes de acotarlo a
+ * [0, total_copies]
+ */
+public record AppliedDelta(
+    Long id,
+    Integer availableCopies,
+    Integer requestedCopies
+) {
+
+    /**
+     * Si el cambio no cabía y se perdió una parte
+     */
+    public boolean clamped() {
+        return !availableCopies.equals(requestedCopies);
+    }
+}
@@ -0,0 +1,20 @@
+package com.biblioteca.inventory.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Record que representa una operación de stock ya aplicada, identificada por
+ * la clave de idempotencia enviada por el cliente
+ */
+@Table("stock_operations")
+public record StockOperation(
+    @Id @Column("idempotency_key") String idempotencyKey,
+    @Column("book_id") Long bookId,
+    String operation,
+    @Column("created_at") LocalDateTime createdAt
+) {
+}
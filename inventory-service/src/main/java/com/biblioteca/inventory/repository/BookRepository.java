@@ -1,5 +1,6 @@
 package com.biblioteca.inventory.repository;
 
+import com.biblioteca.inventory.model.AppliedDelta;
 import com.biblioteca.inventory.model.Book;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
@@ -19,15 +20,59 @@ public interface BookRepository extends R2dbcRepository<Book, Long> {
     Mono<Book> findByIsbn(String isbn);
     
     /**
-     * Buscar libros por autor
+     * Insertar un libro si no existe otro con el mismo ISBN.
+     * Vacío si el ISBN ya existe.
      */
+    @Query("INSERT INTO books (isbn, title, author, publisher, publication_year, category, " +
+           "total_copies, available_copies, description) " +
+           "VALUES (:isbn, :title, :author, :publisher, :publicationYear, :category, " +
+           ":totalCopies, :availableCopies, :description) " +
+           "ON CONFLICT (isbn) DO NOTHING RETURNING *")
+    Mono<Book> insertIfAbsent(String isbn, String title, String author, String publisher,
+                              Integer publicationYear, String category, Integer totalCopies,
+                              Integer availableCopies, String description);
+    
+    /**
+     * Insertar un libro o, si el ISBN ya existe, actualizar solo sus metadatos
+     * (las copias existentes no se tocan)
+     */
+    @Query("INSERT INTO books (isbn, title, author, publisher, publication_year, category, " +
+           "total_copies, available_copies, description) " +
+           "VALUES (:isbn, :title, :author, :publisher, :publicationYear, :category, " +
+           ":totalCopies, :availableCopies, :description) " +
+           "ON CONFLICT (isbn) DO UPDATE SET title = EXCLUDED.title, author = EXCLUDED.author, " +
+           "publisher = EXCLUDED.publisher, publication_year = EXCLUDED.publication_year, " +
+           "category = EXCLUDED.category, description = EXCLUDED.description, " +
+           "updated_at = CURRENT_TIMESTAMP RETURNING *")
+    Mono<Book> upsertMetadata(String isbn, String title, String author, String publisher,
+                              Integer publicationYear, String category, Integer totalCopies,
+                              Integer availableCopies, String description);
+    
+    /**
+     * Buscar libros por autor (ILIKE servido por idx_books_author_trgm)
+     */
+    @Query("SELECT * FROM books WHERE author ILIKE '%' || :author || '%'")
     Flux<Book> findByAuthorContainingIgnoreCase(String author);
     
     /**
-     * Buscar libros por título
+     * Buscar libros por título (ILIKE servido por idx_books_title_trgm)
      */
+    @Query("SELECT * FROM books WHERE title ILIKE '%' || :title || '%'")
     Flux<Book> findByTitleContainingIgnoreCase(String title);
     
+    /**
+     * Búsqueda ordenada por relevancia: texto completo con prefijos sobre
+     * título, autor, categoría y descripción, más similitud de trigramas
+     * sobre título y autor para tolerar errores de escritura
+     */
+    @Query("SELECT * FROM books " +
+           "WHERE search_vector @@ to_tsquery('simple', :tsQuery) " +
+           "OR :text <% title OR :text <% author " +
+           "ORDER BY ts_rank(search_vector, to_tsquery('simple', :tsQuery)) " +
+           "+ GREATEST(word_similarity(:text, title), word_similarity(:text, author)) DESC, id " +
+           "LIMIT :limit")
+    Flux<Book> search(String text, String tsQuery, int limit);
+    
     /**
      * Buscar libros por categoría
      */
@@ -39,16 +84,118 @@ public interface BookRepository extends R2dbcRepository<Book, Long> {
     @Query("SELECT * FROM books WHERE available_copies > 0")
     Flux<Book> findAvailableBooks();
     
+    /**
+     * Página de libros a partir de un ID (paginación por clave)
+     */
+    @Query("SELECT * FROM books WHERE id > :afterId ORDER BY id LIMIT :limit")
+    Flux<Book> findPage(Long afterId, int limit);
+    
+    /**
+     * Página de libros disponibles a partir de un ID
+     */
+    @Query("SELECT * FROM books WHERE available_copies > 0 AND id > :afterId ORDER BY id LIMIT :limit")
+    Flux<Book> findAvailablePage(Long afterId, int limit);
+    
+    /**
+     * Página de libros de una categoría a partir de un ID
+     */
+    @Query("SELECT * FROM books WHERE category = :category AND id > :afterId ORDER BY id LIMIT :limit")
+    Flux<Book> findByCategoryPage(String category, Long afterId, int limit);
+    
     /**
      * Verificar si un libro está disponible
      */
     @Query("SELECT CASE WHEN available_copies > 0 THEN true ELSE false END FROM books WHERE id = :id")
     Mono<Boolean> isBookAvailable(Long id);
     
+    /**
+     * Buscar varios libros por ID en una sola consulta
+     */
+    @Query("SELECT * FROM books WHERE id = ANY(:ids)")
+    Flux<Book> findByIdIn(Long[] ids);
+    
     /**
      * Actualizar copias disponibles
      */
     @Query("UPDATE books SET available_copies = :availableCopies WHERE id = :id")
     Mono<Integer> updateAvailableCopies(Long id, Integer availableCopies);
+    
+    /**
+     * Reservar una copia de forma atómica: la verificación y el decremento se
+     * hacen en una sola sentencia, por lo que no hay actualizaciones perdidas
+     * ni sobreventa con préstamos concurrentes. Vacío si no hay copias o no existe.
+     */
+    @Query("UPDATE books SET available_copies = available_copies - 1, updated_at = CURRENT_TIMESTAMP " +
+           "WHERE id = :id AND available_copies > 0 RETURNING *")
+    Mono<Book> reserveCopy(Long id);
+    
+    /**
+     * Liberar una copia de forma atómica sin superar el total de copias.
+     * Vacío si ya están todas disponibles o no existe.
+     */
+    @Query("UPDATE books SET available_copies = available_copies + 1, updated_at = CURRENT_TIMESTAMP " +
+           "WHERE id = :id AND available_copies < total_copies RETURNING *")
+    Mono<Book> releaseCopy(Long id);
+    
+    /**
+     * Reservar copias de varios libros en una sola sentencia. Cada libro solo se
+     * actualiza si tiene tantas copias como veces aparece su ID; devuelve las
+     * filas actualizadas.
+     */
+    @Query("UPDATE books b SET available_copies = b.available_copies - r.quantity, updated_at = CURRENT_TIMESTAMP " +
+           "FROM (SELECT id, COUNT(*) AS quantity FROM unnest(:ids) AS t(id) GROUP BY id) r " +
+           "WHERE b.id = r.id AND b.available_copies >= r.quantity RETURNING b.*")
+    Flux<Book> reserveCopies(Long[] ids);
+    
+    /**
+     * Liberar copias de varios libros en una sola sentencia sin superar el total
+     * de copias; devuelve las filas actualizadas.
+     */
+    @Query("UPDATE books b SET available_copies = b.available_copies + r.quantity, updated_at = CURRENT_TIMESTAMP " +
+           "FROM (SELECT id, COUNT(*) AS quantity FROM unnest(:ids) AS t(id) GROUP BY id) r " +
+           "WHERE b.id = r.id AND b.available_copies + r.quantity <= b.total_copies RETURNING b.*")
+    Flux<Book> releaseCopies(Long[] ids);
+    
+    /**
+     * Aplicar cambios netos de copias disponibles a varios libros en una sola
+     * sentencia (escritura del ledger de títulos calientes), registrando a la
+     * vez las claves de idempotencia de las operaciones que incluyen. El cambio
+     * de una clave solo cuenta si la clave se registra ahora, así que repetir
+     * la escritura no lo aplica dos veces. El resultado se acota a
+     * [0, total_copies] por si el stock cambió por otra vía; cada fila devuelve
+     * también el valor pedido (calculado con la fila ya bloqueada) para que
+     * quien escribe detecte el recorte.
+     */
+    @Query("WITH registered AS (" +
+           "INSERT INTO stock_operations (idempotency_key, book_id, operation) " +
+           "SELECT * FROM unnest(:keys, :keyBookIds, :operations) " +
+           "ON CONFLICT (idempotency_key) DO NOTHING RETURNING idempotency_key), " +
+           "keyed AS (" +
+           "SELECT k.book_id, SUM(k.delta) AS delta " +
+           "FROM unnest(:keys, :keyBookIds, :keyDeltas) AS k(idempotency_key, book_id, delta) " +
+           "JOIN registered r ON r.idempotency_key = k.idempotency_key GROUP BY k.book_id), " +
+           "requested AS (" +
+           "SELECT b.id, (b.available_copies + d.delta + COALESCE(k.delta, 0))::int AS copies " +
+           "FROM books b JOIN unnest(:ids, :deltas) AS d(id, delta) ON b.id = d.id " +
+           "LEFT JOIN keyed k ON k.book_id = b.id " +
+           "ORDER BY b.id FOR UPDATE OF b) " +
+           "UPDATE books b SET available_copies = LEAST(b.total_copies, GREATEST(0, r.copies)), " +
+           "updated_at = CURRENT_TIMESTAMP " +
+           "FROM requested r " +
+           "WHERE b.id = r.id RETURNING b.id, b.available_copies, r.copies AS requested_copies")
+    Flux<AppliedDelta> applyAvailabilityDeltas(Long[] ids, Integer[] deltas, String[] keys, Long[] keyBookIds,
+                                               String[] operations, Integer[] keyDeltas);
+    
+    /**
+     * Insertar un lote de libros con una sola sentencia multi-fila. Los ISBN que
+     * ya existen (o se repiten en el lote) se omiten; devuelve las filas creadas.
+     */
+    @Query("INSERT INTO books (isbn, title, author, publisher, publication_year, category, " +
+           "total_copies, available_copies, description) " +
+           "SELECT * FROM unnest(:isbns, :titles, :authors, :publishers, :publicationYears, :categories, " +
+           ":totalCopies, :availableCopies, :descriptions) " +
+           "ON CONFLICT (isbn) DO NOTHING RETURNING *")
+    Flux<Book> insertBatchIgnoringDuplicates(String[] isbns, String[] titles, String[] authors, String[] publishers,
+                                             Integer[] publicationYears, String[] categories, Integer[] totalCopies,
+                                             Integer[] availableCopies, String[] descriptions);
 }
-
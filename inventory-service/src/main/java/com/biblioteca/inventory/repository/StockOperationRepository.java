@@ -0,0 +1,53 @@
+package com.biblioteca.inventory.repository;
+
+import com.biblioteca.inventory.model.StockOperation;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repository reactivo para las operaciones de stock idempotentes
+ */
+@Repository
+public interface StockOperationRepository extends R2dbcRepository<StockOperation, String> {
+    
+    /**
+     * Registrar una clave de idempotencia. Vacío si ya estaba registrada
+     * (la operación ya se aplicó).
+     */
+    @Query("INSERT INTO stock_operations (idempotency_key, book_id, operation) " +
+           "VALUES (:idempotencyKey, :bookId, :operation) " +
+           "ON CONFLICT (idempotency_key) DO NOTHING RETURNING idempotency_key")
+    Mono<String> register(String idempotencyKey, Long bookId, String operation);
+    
+    /**
+     * Registrar la clave de una operación sobre varios libros: cada libro se
+     * registra como {id}:{clave}. Devuelve los libros cuya clave no estaba
+     * registrada (los que aún hay que aplicar).
+     */
+    @Query("INSERT INTO stock_operations (idempotency_key, book_id, operation) " +
+           "SELECT t.id || ':' || :idempotencyKey, t.id, :operation FROM unnest(:bookIds) AS t(id) " +
+           "ON CONFLICT (idempotency_key) DO NOTHING RETURNING book_id")
+    Flux<Long> registerBatch(String idempotencyKey, Long[] bookIds, String operation);
+    
+    /**
+     * Anular el registro de los libros de una operación múltiple que no se
+     * llegaron a aplicar, para que un reintento los vuelva a intentar
+     */
+    @Modifying
+    @Query("DELETE FROM stock_operations WHERE idempotency_key IN " +
+           "(SELECT t.id || ':' || :idempotencyKey FROM unnest(:bookIds) AS t(id))")
+    Mono<Integer> unregisterBatch(String idempotencyKey, Long[] bookIds);
+    
+    /**
+     * Eliminar las claves registradas antes de una fecha
+     */
+    @Modifying
+    @Query("DELETE FROM stock_operations WHERE created_at < :before")
+    Mono<Integer> deleteCreatedBefore(LocalDateTime before);
+}
@@ -0,0 +1,287 @@
+package com.biblioteca.inventory.service;
+
+import com.biblioteca.inventory.cache.GatewayCachePurger;
+import com.biblioteca.inventory.dto.BookRequest;
+import com.biblioteca.inventory.dto.BulkImportResult;
+import com.biblioteca.inventory.dto.BulkImportResult.Status;
+import com.biblioteca.inventory.model.Book;
+import com.biblioteca.inventory.repository.BookRepository;
+import com.biblioteca.inventory.util.CsvParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Servicio de importación masiva de libros desde NDJSON o CSV.
+ *
+ * El cuerpo se procesa línea a línea sin cargar el fichero completo en memoria:
+ * cada fila se valida con las restricciones de BookRequest y las válidas se
+ * escriben en lotes con un INSERT multi-fila ... ON CONFLICT (isbn) DO NOTHING.
+ */
+@Service
+@Slf4j
+public class BookImportService {
+
+    private static final List<String> CSV_COLUMNS = List.of(
+        "isbn", "title", "author", "publisher", "publicationYear", "category",
+        "totalCopies", "availableCopies", "description"
+    );
+
+    private final BookRepository bookRepository;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final GatewayCachePurger gatewayCachePurger;
+    private final int batchSize;
+    private final StringDecoder lineDecoder = StringDecoder.allMimeTypes(List.of("\n"), true);
+
+    public BookImportService(BookRepository bookRepository,
+                             Validator validator,
+                             ObjectMapper objectMapper,
+                             GatewayCachePurger gatewayCachePurger,
+                             @Value("${inventory.bulk-import.batch-size:500}") int batchSize) {
+        this.bookRepository = bookRepository;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.gatewayCachePurger = gatewayCachePurger;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Importar libros desde NDJSON (una BookRequest por línea)
+     */
+    public Flux<BulkImportResult> importNdjson(Flux<DataBuffer> body) {
+        return importRows(lines(body).map(line -> parseJson(line.number(), line.text())));
+    }
+
+    /**
+     * Importar libros desde CSV. La primera línea es la cabecera con los nombres
+     * de los campos de BookRequest (isbn, title, author, ...), en cualquier orden.
+     */
+    public Flux<BulkImportResult> importCsv(Flux<DataBuffer> body) {
+        return importRows(lines(body).switchOnFirst((first, rest) -> {
+            if (!first.hasValue()) {
+                return rest.then(Mono.empty());
+            }
+            Map<String, Integer> header = parseCsvHeader(first.get().text());
+            return rest.skip(1).map(line -> parseCsv(header, line.number(), line.text()));
+        }));
+    }
+
+    private Flux<BulkImportResult> importRows(Flux<ImportRow> rows) {
+        long start = System.nanoTime();
+        AtomicLong processed = new AtomicLong();
+        AtomicLong created = new AtomicLong();
+
+        return rows
+                .buffer(batchSize)
+                .concatMap(this::writeBatch)
+                .doOnNext(result -> {
+                    processed.incrementAndGet();
+                    if (result.status() == Status.CREATED) {
+                        created.incrementAndGet();
+                    }
+                })
+                .concatWith(Mono.fromSupplier(() -> summary(processed.get(), created.get(), start)));
+    }
+
+    /**
+     * Escribir un lote: las filas inválidas se informan sin tocar la base de
+     * datos y las válidas se insertan con una única sentencia
+     */
+    private Flux<BulkImportResult> writeBatch(List<ImportRow> batch) {
+        List<BulkImportResult> invalid = new ArrayList<>();
+        List<ImportRow> valid = new ArrayList<>();
+        for (ImportRow row : batch) {
+            String error = row.error() != null ? row.error() : validate(row.request());
+            if (error != null) {
+                invalid.add(new BulkImportResult(row.line(), row.isbn(), Status.INVALID, null, error));
+            } else {
+                valid.add(row);
+            }
+        }
+        if (valid.isEmpty()) {
+            return Flux.fromIterable(invalid);
+        }
+
+        return insert(valid)
+                .collectMap(Book::isbn, Book::id)
+                .doOnNext(createdIds -> {
+                    if (!createdIds.isEmpty()) {
+                        gatewayCachePurger.purgeCollections();
+                    }
+                })
+                .flatMapIterable(createdIds -> {
+                    List<BulkImportResult> results = new ArrayList<>(invalid);
+                    Set<String> reported = new HashSet<>();
+                    for (ImportRow row : valid) {
+                        Long id = createdIds.get(row.isbn());
+                        // Si el ISBN se repite dentro del lote, solo la primera fila es la creada
+                        boolean created = id != null && reported.add(row.isbn());
+                        results.add(created
+                                ? new BulkImportResult(row.line(), row.isbn(), Status.CREATED, id, null)
+                                : new BulkImportResult(row.line(), row.isbn(), Status.DUPLICATE, null,
+                                        "Ya existe un libro con ISBN: " + row.isbn()));
+                    }
+                    return results;
+                })
+                .onErrorResume(error -> {
+                    log.error("Error al escribir lote de importación: {}", error.getMessage(), error);
+                    List<BulkImportResult> results = new ArrayList<>(invalid);
+                    valid.forEach(row -> results.add(new BulkImportResult(
+                        row.line(), row.isbn(), Status.FAILED, null, error.getMessage()
+                    )));
+                    return Flux.fromIterable(results);
+                });
+    }
+
+    private Flux<Book> insert(List<ImportRow> rows) {
+        int size = rows.size();
+        String[] isbns = new String[size];
+        String[] titles = new String[size];
+        String[] authors = new String[size];
+        String[] publishers = new String[size];
+        Integer[] publicationYears = new Integer[size];
+        String[] categories = new String[size];
+        Integer[] totalCopies = new Integer[size];
+        Integer[] availableCopies = new Integer[size];
+        String[] descriptions = new String[size];
+
+        for (int i = 0; i < size; i++) {
+            BookRequest request = rows.get(i).request();
+            isbns[i] = request.isbn();
+            titles[i] = request.title();
+            authors[i] = request.author();
+            publishers[i] = request.publisher();
+            publicationYears[i] = request.publicationYear();
+            categories[i] = request.category();
+            totalCopies[i] = request.totalCopies();
+            availableCopies[i] = request.availableCopies();
+            descriptions[i] = request.description();
+        }
+        return bookRepository.insertBatchIgnoringDuplicates(isbns, titles, authors, publishers,
+                publicationYears, categories, totalCopies, availableCopies, descriptions);
+    }
+
+    private String validate(BookRequest request) {
+        Set<ConstraintViolation<BookRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        // Misma condición que la restricción check_copies de la tabla
+        if (request.availableCopies() > request.totalCopies()) {
+            return "availableCopies: no puede superar el total de copias";
+        }
+        return null;
+    }
+
+    private BulkImportResult summary(long processed, long created, long startNanos) {
+        double seconds = Math.max((System.nanoTime() - startNanos) / 1_000_000_000.0, 1e-9);
+        double rowsPerSecond = processed / seconds;
+        String message = String.format(Locale.ROOT, "%d filas procesadas, %d creadas en %.3f s (%.0f filas/s)",
+                processed, created, seconds, rowsPerSecond);
+        log.info("Importación masiva finalizada: {}", message);
+        return new BulkImportResult(null, null, Status.SUMMARY, null, message);
+    }
+
+    /**
+     * Dividir el cuerpo en líneas numeradas (desde 1), ignorando las vacías
+     */
+    private Flux<Line> lines(Flux<DataBuffer> body) {
+        AtomicLong counter = new AtomicLong();
+        return lineDecoder.decode(body, ResolvableType.forClass(String.class), null, null)
+                .map(text -> new Line(counter.incrementAndGet(), text.strip()))
+                .filter(line -> !line.text().isEmpty());
+    }
+
+    private ImportRow parseJson(long number, String text) {
+        try {
+            BookRequest request = objectMapper.readValue(text, BookRequest.class);
+            return new ImportRow(number, request, null);
+        } catch (JsonProcessingException e) {
+            return new ImportRow(number, null, "JSON inválido: " + e.getOriginalMessage());
+        }
+    }
+
+    private Map<String, Integer> parseCsvHeader(String text) {
+        List<String> names = CsvParser.parseLine(text);
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            header.put(names.get(i).strip(), i);
+        }
+        if (!header.keySet().containsAll(List.of("isbn", "title", "author", "totalCopies", "availableCopies"))) {
+            throw new IllegalArgumentException("La cabecera CSV debe incluir las columnas: " + CSV_COLUMNS);
+        }
+        return header;
+    }
+
+    private ImportRow parseCsv(Map<String, Integer> header, long number, String text) {
+        try {
+            List<String> fields = CsvParser.parseLine(text);
+            BookRequest request = new BookRequest(
+                field(header, fields, "isbn"),
+                field(header, fields, "title"),
+                field(header, fields, "author"),
+                field(header, fields, "publisher"),
+                integerField(header, fields, "publicationYear"),
+                field(header, fields, "category"),
+                integerField(header, fields, "totalCopies"),
+                integerField(header, fields, "availableCopies"),
+                field(header, fields, "description")
+            );
+            return new ImportRow(number, request, null);
+        } catch (IllegalArgumentException e) {
+            return new ImportRow(number, null, "CSV inválido: " + e.getMessage());
+        }
+    }
+
+    private static String field(Map<String, Integer> header, List<String> fields, String name) {
+        Integer index = header.get(name);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).strip();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Integer integerField(Map<String, Integer> header, List<String> fields, String name) {
+        String value = field(header, fields, name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " debe ser un número entero");
+        }
+    }
+
+    private record Line(long number, String text) {}
+
+    private record ImportRow(long line, BookRequest request, String error) {
+        String isbn() {
+            return request != null ? request.isbn() : null;
+        }
+    }
+}
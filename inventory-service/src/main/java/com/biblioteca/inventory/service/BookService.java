@@ -1,16 +1,37 @@
 package com.biblioteca.inventory.service;
 
+import com.biblioteca.inventory.cache.BookCache;
+import com.biblioteca.inventory.cache.GatewayCachePurger;
+import com.biblioteca.inventory.dto.BookPage;
 import com.biblioteca.inventory.dto.BookRequest;
 import com.biblioteca.inventory.dto.BookResponse;
+import com.biblioteca.inventory.dto.BookStockResult;
+import com.biblioteca.inventory.exception.BookAlreadyExistsException;
+import com.biblioteca.inventory.exception.BookNotFoundException;
+import com.biblioteca.inventory.exception.StockUpdateRejectedException;
+import com.biblioteca.inventory.ledger.HotTitleLedger;
+import com.biblioteca.inventory.ledger.HotTitleLedger.Grant;
 import com.biblioteca.inventory.model.Book;
 import com.biblioteca.inventory.repository.BookRepository;
+import com.biblioteca.inventory.repository.StockOperationRepository;
+import com.biblioteca.inventory.util.PageCursor;
+import com.biblioteca.inventory.util.SearchQueries;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 /**
  * Servicio para gestionar el inventario de libros
  */
@@ -20,6 +41,18 @@ import reactor.core.publisher.Mono;
 public class BookService {
 
     private final BookRepository bookRepository;
+    private final StockOperationRepository stockOperationRepository;
+    private final BookCache bookCache;
+    private final GatewayCachePurger gatewayCachePurger;
+    private final HotTitleLedger hotTitleLedger;
+    private final TransactionalOperator transactionalOperator;
+
+    // Tamaño máximo de página y tamaño de los bloques leídos al hacer streaming
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int STREAM_CHUNK_SIZE = 500;
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final String NOT_ENOUGH_COPIES = "Sin copias suficientes o libro inexistente";
+    private static final String ABOVE_TOTAL_COPIES = "Se superaría el total de copias o libro inexistente";
 
     /**
      * Obtener todos los libros
@@ -36,10 +69,28 @@ public class BookService {
      */
     public Mono<BookResponse> getBookById(Long id) {
         log.info("Buscando libro con ID: {}", id);
-        return bookRepository.findById(id)
-                .map(BookResponse::fromBook)
+        return bookCache.getById(id, this::loadBook)
+                .map(hotTitleLedger::overlay)
                 .doOnSuccess(book -> log.info("Libro encontrado: {}", book))
-                .switchIfEmpty(Mono.error(new RuntimeException("Libro no encontrado con ID: " + id)));
+                .switchIfEmpty(Mono.error(new BookNotFoundException(id)));
+    }
+
+    /**
+     * Obtener varios libros por ID con una sola consulta.
+     * Los IDs inexistentes no aparecen en el resultado.
+     */
+    public Flux<BookResponse> getBooksByIds(List<Long> ids) {
+        log.info("Obteniendo {} libros por ID", ids.size());
+        if (ids.size() > MAX_PAGE_SIZE) {
+            return Flux.error(tooManyIds());
+        }
+        return bookRepository.findByIdIn(ids.toArray(Long[]::new))
+                .map(BookResponse::fromBook)
+                .map(hotTitleLedger::overlay);
+    }
+
+    private static IllegalArgumentException tooManyIds() {
+        return new IllegalArgumentException("No se pueden pedir más de " + MAX_PAGE_SIZE + " libros a la vez");
     }
 
     /**
@@ -47,9 +98,25 @@ public class BookService {
      */
     public Mono<BookResponse> getBookByIsbn(String isbn) {
         log.info("Buscando libro con ISBN: {}", isbn);
-        return bookRepository.findByIsbn(isbn)
-                .map(BookResponse::fromBook)
-                .switchIfEmpty(Mono.error(new RuntimeException("Libro no encontrado con ISBN: " + isbn)));
+        Long cachedId = bookCache.getIdByIsbn(isbn);
+        Mono<BookResponse> cached = cachedId == null
+                ? Mono.empty()
+                : bookCache.getById(cachedId, this::loadBook)
+                        // El ISBN pudo cambiar tras una actualización: en ese caso se consulta de nuevo
+                        .filter(book -> isbn.equals(book.isbn()));
+        return cached
+                .switchIfEmpty(Mono.defer(() -> bookRepository.findByIsbn(isbn)
+                        .map(BookResponse::fromBook)
+                        .doOnNext(book -> bookCache.putIsbn(isbn, book.id()))))
+                .map(hotTitleLedger::overlay)
+                .switchIfEmpty(Mono.error(new BookNotFoundException("Libro no encontrado con ISBN: " + isbn)));
+    }
+
+    /**
+     * Cargar un libro desde la base de datos (usado por la caché)
+     */
+    private Mono<BookResponse> loadBook(Long id) {
+        return bookRepository.findById(id).map(BookResponse::fromBook);
     }
 
     /**
@@ -57,7 +124,7 @@ public class BookService {
      */
     public Flux<BookResponse> searchByAuthor(String author) {
         log.info("Buscando libros del autor: {}", author);
-        return bookRepository.findByAuthorContainingIgnoreCase(author)
+        return bookRepository.findByAuthorContainingIgnoreCase(SearchQueries.escapeLike(author))
                 .map(BookResponse::fromBook);
     }
 
@@ -66,7 +133,25 @@ public class BookService {
      */
     public Flux<BookResponse> searchByTitle(String title) {
         log.info("Buscando libros con título: {}", title);
-        return bookRepository.findByTitleContainingIgnoreCase(title)
+        return bookRepository.findByTitleContainingIgnoreCase(SearchQueries.escapeLike(title))
+                .map(BookResponse::fromBook);
+    }
+
+    /**
+     * Búsqueda general por relevancia con prefijos y tolerancia a errores
+     */
+    public Flux<BookResponse> search(String text, int limit) {
+        log.info("Buscando libros: {}", text);
+        String tsQuery = SearchQueries.toPrefixTsQuery(text);
+        if (tsQuery.isEmpty()) {
+            return Flux.error(new IllegalArgumentException("La búsqueda debe contener al menos una palabra"));
+        }
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS) {
+            return Flux.error(new IllegalArgumentException(
+                "El límite de resultados debe estar entre 1 y " + MAX_SEARCH_RESULTS
+            ));
+        }
+        return bookRepository.search(text.trim(), tsQuery, limit)
                 .map(BookResponse::fromBook);
     }
 
@@ -89,61 +174,157 @@ public class BookService {
     }
 
     /**
-     * Crear un nuevo libro
+     * Obtener una página de libros por cursor
+     */
+    public Mono<BookPage> getBooksPage(String cursor, int size) {
+        log.info("Obteniendo página de libros (size={})", size);
+        return toPage(cursor, size, bookRepository::findPage);
+    }
+
+    /**
+     * Obtener una página de libros disponibles por cursor
+     */
+    public Mono<BookPage> getAvailableBooksPage(String cursor, int size) {
+        log.info("Obteniendo página de libros disponibles (size={})", size);
+        return toPage(cursor, size, bookRepository::findAvailablePage);
+    }
+
+    /**
+     * Obtener una página de libros de una categoría por cursor
+     */
+    public Mono<BookPage> getBooksByCategoryPage(String category, String cursor, int size) {
+        log.info("Obteniendo página de libros de categoría: {} (size={})", category, size);
+        return toPage(cursor, size, (afterId, limit) -> bookRepository.findByCategoryPage(category, afterId, limit));
+    }
+
+    /**
+     * Streaming de todos los libros ordenados por ID
+     */
+    public Flux<BookResponse> streamAllBooks() {
+        log.info("Streaming de todos los libros");
+        return streamByKeyset(bookRepository::findPage);
+    }
+
+    /**
+     * Streaming de libros disponibles ordenados por ID
+     */
+    public Flux<BookResponse> streamAvailableBooks() {
+        log.info("Streaming de libros disponibles");
+        return streamByKeyset(bookRepository::findAvailablePage);
+    }
+
+    /**
+     * Streaming de libros de una categoría ordenados por ID
+     */
+    public Flux<BookResponse> streamBooksByCategory(String category) {
+        log.info("Streaming de libros de categoría: {}", category);
+        return streamByKeyset((afterId, limit) -> bookRepository.findByCategoryPage(category, afterId, limit));
+    }
+
+    /**
+     * Leer size + 1 filas para saber si existe una página siguiente sin contar la tabla
+     */
+    private Mono<BookPage> toPage(String cursor, int size, BiFunction<Long, Integer, Flux<Book>> pageQuery) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return Mono.error(new IllegalArgumentException(
+                "El tamaño de página debe estar entre 1 y " + MAX_PAGE_SIZE
+            ));
+        }
+        return Mono.fromCallable(() -> PageCursor.decode(cursor))
+                .flatMap(afterId -> pageQuery.apply(afterId, size + 1).collectList())
+                .map(books -> {
+                    boolean hasNext = books.size() > size;
+                    List<Book> content = hasNext ? books.subList(0, size) : books;
+                    String nextCursor = hasNext ? PageCursor.encode(content.get(size - 1).id()) : null;
+                    return new BookPage(content.stream().map(BookResponse::fromBook).toList(), content.size(), nextCursor);
+                });
+    }
+
+    /**
+     * Recorrer la consulta en bloques por clave: cada bloque solo se pide cuando
+     * el cliente ha consumido el anterior, por lo que la memoria queda acotada
+     * y se respeta la contrapresión
+     */
+    private Flux<BookResponse> streamByKeyset(BiFunction<Long, Integer, Flux<Book>> pageQuery) {
+        return pageQuery.apply(0L, STREAM_CHUNK_SIZE).collectList()
+                .expand(chunk -> chunk.size() < STREAM_CHUNK_SIZE
+                        ? Mono.empty()
+                        : pageQuery.apply(chunk.get(chunk.size() - 1).id(), STREAM_CHUNK_SIZE).collectList())
+                .concatMapIterable(Function.identity(), 1)
+                .map(BookResponse::fromBook);
+    }
+
+    /**
+     * Crear un nuevo libro con un único INSERT ... ON CONFLICT (isbn) DO NOTHING:
+     * la comprobación de ISBN duplicado y la inserción ocurren en el mismo viaje
+     * a la base de datos, también con creaciones concurrentes del mismo ISBN
      */
-    @Transactional
     public Mono<BookResponse> createBook(BookRequest request) {
-        log.info("Creando nuevo libro: {}", request.title());
+        log.info("Creando libro con datos: ISBN={}, Title={}, Author={}",
+                request.isbn(), request.title(), request.author());
         
-        // Verificar si ya existe un libro con ese ISBN
-        return bookRepository.findByIsbn(request.isbn())
-                .flatMap(existing -> {
-                    log.warn("Intento de crear libro con ISBN duplicado: {}", request.isbn());
-                    return Mono.<BookResponse>error(
-                        new RuntimeException("Ya existe un libro con ISBN: " + request.isbn())
-                    );
+        return bookRepository.insertIfAbsent(
+                    request.isbn(),
+                    request.title(),
+                    request.author(),
+                    request.publisher(),
+                    request.publicationYear(),
+                    request.category(),
+                    request.totalCopies(),
+                    request.availableCopies(),
+                    request.description()
+                )
+                .map(BookResponse::fromBook)
+                .doOnNext(book -> {
+                    gatewayCachePurger.purgeCollections();
+                    log.info("Libro creado exitosamente con ID: {}", book.id());
                 })
-                .switchIfEmpty(
-                    Mono.defer(() -> {
-                        try {
-                            log.info("Creando libro con datos: ISBN={}, Title={}, Author={}", 
-                                request.isbn(), request.title(), request.author());
-                            
-                            Book newBook = new Book(
-                                request.isbn(),
-                                request.title(),
-                                request.author(),
-                                request.publisher(),
-                                request.publicationYear(),
-                                request.category(),
-                                request.totalCopies(),
-                                request.availableCopies(),
-                                request.description()
-                            );
-                            
-                            log.info("Libro creado en memoria, guardando en base de datos...");
-                            return bookRepository.save(newBook)
-                                    .map(BookResponse::fromBook)
-                                    .doOnSuccess(book -> log.info("Libro creado exitosamente con ID: {}", book.id()))
-                                    .doOnError(error -> log.error("Error al guardar libro: {}", error.getMessage(), error));
-                        } catch (Exception e) {
-                            log.error("Error al crear libro: {}", e.getMessage(), e);
-                            return Mono.error(e);
-                        }
-                    })
+                .switchIfEmpty(Mono.defer(() -> {
+                    log.warn("Intento de crear libro con ISBN duplicado: {}", request.isbn());
+                    return Mono.error(new BookAlreadyExistsException(request.isbn()));
+                }))
+                // El ISBN duplicado ya se registró como aviso: es un conflicto esperado (409)
+                .doOnError(error -> !(error instanceof BookAlreadyExistsException),
+                        error -> log.error("Error en createBook: {}", error.getMessage()));
+    }
+
+    /**
+     * Crear o actualizar los metadatos de un libro por ISBN en una sola sentencia.
+     * Si el libro ya existe no se modifican sus copias: solo título, autor,
+     * editorial, año, categoría y descripción.
+     */
+    public Mono<BookResponse> upsertBookByIsbn(String isbn, BookRequest request) {
+        log.info("Sincronizando libro con ISBN: {}", isbn);
+        if (!isbn.equals(request.isbn())) {
+            return Mono.error(new IllegalArgumentException(
+                "El ISBN del cuerpo (" + request.isbn() + ") no coincide con el de la URL (" + isbn + ")"
+            ));
+        }
+        
+        return bookRepository.upsertMetadata(
+                    request.isbn(),
+                    request.title(),
+                    request.author(),
+                    request.publisher(),
+                    request.publicationYear(),
+                    request.category(),
+                    request.totalCopies(),
+                    request.availableCopies(),
+                    request.description()
                 )
-                .doOnError(error -> log.error("Error en createBook: {}", error.getMessage(), error));
+                .doOnNext(book -> bookCache.invalidate(book.id()))
+                .map(BookResponse::fromBook)
+                .doOnNext(book -> log.info("Libro sincronizado exitosamente: {}", book.id()));
     }
 
     /**
-     * Actualizar un libro
+     * Actualizar un libro. La caché se invalida después del commit.
      */
-    @Transactional
     public Mono<BookResponse> updateBook(Long id, BookRequest request) {
         log.info("Actualizando libro con ID: {}", id);
         
         return bookRepository.findById(id)
-                .switchIfEmpty(Mono.error(new RuntimeException("Libro no encontrado con ID: " + id)))
+                .switchIfEmpty(Mono.error(new BookNotFoundException(id)))
                 .flatMap(existingBook -> {
                     Book updatedBook = new Book(
                         id,
@@ -158,22 +339,29 @@ public class BookService {
                         request.description()
                     );
                     return bookRepository.save(updatedBook)
+                            .doOnNext(hotTitleLedger::reload)
                             .map(BookResponse::fromBook)
                             .doOnSuccess(book -> log.info("Libro actualizado exitosamente: {}", book.id()));
-                });
+                })
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(result -> bookCache.invalidate(id));
     }
 
     /**
-     * Eliminar un libro
+     * Eliminar un libro. La caché se invalida después del commit.
      */
-    @Transactional
     public Mono<Void> deleteBook(Long id) {
         log.info("Eliminando libro con ID: {}", id);
         
         return bookRepository.findById(id)
-                .switchIfEmpty(Mono.error(new RuntimeException("Libro no encontrado con ID: " + id)))
+                .switchIfEmpty(Mono.error(new BookNotFoundException(id)))
                 .flatMap(book -> bookRepository.deleteById(id)
-                        .doOnSuccess(v -> log.info("Libro eliminado exitosamente: {}", id)));
+                        .doOnSuccess(v -> log.info("Libro eliminado exitosamente: {}", id)))
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(result -> {
+                    hotTitleLedger.forget(id);
+                    bookCache.invalidate(id);
+                });
     }
 
     /**
@@ -181,49 +369,320 @@ public class BookService {
      */
     public Mono<Boolean> checkAvailability(Long id) {
         log.info("Verificando disponibilidad del libro ID: {}", id);
+        Integer hotAvailable = hotTitleLedger.availableCopies(id);
+        if (hotAvailable != null) {
+            return Mono.just(hotAvailable > 0);
+        }
         return bookRepository.isBookAvailable(id);
     }
 
     /**
-     * Decrementar copias disponibles (cuando se presta un libro)
+     * Verificar disponibilidad de varios libros (como máximo MAX_PAGE_SIZE) con
+     * una sola consulta. Los IDs inexistentes no aparecen en el mapa.
+     */
+    public Mono<Map<Long, Boolean>> checkAvailability(List<Long> ids) {
+        log.info("Verificando disponibilidad de {} libros", ids.size());
+        if (ids.size() > MAX_PAGE_SIZE) {
+            return Mono.error(tooManyIds());
+        }
+        return bookRepository.findByIdIn(ids.toArray(Long[]::new))
+                .collectMap(Book::id, book -> {
+                    Integer hotAvailable = hotTitleLedger.availableCopies(book.id());
+                    return (hotAvailable != null ? hotAvailable : book.availableCopies()) > 0;
+                });
+    }
+
+    /**
+     * Decrementar copias disponibles (cuando se presta un libro).
+     * Una sola sentencia condicional: no requiere transacción explícita.
+     * Los títulos calientes se conceden desde el ledger en memoria.
      */
-    @Transactional
     public Mono<BookResponse> decrementAvailableCopies(Long id) {
         log.info("Decrementando copias disponibles del libro ID: {}", id);
         
-        return bookRepository.findById(id)
-                .switchIfEmpty(Mono.error(new RuntimeException("Libro no encontrado con ID: " + id)))
-                .flatMap(book -> {
-                    if (book.availableCopies() <= 0) {
-                        return Mono.error(new RuntimeException("No hay copias disponibles del libro ID: " + id));
-                    }
-                    Book updatedBook = book.withAvailableCopies(book.availableCopies() - 1);
-                    return bookRepository.save(updatedBook)
-                            .map(BookResponse::fromBook)
-                            .doOnSuccess(b -> log.info("Copias disponibles decrementadas: {}", b.availableCopies()));
-                });
+        return Mono.defer(() -> fromLedger(hotTitleLedger.reserve(id, 1), id, noCopiesLeft(id), reserveCopy(id)));
+    }
+
+    private Mono<BookResponse> reserveCopy(Long id) {
+        return bookRepository.reserveCopy(id)
+                .doOnSuccess(result -> bookCache.invalidate(id))
+                .map(BookResponse::fromBook)
+                .doOnNext(b -> log.info("Copias disponibles decrementadas: {}", b.availableCopies()))
+                .switchIfEmpty(stockUpdateRejected(id, noCopiesLeft(id)));
     }
 
     /**
-     * Incrementar copias disponibles (cuando se devuelve un libro)
+     * Incrementar copias disponibles (cuando se devuelve un libro).
+     * Una sola sentencia condicional: no requiere transacción explícita.
+     * Los títulos calientes se devuelven al ledger en memoria.
      */
-    @Transactional
     public Mono<BookResponse> incrementAvailableCopies(Long id) {
         log.info("Incrementando copias disponibles del libro ID: {}", id);
         
-        return bookRepository.findById(id)
-                .switchIfEmpty(Mono.error(new RuntimeException("Libro no encontrado con ID: " + id)))
-                .flatMap(book -> {
-                    if (book.availableCopies() >= book.totalCopies()) {
-                        return Mono.error(new RuntimeException(
-                            "No se pueden incrementar más copias. Total: " + book.totalCopies()
-                        ));
-                    }
-                    Book updatedBook = book.withAvailableCopies(book.availableCopies() + 1);
-                    return bookRepository.save(updatedBook)
-                            .map(BookResponse::fromBook)
-                            .doOnSuccess(b -> log.info("Copias disponibles incrementadas: {}", b.availableCopies()));
+        return Mono.defer(() -> fromLedger(hotTitleLedger.release(id, 1), id, allCopiesReturned(id), releaseCopy(id)));
+    }
+
+    private Mono<BookResponse> releaseCopy(Long id) {
+        return bookRepository.releaseCopy(id)
+                .doOnSuccess(result -> bookCache.invalidate(id))
+                .map(BookResponse::fromBook)
+                .doOnNext(b -> log.info("Copias disponibles incrementadas: {}", b.availableCopies()))
+                .switchIfEmpty(stockUpdateRejected(id, allCopiesReturned(id)));
+    }
+
+    private static String noCopiesLeft(Long id) {
+        return "No hay copias disponibles del libro ID: " + id;
+    }
+
+    private static String allCopiesReturned(Long id) {
+        return "No se pueden incrementar más copias del libro ID: " + id;
+    }
+
+    /**
+     * Resolver una operación sobre un título según el ledger; los títulos que
+     * no gestiona van a la base de datos
+     */
+    private Mono<BookResponse> fromLedger(Grant grant, Long id, String rejection, Mono<BookResponse> untracked) {
+        return switch (grant) {
+            case GRANTED -> getBookById(id);
+            case DENIED -> Mono.error(new StockUpdateRejectedException(rejection));
+            case ALREADY_APPLIED -> {
+                log.info("Operación de stock ya aplicada sobre el libro ID: {}", id);
+                yield getBookById(id);
+            }
+            case UNTRACKED -> untracked;
+        };
+    }
+
+    /**
+     * Decrementar copias disponibles como máximo una vez por clave de idempotencia
+     */
+    public Mono<BookResponse> decrementAvailableCopies(Long id, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return decrementAvailableCopies(id);
+        }
+        log.info("Decrementando copias disponibles del libro ID: {} (clave {})", id, idempotencyKey);
+        return hotTitleLedger.reserve(id, 1, idempotencyKey)
+                .flatMap(grant -> fromLedger(grant, id, noCopiesLeft(id),
+                        applyOnce(idempotencyKey, id, "DECREMENT", reserveCopy(id))));
+    }
+
+    /**
+     * Incrementar copias disponibles como máximo una vez por clave de idempotencia
+     */
+    public Mono<BookResponse> incrementAvailableCopies(Long id, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return incrementAvailableCopies(id);
+        }
+        log.info("Incrementando copias disponibles del libro ID: {} (clave {})", id, idempotencyKey);
+        return hotTitleLedger.release(id, 1, idempotencyKey)
+                .flatMap(grant -> fromLedger(grant, id, allCopiesReturned(id),
+                        applyOnce(idempotencyKey, id, "INCREMENT", releaseCopy(id))));
+    }
+
+    /**
+     * Registrar la clave y aplicar el cambio en la base de datos en la misma
+     * transacción: si el cambio se rechaza la clave no queda registrada y el
+     * cliente puede reintentar; si la clave ya existía se devuelve el libro sin
+     * modificarlo. Los títulos calientes no pasan por aquí: el ledger escribe
+     * su clave junto con el cambio.
+     */
+    private Mono<BookResponse> applyOnce(String idempotencyKey, Long id, String operation, Mono<BookResponse> change) {
+        return stockOperationRepository.register(idempotencyKey, id, operation)
+                .flatMap(registered -> change)
+                .switchIfEmpty(Mono.defer(() -> {
+                    log.info("Operación de stock ya aplicada: {}", idempotencyKey);
+                    return getBookById(id);
+                }))
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(result -> bookCache.invalidate(id));
+    }
+
+    /**
+     * Distinguir, solo en el camino de fallo, entre libro inexistente y
+     * actualización rechazada por la condición de stock
+     */
+    private Mono<BookResponse> stockUpdateRejected(Long id, String message) {
+        return Mono.defer(() -> bookRepository.existsById(id))
+                .flatMap(exists -> Mono.error(exists
+                        ? new StockUpdateRejectedException(message)
+                        : new BookNotFoundException(id)));
+    }
+
+    /**
+     * Reservar copias de varios libros en una sola sentencia
+     */
+    public Flux<BookStockResult> decrementAvailableCopies(List<Long> ids) {
+        log.info("Decrementando copias de {} libros", ids.size());
+        return applyBatch(ids, hotTitleLedger::reserve, hotTitleLedger::release,
+                bookIds -> bookRepository.reserveCopies(bookIds.toArray(Long[]::new)),
+                NOT_ENOUGH_COPIES);
+    }
+
+    /**
+     * Liberar copias de varios libros en una sola sentencia
+     */
+    public Flux<BookStockResult> incrementAvailableCopies(List<Long> ids) {
+        log.info("Incrementando copias de {} libros", ids.size());
+        return applyBatch(ids, hotTitleLedger::release, hotTitleLedger::reserve,
+                bookIds -> bookRepository.releaseCopies(bookIds.toArray(Long[]::new)),
+                ABOVE_TOTAL_COPIES);
+    }
+
+    /**
+     * Reservar copias de varios libros como máximo una vez por clave de idempotencia
+     */
+    public Flux<BookStockResult> decrementAvailableCopies(List<Long> ids, String idempotencyKey) {
+        return applyBatchOnce(idempotencyKey, ids, "DECREMENT", this::decrementAvailableCopies, NOT_ENOUGH_COPIES);
+    }
+
+    /**
+     * Liberar copias de varios libros como máximo una vez por clave de idempotencia
+     */
+    public Flux<BookStockResult> incrementAvailableCopies(List<Long> ids, String idempotencyKey) {
+        return applyBatchOnce(idempotencyKey, ids, "INCREMENT", this::incrementAvailableCopies, ABOVE_TOTAL_COPIES);
+    }
+
+    /**
+     * Equivalente a applyOnce para varios libros: la clave se registra por libro
+     * ({id}:{clave}), así que cada libro también se puede reintentar por separado
+     * con POST /{id}/decrement o /{id}/increment. Los libros ya aplicados se
+     * informan con su estado actual y los rechazados no quedan registrados.
+     * Los títulos calientes los resuelve el ledger, que escribe la clave de
+     * cada libro junto con su cambio.
+     */
+    private Flux<BookStockResult> applyBatchOnce(String idempotencyKey, List<Long> ids, String operation,
+                                                 Function<List<Long>, Flux<BookStockResult>> change,
+                                                 String rejection) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return change.apply(ids);
+        }
+        Map<Long, Long> quantities = ids.stream()
+                .collect(Collectors.groupingBy(Function.identity(), LinkedHashMap::new, Collectors.counting()));
+
+        return Flux.fromIterable(quantities.entrySet())
+                .concatMap(entry -> {
+                    Long id = entry.getKey();
+                    int quantity = entry.getValue().intValue();
+                    String bookKey = id + ":" + idempotencyKey;
+                    Mono<Grant> grant = "DECREMENT".equals(operation)
+                            ? hotTitleLedger.reserve(id, quantity, bookKey)
+                            : hotTitleLedger.release(id, quantity, bookKey);
+                    return grant.flatMap(result -> switch (result) {
+                        case GRANTED -> Mono.just(new BookStockResult(
+                                id, quantity, true, hotTitleLedger.availableCopies(id), null));
+                        case DENIED -> Mono.just(BookStockResult.rejected(id, quantity, rejection));
+                        case ALREADY_APPLIED -> alreadyApplied(id, ids, idempotencyKey);
+                        case UNTRACKED -> Mono.<BookStockResult>empty();
+                    });
+                })
+                .collectMap(BookStockResult::bookId)
+                .flatMapMany(hot -> {
+                    List<Long> untracked = ids.stream().filter(id -> !hot.containsKey(id)).toList();
+                    Mono<Map<Long, BookStockResult>> others = untracked.isEmpty()
+                            ? Mono.just(Map.of())
+                            : registerAndApply(idempotencyKey, untracked, operation, change)
+                                    .collectMap(BookStockResult::bookId);
+                    return others.flatMapMany(results -> Flux.fromIterable(quantities.keySet())
+                            .map(id -> hot.containsKey(id) ? hot.get(id) : results.get(id)));
                 });
     }
-}
 
+    private Flux<BookStockResult> registerAndApply(String idempotencyKey, List<Long> ids, String operation,
+                                                   Function<List<Long>, Flux<BookStockResult>> change) {
+        List<Long> distinctIds = ids.stream().distinct().toList();
+
+        return stockOperationRepository.registerBatch(idempotencyKey, distinctIds.toArray(Long[]::new), operation)
+                .collect(Collectors.toSet())
+                .flatMapMany(registered -> {
+                    List<Long> pending = ids.stream().filter(registered::contains).toList();
+                    Mono<Map<Long, BookStockResult>> applied = pending.isEmpty()
+                            ? Mono.just(Map.of())
+                            : change.apply(pending).collectMap(BookStockResult::bookId);
+
+                    return applied.flatMapMany(results -> {
+                        Long[] rejected = results.values().stream()
+                                .filter(result -> !result.success())
+                                .map(BookStockResult::bookId)
+                                .toArray(Long[]::new);
+                        Mono<Integer> unregister = rejected.length == 0
+                                ? Mono.just(0)
+                                : stockOperationRepository.unregisterBatch(idempotencyKey, rejected);
+
+                        return unregister.thenMany(Flux.fromIterable(distinctIds)
+                                .concatMap(id -> results.containsKey(id)
+                                        ? Mono.just(results.get(id))
+                                        : alreadyApplied(id, ids, idempotencyKey)));
+                    });
+                })
+                .as(transactionalOperator::transactional);
+    }
+
+    private Mono<BookStockResult> alreadyApplied(Long id, List<Long> ids, String idempotencyKey) {
+        int quantity = (int) ids.stream().filter(id::equals).count();
+        log.info("Operación de stock ya aplicada: {}:{}", id, idempotencyKey);
+        return getBookById(id)
+                .map(book -> new BookStockResult(id, quantity, true, book.availableCopies(), "Operación ya aplicada"));
+    }
+
+    /**
+     * Construir un resultado por cada ID solicitado, en el orden de la petición.
+     * Los títulos calientes se resuelven en el ledger y el resto con una única
+     * sentencia, a partir de las filas que llegó a actualizar. Si la sentencia
+     * falla o se cancela, lo concedido por el ledger se deshace con giveBack.
+     */
+    private Flux<BookStockResult> applyBatch(List<Long> ids,
+                                             BiFunction<Long, Integer, Grant> ledgerOperation,
+                                             BiFunction<Long, Integer, Grant> giveBack,
+                                             Function<List<Long>, Flux<Book>> statement,
+                                             String rejection) {
+        return Flux.defer(() -> {
+            Map<Long, Long> quantities = ids.stream()
+                    .collect(Collectors.groupingBy(Function.identity(), LinkedHashMap::new, Collectors.counting()));
+
+            Map<Long, BookStockResult> fromLedger = new HashMap<>();
+            Map<Long, Integer> granted = new HashMap<>();
+            List<Long> untracked = new ArrayList<>();
+            quantities.forEach((id, count) -> {
+                int quantity = count.intValue();
+                switch (ledgerOperation.apply(id, quantity)) {
+                    case GRANTED -> {
+                        granted.put(id, quantity);
+                        fromLedger.put(id, new BookStockResult(
+                                id, quantity, true, hotTitleLedger.availableCopies(id), null));
+                    }
+                    case DENIED, ALREADY_APPLIED -> fromLedger.put(id, BookStockResult.rejected(id, quantity, rejection));
+                    case UNTRACKED -> {
+                        for (int i = 0; i < quantity; i++) {
+                            untracked.add(id);
+                        }
+                    }
+                }
+            });
+
+            Mono<Map<Long, Book>> updatedRows = untracked.isEmpty()
+                    ? Mono.just(Map.of())
+                    : statement.apply(untracked)
+                            .collectMap(Book::id)
+                            .doOnSuccess(updated -> bookCache.invalidateAll(untracked))
+                            .onErrorResume(error -> {
+                                granted.forEach(giveBack::apply);
+                                return Mono.error(error);
+                            })
+                            .doOnCancel(() -> granted.forEach(giveBack::apply));
+
+            return updatedRows.flatMapMany(updated -> Flux.fromIterable(quantities.entrySet())
+                    .map(entry -> {
+                        BookStockResult hot = fromLedger.get(entry.getKey());
+                        if (hot != null) {
+                            return hot;
+                        }
+                        Book book = updated.get(entry.getKey());
+                        int quantity = entry.getValue().intValue();
+                        return book != null
+                                ? BookStockResult.applied(book, quantity)
+                                : BookStockResult.rejected(entry.getKey(), quantity, rejection);
+                    }));
+        });
+    }
+}
@@ -0,0 +1,38 @@
+package com.biblioteca.inventory.service;
+
+import com.biblioteca.inventory.repository.StockOperationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Limpieza periódica de las claves de idempotencia antiguas. Un cliente solo
+ * reintenta una operación durante un tiempo acotado, así que pasado el periodo
+ * de retención la clave ya no hace falta.
+ */
+@Component
+@Slf4j
+public class StockOperationCleanupTask {
+
+    private final StockOperationRepository stockOperationRepository;
+    private final Duration retention;
+
+    public StockOperationCleanupTask(StockOperationRepository stockOperationRepository,
+                                     @Value("${inventory.idempotency.retention:7d}") Duration retention) {
+        this.stockOperationRepository = stockOperationRepository;
+        this.retention = retention;
+    }
+
+    @Scheduled(cron = "${inventory.idempotency.cleanup-cron:0 0 3 * * *}")
+    public void purgeExpiredKeys() {
+        stockOperationRepository.deleteCreatedBefore(LocalDateTime.now().minus(retention))
+                .subscribe(
+                    deleted -> log.info("Claves de idempotencia eliminadas: {}", deleted),
+                    error -> log.error("Error al limpiar claves de idempotencia: {}", error.getMessage(), error)
+                );
+    }
+}
@@ -0,0 +1,47 @@
+package com.biblioteca.inventory.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser mínimo de líneas CSV (RFC 4180) para la importación masiva.
+ * Admite campos entre comillas con comas y comillas dobles escapadas,
+ * pero no saltos de línea dentro de un campo.
+ */
+public final class CsvParser {
+
+    private CsvParser() {
+    }
+
+    public static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Comillas sin cerrar");
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+}
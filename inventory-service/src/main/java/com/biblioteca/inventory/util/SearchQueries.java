@@ -0,0 +1,34 @@
+package com.biblioteca.inventory.util;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Construcción de consultas de búsqueda seguras para PostgreSQL
+ */
+public final class SearchQueries {
+
+    private SearchQueries() {
+    }
+
+    /**
+     * Convertir el texto del usuario en un tsquery de prefijos ("spr:* & act:*").
+     * Solo se conservan letras y dígitos, así que el resultado nunca contiene
+     * operadores de tsquery introducidos por el cliente. Cadena vacía si no queda
+     * ningún término.
+     */
+    public static String toPrefixTsQuery(String text) {
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(term -> !term.isEmpty())
+                .map(term -> term + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+
+    /**
+     * Escapar los comodines de LIKE para que el texto se busque literalmente
+     */
+    public static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,108 @@
+package com.biblioteca.inventory.ledger;
+
+import com.biblioteca.inventory.cache.BookCache;
+import com.biblioteca.inventory.dto.HotTitleStatus;
+import com.biblioteca.inventory.ledger.HotTitleLedger.Grant;
+import com.biblioteca.inventory.model.AppliedDelta;
+import com.biblioteca.inventory.model.Book;
+import com.biblioteca.inventory.repository.BookRepository;
+import com.biblioteca.inventory.repository.StockOperationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Las escrituras fallidas del ledger no pierden cambios ni claves: vuelven a
+ * su título (aunque se estuviera retirando) y el error llega a quien espera
+ */
+class HotTitleLedgerTest {
+
+    private static final Long ID = 1L;
+
+    private final BookRepository bookRepository = mock(BookRepository.class);
+    private final StockOperationRepository stockOperationRepository = mock(StockOperationRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HotTitleLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        when(bookRepository.findById(ID)).thenReturn(Mono.just(
+                new Book(ID, "978-0-00-000001", "Manual", "Autora", "Editorial", 2024, "Pruebas", 5, 5, null)));
+        when(stockOperationRepository.existsById(any(String.class))).thenReturn(Mono.just(false));
+        ledger = new HotTitleLedger(bookRepository, stockOperationRepository, mock(BookCache.class), meterRegistry,
+                true, List.of(), 2);
+        ledger.markHot(ID).block();
+    }
+
+    @AfterEach
+    void resetTime() {
+        VirtualTimeScheduler.reset();
+    }
+
+    @Test
+    void failedWriteKeepsTheTitleBeingUnmarked() {
+        assertThat(ledger.reserve(ID, 1)).isEqualTo(Grant.GRANTED);
+        when(bookRepository.applyAvailabilityDeltas(any(), any(), any(), any(), any(), any()))
+                .thenReturn(Flux.error(new IllegalStateException("base de datos caída")));
+
+        StepVerifier.create(ledger.unmarkHot(ID)).verifyError(IllegalStateException.class);
+        assertThat(ledger.isHot(ID)).isTrue();
+        assertThat(status().pendingDelta()).isEqualTo(-1);
+
+        when(bookRepository.applyAvailabilityDeltas(any(), any(), any(), any(), any(), any()))
+                .thenReturn(Flux.just(new AppliedDelta(ID, 4, 4)));
+        StepVerifier.create(ledger.unmarkHot(ID)).verifyComplete();
+        assertThat(ledger.isHot(ID)).isFalse();
+    }
+
+    @Test
+    void scheduledFlushDoesNotBlockAndRequeuesOnTimeout() {
+        VirtualTimeScheduler time = VirtualTimeScheduler.getOrSet();
+        assertThat(ledger.reserve(ID, 1, "clave-1").block()).isEqualTo(Grant.GRANTED);
+        when(bookRepository.applyAvailabilityDeltas(any(), any(), any(), any(), any(), any()))
+                .thenReturn(Flux.never());
+
+        ledger.scheduledFlush();
+        // La escritura sigue en curso: el siguiente intervalo no lanza otra
+        ledger.scheduledFlush();
+        verify(bookRepository, times(1)).applyAvailabilityDeltas(any(), any(), any(), any(), any(), any());
+        assertThat(status().pendingDelta()).isZero();
+
+        time.advanceTimeBy(Duration.ofSeconds(11));
+        assertThat(status().pendingDelta()).isEqualTo(-1);
+        // La clave sigue pendiente: un reintento no vuelve a conceder la copia
+        assertThat(ledger.reserve(ID, 1, "clave-1").block()).isEqualTo(Grant.ALREADY_APPLIED);
+
+        ledger.scheduledFlush();
+        verify(bookRepository, times(2)).applyAvailabilityDeltas(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void clampedWritesAreCounted() {
+        assertThat(ledger.reserve(ID, 3)).isEqualTo(Grant.GRANTED);
+        when(bookRepository.applyAvailabilityDeltas(any(), any(), any(), any(), any(), any()))
+                .thenReturn(Flux.just(new AppliedDelta(ID, 0, -1)));
+
+        StepVerifier.create(ledger.unmarkHot(ID)).verifyComplete();
+        assertThat(meterRegistry.counter("inventory.ledger.clamped").count()).isEqualTo(1);
+    }
+
+    private HotTitleStatus status() {
+        return ledger.status().blockFirst();
+    }
+}
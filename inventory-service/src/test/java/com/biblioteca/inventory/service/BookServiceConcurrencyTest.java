@@ -0,0 +1,132 @@
+package com.biblioteca.inventory.service;
+
+import com.biblioteca.inventory.PostgresTestDatabase;
+import com.biblioteca.inventory.dto.BookRequest;
+import com.biblioteca.inventory.dto.BookResponse;
+import com.biblioteca.inventory.exception.StockUpdateRejectedException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Reservas y devoluciones concurrentes sobre un mismo libro: la sentencia
+ * condicional no vende de más ni pierde actualizaciones
+ */
+@SpringBootTest(properties = {
+    "inventory.gateway-cache.purge-url=",
+    "inventory.availability-feed.enabled=false",
+    "inventory.ledger.enabled=false",
+    "logging.level.com.biblioteca.inventory=INFO",
+    "logging.level.org.springframework.r2dbc=INFO"
+})
+class BookServiceConcurrencyTest {
+
+    private static final int COPIES = 100;
+    private static final int REQUESTS = 2000;
+    private static final int CONCURRENCY = 64;
+    private static final AtomicLong ISBNS = new AtomicLong();
+
+    @Autowired
+    private BookService bookService;
+
+    @BeforeAll
+    static void database() {
+        assumeTrue(PostgresTestDatabase.reset(), "PostgreSQL no disponible");
+    }
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry);
+    }
+
+    @Test
+    void parallelDecrementsNeverOversell() {
+        Long id = newBook(COPIES, COPIES);
+
+        List<Integer> remaining = attempt(REQUESTS, () -> bookService.decrementAvailableCopies(id));
+
+        // Una reserva por copia, cada una ve un stock distinto: ninguna se pisa
+        assertThat(remaining).hasSize(COPIES);
+        assertThat(remaining).doesNotHaveDuplicates();
+        assertThat(remaining).allSatisfy(available -> assertThat(available).isBetween(0, COPIES - 1));
+        assertThat(availableCopies(id)).isZero();
+    }
+
+    @Test
+    void parallelIncrementsNeverExceedTotal() {
+        Long id = newBook(COPIES, 0);
+
+        List<Integer> remaining = attempt(REQUESTS, () -> bookService.incrementAvailableCopies(id));
+
+        assertThat(remaining).hasSize(COPIES);
+        assertThat(remaining).doesNotHaveDuplicates();
+        assertThat(remaining).allSatisfy(available -> assertThat(available).isBetween(1, COPIES));
+        assertThat(availableCopies(id)).isEqualTo(COPIES);
+    }
+
+    @Test
+    void mixedParallelUpdatesKeepTheBalance() {
+        Long id = newBook(COPIES, COPIES / 2);
+
+        List<Boolean> decrements = Flux.range(0, REQUESTS)
+                .flatMap(i -> applied(i % 2 == 0
+                        ? bookService.decrementAvailableCopies(id)
+                        : bookService.incrementAvailableCopies(id))
+                        .map(response -> i % 2 == 0), CONCURRENCY)
+                .collectList()
+                .block(Duration.ofMinutes(1));
+
+        long taken = decrements.stream().filter(decrement -> decrement).count();
+        long returned = decrements.size() - taken;
+        assertThat(availableCopies(id)).isEqualTo(COPIES / 2 - (int) taken + (int) returned);
+    }
+
+    /**
+     * Lanzar requests operaciones en paralelo y devolver las copias disponibles
+     * que vio cada una que se aplicó
+     */
+    private List<Integer> attempt(int requests, Supplier<Mono<BookResponse>> operation) {
+        return Flux.range(0, requests)
+                .flatMap(i -> applied(Mono.defer(operation)).map(BookResponse::availableCopies), CONCURRENCY)
+                .collectList()
+                .block(Duration.ofMinutes(1));
+    }
+
+    /**
+     * Las operaciones rechazadas por falta de stock no cuentan
+     */
+    private static Mono<BookResponse> applied(Mono<BookResponse> operation) {
+        return operation
+                .subscribeOn(Schedulers.parallel())
+                .onErrorResume(StockUpdateRejectedException.class, error -> Mono.empty());
+    }
+
+    private Long newBook(int totalCopies, int availableCopies) {
+        String isbn = "978-0-00-" + String.format("%06d", ISBNS.incrementAndGet());
+        return bookService.createBook(new BookRequest(isbn, "Libro concurrente " + isbn, "Autora", "Editorial",
+                        2024, "Pruebas", totalCopies, availableCopies, null))
+                .map(BookResponse::id)
+                .block(Duration.ofSeconds(10));
+    }
+
+    private int availableCopies(Long id) {
+        return Optional.ofNullable(bookService.getBookById(id).block(Duration.ofSeconds(10)))
+                .map(BookResponse::availableCopies)
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,81 @@
+package com.biblioteca.loan.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Disponibilidad conocida de los libros en el loan-service.
+ *
+ * Una micro-caché de TTL muy corto (desactivada por defecto) recuerda los
+ * libros que el inventario ha rechazado por falta de copias, para rechazar
+ * rápido las ráfagas de préstamos del mismo libro sin llamar al inventario.
+ * Las reservas y devoluciones hechas desde este servicio invalidan la entrada
+ * del libro.
+ *
+ * Métrica inventory.availability.lookups con el tag result=hit (rechazos
+ * respondidos desde la micro-caché).
+ */
+@Component
+@Slf4j
+public class AvailabilityLookup {
+
+    private final Cache<Long, Boolean> recent;
+    private final Counter hits;
+
+    public AvailabilityLookup(MeterRegistry meterRegistry,
+                              @Value("${inventory.client.availability.micro-cache-ttl:0ms}") Duration microCacheTtl,
+                              @Value("${inventory.client.availability.micro-cache-max-size:10000}") long maxSize) {
+        this.recent = microCacheTtl.isZero() || microCacheTtl.isNegative()
+                ? null
+                : Caffeine.newBuilder()
+                        .expireAfterWrite(microCacheTtl)
+                        .maximumSize(maxSize)
+                        .build();
+        this.hits = Counter.builder("inventory.availability.lookups")
+                .description("Consultas de disponibilidad al inventory-service")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        log.info("Disponibilidad conocida de libros: micro-caché {}",
+                recent == null ? "desactivada" : "ttl=" + microCacheTtl);
+    }
+
+    /**
+     * Si la micro-caché ya sabe que el libro no tiene copias. Solo sirve para
+     * rechazar rápido: una respuesta positiva nunca evita la reserva real.
+     */
+    public boolean isKnownUnavailable(Long bookId) {
+        if (recent == null) {
+            return false;
+        }
+        boolean unavailable = Boolean.FALSE.equals(recent.getIfPresent(bookId));
+        if (unavailable) {
+            hits.increment();
+        }
+        return unavailable;
+    }
+
+    /**
+     * Recordar que el inventario rechazó una reserva por falta de copias
+     */
+    public void rememberUnavailable(Long bookId) {
+        if (recent != null) {
+            recent.put(bookId, false);
+        }
+    }
+
+    /**
+     * Olvidar la disponibilidad conocida de un libro tras cambiar su stock
+     */
+    public void invalidate(Long bookId) {
+        if (recent != null) {
+            recent.invalidate(bookId);
+        }
+    }
+}
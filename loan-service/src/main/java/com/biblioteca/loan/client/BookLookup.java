@@ -0,0 +1,64 @@
+package com.biblioteca.loan.client;
+
+import com.biblioteca.loan.dto.BookSummary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Consultas de libros al inventory-service (GET /api/books/batch) agrupadas.
+ *
+ * Las consultas concurrentes de la misma lista de libros (las estadísticas
+ * más vistas piden siempre los mismos) comparten una única llamada en curso y
+ * su resultado; la siguiente consulta tras terminar esa llamada vuelve a
+ * preguntar al inventario. Los errores nunca se guardan.
+ *
+ * Métrica inventory.book.lookups con el tag result: upstream (llamada real) o
+ * coalesced (se unió a una llamada en curso).
+ */
+@Component
+public class BookLookup {
+
+    private final InventoryClient inventoryClient;
+    private final Map<List<Long>, Mono<List<BookSummary>>> inFlight = new ConcurrentHashMap<>();
+    private final Counter upstream;
+    private final Counter coalesced;
+
+    public BookLookup(InventoryClient inventoryClient, MeterRegistry meterRegistry) {
+        this.inventoryClient = inventoryClient;
+        this.upstream = lookups(meterRegistry, "upstream");
+        this.coalesced = lookups(meterRegistry, "coalesced");
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("inventory.book.lookups")
+                .description("Consultas de libros por lotes al inventory-service")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Consultar varios libros en una sola llamada (los inexistentes se omiten)
+     */
+    public Mono<List<BookSummary>> getBooks(List<Long> bookIds) {
+        List<Long> key = List.copyOf(bookIds);
+        return Mono.defer(() -> {
+            boolean[] created = new boolean[1];
+            Mono<List<BookSummary>> call = inFlight.computeIfAbsent(key, ids -> {
+                created[0] = true;
+                return inventoryClient.getBooks(ids)
+                        // La entrada se retira al terminar: las siguientes consultas vuelven a llamar
+                        .doFinally(signal -> inFlight.remove(ids))
+                        // Compartida: cancelar un suscriptor no cancela la llamada de los demás
+                        .cache();
+            });
+            (created[0] ? upstream : coalesced).increment();
+            return call;
+        });
+    }
+}
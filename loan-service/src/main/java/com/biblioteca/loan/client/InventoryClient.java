@@ -0,0 +1,113 @@
+package com.biblioteca.loan.client;
+
+import com.biblioteca.loan.dto.BookStockResult;
+import com.biblioteca.loan.dto.BookSummary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cliente HTTP del inventory-service.
+ *
+ * Se construye una sola vez en WebClientConfig sobre un pool de conexiones
+ * dimensionado y reutiliza el mismo WebClient en todas las llamadas. Cada
+ * operación tiene su propio tiempo máximo de respuesta.
+ */
+@Slf4j
+public class InventoryClient {
+
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    private final WebClient webClient;
+    private final Duration availabilityTimeout;
+    private final Duration decrementTimeout;
+    private final Duration incrementTimeout;
+
+    public InventoryClient(WebClient webClient,
+                           Duration availabilityTimeout,
+                           Duration decrementTimeout,
+                           Duration incrementTimeout) {
+        this.webClient = webClient;
+        this.availabilityTimeout = availabilityTimeout;
+        this.decrementTimeout = decrementTimeout;
+        this.incrementTimeout = incrementTimeout;
+    }
+
+    /**
+     * Consultar si un libro tiene copias disponibles
+     * GET /api/books/{id}/availability
+     */
+    public Mono<Boolean> checkAvailability(Long bookId) {
+        return webClient.get()
+                .uri("/api/books/{id}/availability", bookId)
+                .retrieve()
+                .bodyToMono(Boolean.class)
+                .timeout(availabilityTimeout);
+    }
+
+    /**
+     * Consultar varios libros en una sola llamada (los inexistentes se omiten)
+     * GET /api/books/batch?ids=1,2,3
+     */
+    public Mono<List<BookSummary>> getBooks(List<Long> bookIds) {
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/books/batch")
+                        .queryParam("ids", bookIds.toArray())
+                        .build())
+                .retrieve()
+                .bodyToFlux(BookSummary.class)
+                .collectList()
+                .timeout(availabilityTimeout);
+    }
+
+    /**
+     * Reservar una copia de un libro. El inventario aplica una sola vez cada
+     * clave de idempotencia, por lo que la llamada se puede reintentar.
+     * POST /api/books/{id}/decrement
+     */
+    public Mono<Void> decrementCopies(Long bookId, String idempotencyKey) {
+        return webClient.post()
+                .uri("/api/books/{id}/decrement", bookId)
+                .header(IDEMPOTENCY_KEY, idempotencyKey)
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(decrementTimeout)
+                .then();
+    }
+
+    /**
+     * Liberar una copia de un libro. El inventario aplica una sola vez cada
+     * clave de idempotencia, por lo que la llamada se puede reintentar.
+     * POST /api/books/{id}/increment
+     */
+    public Mono<Void> incrementCopies(Long bookId, String idempotencyKey) {
+        return webClient.post()
+                .uri("/api/books/{id}/increment", bookId)
+                .header(IDEMPOTENCY_KEY, idempotencyKey)
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(incrementTimeout)
+                .then();
+    }
+
+    /**
+     * Reservar una copia de cada libro en una sola llamada. El inventario
+     * registra cada libro con la clave {id}:{idempotencyKey}, que también sirve
+     * para reintentar ese libro por separado.
+     * POST /api/books/batch/decrement
+     */
+    public Mono<List<BookStockResult>> decrementCopiesBatch(List<Long> bookIds, String idempotencyKey) {
+        return webClient.post()
+                .uri("/api/books/batch/decrement")
+                .header(IDEMPOTENCY_KEY, idempotencyKey)
+                .bodyValue(Map.of("bookIds", bookIds))
+                .retrieve()
+                .bodyToFlux(BookStockResult.class)
+                .collectList()
+                .timeout(decrementTimeout);
+    }
+}
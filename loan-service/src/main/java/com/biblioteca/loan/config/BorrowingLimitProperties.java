@@ -0,0 +1,23 @@
+package com.biblioteca.loan.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Límites de préstamos activos por usuario (loan.limits). Un usuario pertenece
+ * al nivel cuyo email-domains incluye el dominio de su email; si ninguno lo
+ * incluye, se aplica default-max-active-loans.
+ */
+@ConfigurationProperties(prefix = "loan.limits")
+public record BorrowingLimitProperties(
+    @DefaultValue("5") int defaultMaxActiveLoans,
+    @DefaultValue Map<String, Tier> tiers
+) {
+    public record Tier(
+        int maxActiveLoans,
+        @DefaultValue List<String> emailDomains
+    ) {}
+}
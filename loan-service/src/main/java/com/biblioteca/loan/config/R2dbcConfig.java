@@ -0,0 +1,40 @@
+package com.biblioteca.loan.config;
+
+import com.biblioteca.loan.model.LoanStatus;
+import io.r2dbc.postgresql.PostgresqlConnectionFactoryProvider;
+import io.r2dbc.postgresql.codec.EnumCodec;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.boot.autoconfigure.r2dbc.ConnectionFactoryOptionsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.r2dbc.convert.EnumWriteSupport;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.dialect.DialectResolver;
+
+import java.util.List;
+
+/**
+ * Configuración de R2DBC: el estado del préstamo se envía como el tipo enum
+ * loan_status de PostgreSQL y no como texto, que la columna rechaza
+ */
+@Configuration
+public class R2dbcConfig {
+
+    @Bean
+    public ConnectionFactoryOptionsBuilderCustomizer loanStatusEnumCodec() {
+        return builder -> builder.option(PostgresqlConnectionFactoryProvider.EXTENSIONS,
+                List.of(EnumCodec.builder().withEnum("loan_status", LoanStatus.class).build()));
+    }
+
+    @Bean
+    public R2dbcCustomConversions r2dbcCustomConversions(ConnectionFactory connectionFactory) {
+        return R2dbcCustomConversions.of(DialectResolver.getDialect(connectionFactory),
+                List.of(new LoanStatusWritingConverter()));
+    }
+
+    // Mantener LoanStatus como enum al escribir para que lo codifique EnumCodec
+    @WritingConverter
+    static class LoanStatusWritingConverter extends EnumWriteSupport<LoanStatus> {
+    }
+}
@@ -1,18 +1,78 @@
 package com.biblioteca.loan.config;
 
+import com.biblioteca.loan.client.InventoryClient;
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 /**
- * Configuración de WebClient para comunicación entre microservicios
+ * Configuración de WebClient para comunicación entre microservicios.
+ *
+ * Se parte del WebClient.Builder de Spring Boot, que ya registra la métrica
+ * http.client.requests (latencia por URI plantilla). El pool de conexiones
+ * publica además las métricas reactor.netty.connection.provider.* (conexiones
+ * activas, ociosas y peticiones esperando conexión).
  */
 @Configuration
+@Slf4j
 public class WebClientConfig {
 
+    /**
+     * Pool de conexiones compartido por todas las llamadas al inventory-service
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider inventoryConnectionProvider(
+            @Value("${inventory.client.max-connections:50}") int maxConnections,
+            @Value("${inventory.client.pending-acquire-max-count:500}") int pendingAcquireMaxCount,
+            @Value("${inventory.client.pending-acquire-timeout:2s}") Duration pendingAcquireTimeout,
+            @Value("${inventory.client.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${inventory.client.max-life-time:5m}") Duration maxLifeTime) {
+        return ConnectionProvider.builder("inventory-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                // Cerrar en segundo plano las conexiones ociosas o caducadas
+                .evictInBackground(maxIdleTime)
+                .metrics(true)
+                .build();
+    }
+
     @Bean
-    public WebClient.Builder webClientBuilder() {
-        return WebClient.builder();
+    public InventoryClient inventoryClient(
+            WebClient.Builder webClientBuilder,
+            ConnectionProvider inventoryConnectionProvider,
+            @Value("${inventory.service.url:http://inventory-service:8081}") String inventoryServiceUrl,
+            @Value("${inventory.client.connect-timeout:1s}") Duration connectTimeout,
+            @Value("${inventory.client.h2c:false}") boolean h2c,
+            @Value("${inventory.client.timeouts.availability:2s}") Duration availabilityTimeout,
+            @Value("${inventory.client.timeouts.decrement:3s}") Duration decrementTimeout,
+            @Value("${inventory.client.timeouts.increment:3s}") Duration incrementTimeout) {
+        HttpClient httpClient = HttpClient.create(inventoryConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true);
+        if (h2c) {
+            // HTTP/2 sin TLS: varias peticiones concurrentes por conexión
+            httpClient = httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+
+        WebClient webClient = webClientBuilder.clone()
+                .baseUrl(inventoryServiceUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+
+        log.info("Cliente de inventario configurado: url={}, h2c={}", inventoryServiceUrl, h2c);
+        return new InventoryClient(webClient, availabilityTimeout, decrementTimeout, incrementTimeout);
     }
 }
-
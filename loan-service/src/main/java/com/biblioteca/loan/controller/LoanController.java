@@ -1,13 +1,18 @@
 package com.biblioteca.loan.controller;
 
+import com.biblioteca.loan.dto.LoanBatchRequest;
+import com.biblioteca.loan.dto.LoanBatchResponse;
+import com.biblioteca.loan.dto.LoanPage;
 import com.biblioteca.loan.dto.LoanRequest;
 import com.biblioteca.loan.dto.LoanResponse;
+import com.biblioteca.loan.dto.OverdueSweepSummary;
 import com.biblioteca.loan.model.LoanStatus;
 import com.biblioteca.loan.service.LoanService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
@@ -34,6 +39,30 @@ public class LoanController {
         return loanService.getAllLoans();
     }
 
+    /**
+     * Obtener el historial de préstamos paginado por cursor, del más reciente al más antiguo
+     * GET /api/loans?size=50&cursor=...&from=2024-01-01&to=2024-12-31
+     */
+    @GetMapping(params = "size")
+    public Mono<LoanPage> getLoansPage(
+            @RequestParam int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return loanService.getLoansPage(from, to, cursor, size);
+    }
+
+    /**
+     * Streaming NDJSON del historial de préstamos
+     * GET /api/loans?from=...&to=... (Accept: application/x-ndjson)
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<LoanResponse> streamLoans(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return loanService.streamLoans(from, to);
+    }
+
     /**
      * Obtener préstamo por ID
      * GET /api/loans/{id}
@@ -54,6 +83,32 @@ public class LoanController {
         return loanService.getLoansByUser(email);
     }
 
+    /**
+     * Obtener los préstamos de un usuario paginados por cursor
+     * GET /api/loans/user/{email}?size=50&cursor=...&from=...&to=...
+     */
+    @GetMapping(value = "/user/{email}", params = "size")
+    public Mono<LoanPage> getLoansByUserPage(
+            @PathVariable String email,
+            @RequestParam int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return loanService.getLoansByUserPage(email, from, to, cursor, size);
+    }
+
+    /**
+     * Streaming NDJSON de los préstamos de un usuario
+     * GET /api/loans/user/{email} (Accept: application/x-ndjson)
+     */
+    @GetMapping(value = "/user/{email}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<LoanResponse> streamLoansByUser(
+            @PathVariable String email,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return loanService.streamLoansByUser(email, from, to);
+    }
+
     /**
      * Obtener préstamos activos de un usuario
      * GET /api/loans/user/{email}/active
@@ -63,6 +118,15 @@ public class LoanController {
         return loanService.getActiveLoanssByUser(email);
     }
 
+    /**
+     * Obtener préstamos en curso (activos y vencidos) de un usuario
+     * GET /api/loans/user/{email}/open
+     */
+    @GetMapping("/user/{email}/open")
+    public Flux<LoanResponse> getOpenLoansByUser(@PathVariable String email) {
+        return loanService.getOpenLoansByUser(email);
+    }
+
     /**
      * Obtener préstamos por libro
      * GET /api/loans/book/{bookId}
@@ -72,6 +136,32 @@ public class LoanController {
         return loanService.getLoansByBook(bookId);
     }
 
+    /**
+     * Obtener los préstamos de un libro paginados por cursor
+     * GET /api/loans/book/{bookId}?size=50&cursor=...&from=...&to=...
+     */
+    @GetMapping(value = "/book/{bookId}", params = "size")
+    public Mono<LoanPage> getLoansByBookPage(
+            @PathVariable Long bookId,
+            @RequestParam int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return loanService.getLoansByBookPage(bookId, from, to, cursor, size);
+    }
+
+    /**
+     * Streaming NDJSON de los préstamos de un libro
+     * GET /api/loans/book/{bookId} (Accept: application/x-ndjson)
+     */
+    @GetMapping(value = "/book/{bookId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<LoanResponse> streamLoansByBook(
+            @PathVariable Long bookId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return loanService.streamLoansByBook(bookId, from, to);
+    }
+
     /**
      * Obtener préstamos por estado
      * GET /api/loans/status/{status}
@@ -81,6 +171,32 @@ public class LoanController {
         return loanService.getLoansByStatus(status);
     }
 
+    /**
+     * Obtener los préstamos con un estado paginados por cursor
+     * GET /api/loans/status/{status}?size=50&cursor=...&from=...&to=...
+     */
+    @GetMapping(value = "/status/{status}", params = "size")
+    public Mono<LoanPage> getLoansByStatusPage(
+            @PathVariable LoanStatus status,
+            @RequestParam int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return loanService.getLoansByStatusPage(status, from, to, cursor, size);
+    }
+
+    /**
+     * Streaming NDJSON de los préstamos con un estado
+     * GET /api/loans/status/{status} (Accept: application/x-ndjson)
+     */
+    @GetMapping(value = "/status/{status}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<LoanResponse> streamLoansByStatus(
+            @PathVariable LoanStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return loanService.streamLoansByStatus(status, from, to);
+    }
+
     /**
      * Obtener préstamos vencidos
      * GET /api/loans/overdue
@@ -100,6 +216,19 @@ public class LoanController {
         return loanService.createLoan(request);
     }
 
+    /**
+     * Crear varios préstamos de un usuario en una sola operación (todo o nada).
+     * 201 si se crearon todos; 409 con el motivo de cada libro si no se creó ninguno.
+     * POST /api/loans/batch
+     */
+    @PostMapping("/batch")
+    public Mono<ResponseEntity<LoanBatchResponse>> createLoans(@Valid @RequestBody LoanBatchRequest request) {
+        return loanService.createLoans(request)
+                .map(response -> ResponseEntity
+                        .status(response.created() ? HttpStatus.CREATED : HttpStatus.CONFLICT)
+                        .body(response));
+    }
+
     /**
      * Devolver un libro
      * POST /api/loans/{id}/return
@@ -136,11 +265,11 @@ public class LoanController {
     }
 
     /**
-     * Actualizar préstamos vencidos
+     * Actualizar préstamos vencidos (resumen del barrido)
      * POST /api/loans/update-overdue
      */
     @PostMapping("/update-overdue")
-    public Flux<LoanResponse> updateOverdueLoans() {
+    public Mono<OverdueSweepSummary> updateOverdueLoans() {
         return loanService.updateOverdueLoans();
     }
 }
@@ -0,0 +1,77 @@
+package com.biblioteca.loan.controller;
+
+import com.biblioteca.loan.dto.BookLoanStatsResponse;
+import com.biblioteca.loan.dto.CategoryLoanStats;
+import com.biblioteca.loan.dto.LoanStatsRebuildSummary;
+import com.biblioteca.loan.dto.LoanStatsSummary;
+import com.biblioteca.loan.dto.LoanStatsVerification;
+import com.biblioteca.loan.service.LoanStatsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Controlador REST reactivo para las estadísticas de préstamos
+ */
+@RestController
+@RequestMapping("/api/loans/stats")
+@RequiredArgsConstructor
+public class LoanStatsController {
+
+    private final LoanStatsService loanStatsService;
+
+    /**
+     * Totales de préstamos y duración media
+     * GET /api/loans/stats
+     */
+    @GetMapping
+    public Mono<LoanStatsSummary> getSummary() {
+        return loanStatsService.getSummary();
+    }
+
+    /**
+     * Estadísticas de préstamos de un libro
+     * GET /api/loans/stats/books/{bookId}
+     */
+    @GetMapping("/books/{bookId}")
+    public Mono<BookLoanStatsResponse> getBookStats(@PathVariable Long bookId) {
+        return loanStatsService.getBookStats(bookId);
+    }
+
+    /**
+     * Libros más prestados
+     * GET /api/loans/stats/top?limit=10
+     */
+    @GetMapping("/top")
+    public Flux<BookLoanStatsResponse> getMostBorrowed(@RequestParam(defaultValue = "10") int limit) {
+        return loanStatsService.getMostBorrowed(limit);
+    }
+
+    /**
+     * Préstamos en curso por categoría
+     * GET /api/loans/stats/categories
+     */
+    @GetMapping("/categories")
+    public Flux<CategoryLoanStats> getLoansOutByCategory() {
+        return loanStatsService.getLoansOutByCategory();
+    }
+
+    /**
+     * Reconstruir las estadísticas desde cero (tarea administrativa)
+     * POST /api/loans/stats/rebuild
+     */
+    @PostMapping("/rebuild")
+    public Mono<LoanStatsRebuildSummary> rebuild() {
+        return loanStatsService.rebuild();
+    }
+
+    /**
+     * Comparar las estadísticas con un recálculo completo
+     * GET /api/loans/stats/verify
+     */
+    @GetMapping("/verify")
+    public Mono<LoanStatsVerification> verify() {
+        return loanStatsService.verify();
+    }
+}
@@ -0,0 +1,35 @@
+package com.biblioteca.loan.dto;
+
+import com.biblioteca.loan.model.BookLoanStats;
+
+/**
+ * DTO Record con las estadísticas de préstamos de un libro. title es null si
+ * no se pudo consultar el inventario.
+ */
+public record BookLoanStatsResponse(
+    Long bookId,
+    String title,
+    Long totalLoans,
+    Long activeLoans,
+    Long overdueLoans,
+    Long returnedLoans,
+    Long cancelledLoans,
+    Double averageLoanDays
+) {
+    public static BookLoanStatsResponse fromStats(BookLoanStats stats, String title) {
+        return new BookLoanStatsResponse(
+            stats.bookId(),
+            title,
+            stats.totalLoans(),
+            stats.activeLoans(),
+            stats.overdueLoans(),
+            stats.returnedLoans(),
+            stats.cancelledLoans(),
+            stats.averageLoanDays()
+        );
+    }
+
+    public static BookLoanStatsResponse fromStats(BookLoanStats stats) {
+        return fromStats(stats, null);
+    }
+}
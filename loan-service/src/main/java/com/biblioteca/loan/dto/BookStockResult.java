@@ -0,0 +1,13 @@
+package com.biblioteca.loan.dto;
+
+/**
+ * DTO Record con el resultado de una operación de stock del inventory-service
+ * para un libro
+ */
+public record BookStockResult(
+    Long bookId,
+    Integer quantity,
+    Boolean success,
+    Integer availableCopies,
+    String message
+) {}
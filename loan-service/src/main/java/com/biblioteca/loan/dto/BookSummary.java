@@ -0,0 +1,12 @@
+package com.biblioteca.loan.dto;
+
+/**
+ * DTO Record con los datos de un libro del inventory-service que usan las
+ * estadísticas de préstamos
+ */
+public record BookSummary(
+    Long id,
+    String title,
+    String author,
+    String category
+) {}
@@ -0,0 +1,11 @@
+package com.biblioteca.loan.dto;
+
+/**
+ * DTO Record con los préstamos en curso (activos y vencidos) de una categoría
+ */
+public record CategoryLoanStats(
+    String category,
+    Long activeLoans,
+    Long overdueLoans,
+    Integer books
+) {}
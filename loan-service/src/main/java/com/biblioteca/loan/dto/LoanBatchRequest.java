@@ -0,0 +1,32 @@
+package com.biblioteca.loan.dto;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Future;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DTO Record para solicitudes de varios préstamos de un mismo usuario
+ */
+public record LoanBatchRequest(
+    @NotEmpty(message = "Debe indicar al menos un libro")
+    @Size(max = 20, message = "No se pueden prestar más de 20 libros por operación")
+    List<@NotNull(message = "Los IDs de libro no pueden ser nulos") Long> bookIds,
+    
+    @NotBlank(message = "El email del usuario es obligatorio")
+    @Email(message = "El email debe ser válido")
+    String userEmail,
+    
+    @NotBlank(message = "El nombre del usuario es obligatorio")
+    String userName,
+    
+    @NotNull(message = "La fecha de vencimiento es obligatoria")
+    @Future(message = "La fecha de vencimiento debe ser futura")
+    LocalDate dueDate,
+    
+    String notes
+) {}
@@ -0,0 +1,28 @@
+package com.biblioteca.loan.dto;
+
+import java.util.List;
+
+/**
+ * DTO Record con el resultado de una solicitud de varios préstamos: o se
+ * crean todos (created = true) o ninguno, con el motivo de cada libro
+ */
+public record LoanBatchResponse(
+    Boolean created,
+    String message,
+    List<Item> items
+) {
+    public enum Status {
+        CREATED,
+        // El inventario no tenía copias del libro (o no existe)
+        UNAVAILABLE,
+        // El libro estaba disponible pero la operación no se completó
+        NOT_CREATED
+    }
+
+    public record Item(
+        Long bookId,
+        Status status,
+        LoanResponse loan,
+        String message
+    ) {}
+}
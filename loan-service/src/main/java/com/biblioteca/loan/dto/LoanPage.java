@@ -0,0 +1,13 @@
+package com.biblioteca.loan.dto;
+
+import java.util.List;
+
+/**
+ * DTO Record para una página de préstamos paginada por cursor, del más
+ * reciente al más antiguo. nextCursor es null cuando no hay más resultados.
+ */
+public record LoanPage(
+    List<LoanResponse> content,
+    Integer size,
+    String nextCursor
+) {}
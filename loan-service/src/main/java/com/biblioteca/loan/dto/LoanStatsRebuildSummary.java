@@ -0,0 +1,9 @@
+package com.biblioteca.loan.dto;
+
+/**
+ * DTO Record con el resultado de reconstruir las estadísticas de préstamos
+ */
+public record LoanStatsRebuildSummary(
+    Integer books,
+    Long durationMs
+) {}
@@ -0,0 +1,14 @@
+package com.biblioteca.loan.dto;
+
+/**
+ * DTO Record con los totales de préstamos de toda la biblioteca
+ */
+public record LoanStatsSummary(
+    Long booksWithLoans,
+    Long totalLoans,
+    Long activeLoans,
+    Long overdueLoans,
+    Long returnedLoans,
+    Long cancelledLoans,
+    Double averageLoanDays
+) {}
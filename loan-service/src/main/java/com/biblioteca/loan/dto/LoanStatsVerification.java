@@ -0,0 +1,24 @@
+package com.biblioteca.loan.dto;
+
+import java.util.List;
+
+/**
+ * DTO Record con la comparación entre las estadísticas mantenidas de forma
+ * incremental y un recálculo completo desde loans. mismatches incluye como
+ * mucho los primeros 100 libros con diferencias.
+ */
+public record LoanStatsVerification(
+    Boolean consistent,
+    Integer booksChecked,
+    Integer mismatchCount,
+    List<Mismatch> mismatches
+) {
+    /**
+     * Libro cuyos agregados no coinciden; expected o actual es null si falta la fila
+     */
+    public record Mismatch(
+        Long bookId,
+        BookLoanStatsResponse expected,
+        BookLoanStatsResponse actual
+    ) {}
+}
@@ -0,0 +1,15 @@
+package com.biblioteca.loan.dto;
+
+import java.time.LocalDate;
+
+/**
+ * DTO Record con el resumen de un barrido de préstamos vencidos
+ */
+public record OverdueSweepSummary(
+    Long sweepId,
+    LocalDate sweepDate,
+    Long markedCount,
+    Integer chunks,
+    Boolean resumed,
+    Long durationMs
+) {}
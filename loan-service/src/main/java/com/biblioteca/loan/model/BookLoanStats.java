@@ -0,0 +1,45 @@
+package com.biblioteca.loan.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Record con los agregados de préstamos de un libro (tabla loan_book_stats),
+ * mantenidos por LoanService en las mismas sentencias o transacciones que
+ * cambian los préstamos
+ */
+@Table("loan_book_stats")
+public record BookLoanStats(
+    @Id @Column("book_id") Long bookId,
+    @Column("total_loans") Long totalLoans,
+    @Column("active_loans") Long activeLoans,
+    @Column("overdue_loans") Long overdueLoans,
+    @Column("returned_loans") Long returnedLoans,
+    @Column("cancelled_loans") Long cancelledLoans,
+    // Suma de (return_date - loan_date) de los préstamos devueltos
+    @Column("total_loan_days") Long totalLoanDays,
+    @Column("updated_at") LocalDateTime updatedAt
+) {
+    /**
+     * Duración media en días de los préstamos devueltos, o null si no hay ninguno
+     */
+    public Double averageLoanDays() {
+        return returnedLoans == null || returnedLoans == 0 ? null : (double) totalLoanDays / returnedLoans;
+    }
+
+    /**
+     * Mismos contadores, sin tener en cuenta cuándo se actualizaron
+     */
+    public boolean sameCounters(BookLoanStats other) {
+        return other != null
+                && totalLoans.equals(other.totalLoans)
+                && activeLoans.equals(other.activeLoans)
+                && overdueLoans.equals(other.overdueLoans)
+                && returnedLoans.equals(other.returnedLoans)
+                && cancelledLoans.equals(other.cancelledLoans)
+                && totalLoanDays.equals(other.totalLoanDays);
+    }
+}
@@ -0,0 +1,46 @@
+package com.biblioteca.loan.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Record que representa un cambio de stock pendiente de enviar al
+ * inventory-service (bandeja de salida)
+ */
+@Table("inventory_outbox")
+public record InventoryOutboxEntry(
+    @Id Long id,
+    @Column("loan_id") Long loanId,
+    @Column("book_id") Long bookId,
+    StockOperation operation,
+    @Column("idempotency_key") String idempotencyKey,
+    Integer attempts,
+    @Column("created_at") LocalDateTime createdAt
+) {
+    // Clave de idempotencia de una operación de stock de un préstamo
+    public static String idempotencyKey(Long loanId, StockOperation operation) {
+        return "loan-" + loanId + "-" + operation.name().toLowerCase();
+    }
+
+    // Clave de idempotencia de una operación de stock de una reserva (antes de crear el préstamo)
+    public static String reservationKey(String reservationId, StockOperation operation) {
+        return "reservation-" + reservationId + "-" + operation.name().toLowerCase();
+    }
+
+    // Clave de un libro dentro de una operación de stock sobre varios libros
+    public static String batchItemKey(String batchKey, Long bookId) {
+        return bookId + ":" + batchKey;
+    }
+
+    // Clave de la operación inversa (el incremento que deshace un decremento)
+    public static String releaseKey(String decrementKey) {
+        return decrementKey.replaceFirst("-decrement$", "-increment");
+    }
+
+    public String releaseKey() {
+        return releaseKey(idempotencyKey);
+    }
+}
@@ -0,0 +1,11 @@
+package com.biblioteca.loan.model;
+
+import java.time.LocalDate;
+
+/**
+ * Proyección con el id y la fecha de vencimiento de un préstamo activo
+ */
+public record LoanDueDate(
+    Long id,
+    LocalDate dueDate
+) {}
@@ -0,0 +1,23 @@
+package com.biblioteca.loan.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Record que representa una ejecución del barrido de préstamos vencidos y su
+ * progreso (último préstamo procesado)
+ */
+@Table("overdue_sweeps")
+public record OverdueSweep(
+    @Id Long id,
+    @Column("sweep_date") LocalDate sweepDate,
+    @Column("last_loan_id") Long lastLoanId,
+    @Column("marked_count") Long markedCount,
+    Integer chunks,
+    @Column("started_at") LocalDateTime startedAt,
+    @Column("finished_at") LocalDateTime finishedAt
+) {}
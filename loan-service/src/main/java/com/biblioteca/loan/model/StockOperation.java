@@ -0,0 +1,9 @@
+package com.biblioteca.loan.model;
+
+/**
+ * Cambios de stock que el loan-service pide al inventory-service
+ */
+public enum StockOperation {
+    DECREMENT,   // Reservar una copia (préstamo)
+    INCREMENT    // Liberar una copia (devolución o cancelación)
+}
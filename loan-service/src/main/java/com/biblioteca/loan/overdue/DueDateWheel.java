@@ -0,0 +1,207 @@
+package com.biblioteca.loan.overdue;
+
+import java.util.Arrays;
+
+/**
+ * Rueda de temporización jerárquica por día de vencimiento (día de época).
+ *
+ * Tres niveles de 64 ranuras: el nivel 0 tiene una ranura por día del bloque
+ * de 64 días actual, el nivel 1 una por bloque de 64 días dentro del bloque de
+ * 4096 actual y el nivel 2 una por bloque de 4096 días (unos 700 años); lo que
+ * queda más lejos va a un conjunto de desbordamiento. Al entrar en un bloque
+ * nuevo, la ranura correspondiente del nivel superior se reparte hacia abajo.
+ * Así, avanzar un día solo toca los préstamos que vencen ese día.
+ *
+ * Cada entrada es un long con el id del préstamo y su día de vencimiento
+ * empaquetados, guardado en conjuntos de long sin objetos por préstamo. Los
+ * préstamos cuyo vencimiento ya pasó se guardan solo por id hasta el siguiente
+ * avance.
+ *
+ * No es segura para hilos: quien la usa debe sincronizar el acceso.
+ */
+public final class DueDateWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 3;
+
+    // Días de época hasta 9999-12-31 (2.932.896) caben en 22 bits
+    private static final int DAY_BITS = 22;
+    private static final long DAY_MASK = (1L << DAY_BITS) - 1;
+
+    /**
+     * Mayor id de préstamo que se puede empaquetar con su día de vencimiento
+     */
+    public static final long MAX_LOAN_ID = (1L << (Long.SIZE - 1 - DAY_BITS)) - 1;
+
+    private final LongHashSet[][] slots = new LongHashSet[LEVELS][SLOTS];
+    private final LongHashSet overflow = new LongHashSet();
+    // Ids de préstamos cuyo vencimiento ya pasó, pendientes del siguiente avance
+    private final LongHashSet due = new LongHashSet();
+    // Primer día cuyos vencimientos aún no se han disparado
+    private long now;
+    private int size;
+
+    /**
+     * Rueda vacía en la que ya han vencido los préstamos anteriores a today
+     */
+    public DueDateWheel(long today) {
+        if (today < 0 || today > DAY_MASK) {
+            throw new IllegalArgumentException("Día fuera de rango: " + today);
+        }
+        this.now = today;
+    }
+
+    /**
+     * Préstamos en la rueda (incluidos los ya vencidos pendientes de avance)
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Programar un préstamo. Si su día ya pasó queda pendiente para el siguiente
+     * avance. Devuelve false si ya estaba programado para ese día.
+     */
+    public boolean add(long loanId, long dueDay) {
+        checkLoanId(loanId);
+        if (dueDay < 0 || dueDay > DAY_MASK) {
+            throw new IllegalArgumentException("Día fuera de rango: " + dueDay);
+        }
+        boolean added = dueDay < now ? due.add(loanId) : place(pack(loanId, dueDay));
+        if (added) {
+            size++;
+        }
+        return added;
+    }
+
+    /**
+     * Dejar de vigilar un préstamo programado para dueDay (devuelto, cancelado
+     * o renovado). Devuelve false si no estaba.
+     */
+    public boolean remove(long loanId, long dueDay) {
+        checkLoanId(loanId);
+        boolean removed = dueDay < now ? due.remove(loanId) : unplace(pack(loanId, dueDay));
+        if (removed) {
+            size--;
+        }
+        return removed;
+    }
+
+    /**
+     * Avanzar hasta today y devolver los ids de los préstamos que vencieron
+     * antes de ese día, ordenados. Cada día recorrido solo toca su ranura y,
+     * al cambiar de bloque, la ranura del nivel superior que se reparte.
+     */
+    public long[] advance(long today) {
+        LongList expired = new LongList(due.size());
+        due.forEach(expired::add);
+        due.clear();
+        while (now < today) {
+            cascade(now);
+            int slot = (int) (now & SLOT_MASK);
+            LongHashSet fired = slots[0][slot];
+            if (fired != null) {
+                fired.forEach(entry -> expired.add(loanId(entry)));
+                slots[0][slot] = null;
+            }
+            now++;
+        }
+        size -= expired.size();
+        long[] ids = expired.toArray();
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Bytes aproximados de las tablas de la rueda
+     */
+    public long estimatedBytes() {
+        long bytes = overflow.tableBytes() + due.tableBytes();
+        for (LongHashSet[] level : slots) {
+            for (LongHashSet slot : level) {
+                if (slot != null) {
+                    bytes += slot.tableBytes();
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Al empezar un bloque de 64, 4096 o 2^18 días, repartir hacia abajo la
+     * ranura del nivel superior que corresponde al bloque
+     */
+    private void cascade(long day) {
+        if ((day & ((1L << (SLOT_BITS * LEVELS)) - 1)) == 0 && !overflow.isEmpty()) {
+            LongList entries = new LongList(overflow.size());
+            overflow.forEach(entries::add);
+            overflow.clear();
+            entries.forEach(this::place);
+        }
+        for (int level = LEVELS - 1; level >= 1; level--) {
+            if ((day & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                int slot = (int) (day >>> (SLOT_BITS * level)) & SLOT_MASK;
+                LongHashSet entries = slots[level][slot];
+                if (entries != null) {
+                    slots[level][slot] = null;
+                    entries.forEach(this::place);
+                }
+            }
+        }
+    }
+
+    /**
+     * Nivel más bajo cuyo bloque superior comparte el día con now
+     */
+    private boolean place(long entry) {
+        long day = entry & DAY_MASK;
+        for (int level = 0; level < LEVELS; level++) {
+            int blockShift = SLOT_BITS * (level + 1);
+            if ((day >>> blockShift) == (now >>> blockShift)) {
+                int slot = (int) (day >>> (SLOT_BITS * level)) & SLOT_MASK;
+                LongHashSet entries = slots[level][slot];
+                if (entries == null) {
+                    entries = new LongHashSet();
+                    slots[level][slot] = entries;
+                }
+                return entries.add(entry);
+            }
+        }
+        return overflow.add(entry);
+    }
+
+    /**
+     * La entrada puede seguir en un nivel superior al que le tocaría ahora si
+     * su bloque aún no se ha repartido, así que se busca en todos
+     */
+    private boolean unplace(long entry) {
+        long day = entry & DAY_MASK;
+        for (int level = 0; level < LEVELS; level++) {
+            int slot = (int) (day >>> (SLOT_BITS * level)) & SLOT_MASK;
+            LongHashSet entries = slots[level][slot];
+            if (entries != null && entries.remove(entry)) {
+                if (entries.isEmpty()) {
+                    slots[level][slot] = null;
+                }
+                return true;
+            }
+        }
+        return overflow.remove(entry);
+    }
+
+    private static long pack(long loanId, long dueDay) {
+        return (loanId << DAY_BITS) | dueDay;
+    }
+
+    private static long loanId(long entry) {
+        return entry >>> DAY_BITS;
+    }
+
+    private static void checkLoanId(long loanId) {
+        if (loanId <= 0 || loanId > MAX_LOAN_ID) {
+            throw new IllegalArgumentException("ID de préstamo fuera de rango: " + loanId);
+        }
+    }
+}
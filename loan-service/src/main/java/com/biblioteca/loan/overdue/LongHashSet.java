@@ -0,0 +1,135 @@
+package com.biblioteca.loan.overdue;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Conjunto de long positivos con direccionamiento abierto (sondeo lineal) sobre
+ * un único long[], sin objetos por elemento. El 0 marca una celda libre, así
+ * que no se admite como valor. Al borrar se desplazan hacia atrás los
+ * elementos siguientes del mismo grupo, sin dejar marcas de borrado.
+ */
+final class LongHashSet {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] table;
+    private int size;
+
+    LongHashSet() {
+        this.table = new long[MIN_CAPACITY];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Añadir un valor; devuelve false si ya estaba
+     */
+    boolean add(long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("Solo se admiten valores positivos: " + value);
+        }
+        int mask = table.length - 1;
+        int index = index(value, mask);
+        while (table[index] != 0) {
+            if (table[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        table[index] = value;
+        // Ocupación máxima del 75 %
+        if (++size > (table.length >>> 2) * 3) {
+            resize(table.length << 1);
+        }
+        return true;
+    }
+
+    boolean contains(long value) {
+        int mask = table.length - 1;
+        int index = index(value, mask);
+        while (table[index] != 0) {
+            if (table[index] == value) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Quitar un valor; devuelve false si no estaba
+     */
+    boolean remove(long value) {
+        int mask = table.length - 1;
+        int index = index(value, mask);
+        while (table[index] != value) {
+            if (table[index] == 0) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        // Desplazar hacia atrás los elementos que no quedarían accesibles con el hueco
+        int gap = index;
+        int next = (gap + 1) & mask;
+        while (table[next] != 0) {
+            int home = index(table[next], mask);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                table[gap] = table[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[gap] = 0;
+        size--;
+        return true;
+    }
+
+    /**
+     * Vaciar el conjunto y liberar la tabla
+     */
+    void clear() {
+        table = new long[MIN_CAPACITY];
+        size = 0;
+    }
+
+    void forEach(LongConsumer action) {
+        for (long value : table) {
+            if (value != 0) {
+                action.accept(value);
+            }
+        }
+    }
+
+    /**
+     * Bytes ocupados por la tabla (sin la cabecera de los objetos)
+     */
+    long tableBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    private void resize(int capacity) {
+        long[] old = table;
+        table = new long[capacity];
+        int mask = capacity - 1;
+        for (long value : old) {
+            if (value != 0) {
+                int index = index(value, mask);
+                while (table[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                table[index] = value;
+            }
+        }
+    }
+
+    private static int index(long value, int mask) {
+        // Mezcla de Fibonacci: los ids consecutivos se reparten por toda la tabla
+        return (int) ((value * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+}
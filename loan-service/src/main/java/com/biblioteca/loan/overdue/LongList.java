@@ -0,0 +1,38 @@
+package com.biblioteca.loan.overdue;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Lista de long que crece bajo demanda, sin boxing
+ */
+final class LongList {
+
+    private long[] values;
+    private int size;
+
+    LongList(int expectedSize) {
+        this.values = new long[Math.max(expectedSize, 8)];
+    }
+
+    void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length << 1);
+        }
+        values[size++] = value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(LongConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(values[i]);
+        }
+    }
+
+    long[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,218 @@
+package com.biblioteca.loan.overdue;
+
+import com.biblioteca.loan.model.Loan;
+import com.biblioteca.loan.model.LoanDueDate;
+import com.biblioteca.loan.repository.LoanRepository;
+import com.biblioteca.loan.service.ActiveLoanCounters;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Detección de préstamos vencidos con una rueda de temporización en memoria
+ * (DueDateWheel) indexada por fecha de vencimiento.
+ *
+ * La rueda se carga al arrancar con los préstamos activos y la mantienen al
+ * día las altas, renovaciones, devoluciones y cancelaciones de LoanService.
+ * Cada tick avanza la rueda hasta hoy y marca como vencidos, en lotes, solo
+ * los préstamos cuyo día ya pasó; si el día no ha cambiado no hace nada.
+ *
+ * El marcado comprueba en la base de datos que el préstamo siga activo y con
+ * fecha pasada, así que una entrada desfasada (cambios de otra instancia, una
+ * renovación que no llegó a confirmarse) no marca nada por error. Los cambios
+ * hechos fuera de esta instancia los recoge el barrido diario (OverdueSweeper).
+ * Tras un reinicio, la carga inicial recupera los préstamos que vencieron con
+ * el servicio parado y el primer tick los marca.
+ */
+@Component
+@Slf4j
+public class OverdueWheel {
+
+    private static final int LOAD_CHUNK_SIZE = 5000;
+
+    private final LoanRepository loanRepository;
+    private final ActiveLoanCounters activeLoanCounters;
+    private final boolean enabled;
+    private final int batchSize;
+    private final DueDateWheel wheel;
+    private final AtomicBoolean ticking = new AtomicBoolean();
+    private final Counter marked;
+    private volatile boolean loaded;
+
+    public OverdueWheel(LoanRepository loanRepository,
+                        ActiveLoanCounters activeLoanCounters,
+                        MeterRegistry meterRegistry,
+                        @Value("${loan.overdue-wheel.enabled:true}") boolean enabled,
+                        @Value("${loan.overdue-wheel.batch-size:500}") int batchSize) {
+        this.loanRepository = loanRepository;
+        this.activeLoanCounters = activeLoanCounters;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.wheel = new DueDateWheel(LocalDate.now().toEpochDay());
+        // Mismo contador que el barrido: préstamos marcados como vencidos
+        this.marked = Counter.builder("loans.overdue.marked")
+                .description("Préstamos marcados como vencidos por el barrido")
+                .register(meterRegistry);
+        Gauge.builder("loans.overdue.wheel.size", this, OverdueWheel::size)
+                .description("Préstamos activos vigilados por la rueda de vencimientos")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Cargar los préstamos activos y marcar los que vencieron mientras el
+     * servicio estaba parado
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        load()
+                .doOnNext(count -> {
+                    loaded = true;
+                    log.info("Rueda de vencimientos cargada: {} préstamos activos en {} ms",
+                            count, (System.nanoTime() - startNanos) / 1_000_000);
+                })
+                .then(Mono.defer(this::tick))
+                .subscribe(
+                    count -> { },
+                    error -> log.error("Error al cargar la rueda de vencimientos: {}", error.getMessage(), error)
+                );
+    }
+
+    /**
+     * Vigilar un préstamo activo nuevo
+     */
+    public void track(Long loanId, LocalDate dueDate) {
+        if (enabled) {
+            synchronized (wheel) {
+                wheel.add(loanId, dueDate.toEpochDay());
+            }
+        }
+    }
+
+    /**
+     * Dejar de vigilar un préstamo devuelto o cancelado
+     */
+    public void untrack(Long loanId, LocalDate dueDate) {
+        if (enabled) {
+            synchronized (wheel) {
+                wheel.remove(loanId, dueDate.toEpochDay());
+            }
+        }
+    }
+
+    /**
+     * Mover un préstamo renovado a su nueva fecha de vencimiento
+     */
+    public void reschedule(Long loanId, LocalDate previousDueDate, LocalDate newDueDate) {
+        if (enabled) {
+            synchronized (wheel) {
+                wheel.remove(loanId, previousDueDate.toEpochDay());
+                wheel.add(loanId, newDueDate.toEpochDay());
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${loan.overdue-wheel.tick-interval-ms:60000}")
+    public void scheduledTick() {
+        if (enabled && loaded) {
+            tick().subscribe(
+                count -> { },
+                error -> log.error("Error al marcar préstamos vencidos: {}", error.getMessage(), error)
+            );
+        }
+    }
+
+    /**
+     * Avanzar la rueda hasta hoy y marcar los préstamos vencidos en lotes.
+     * Devuelve cuántos se marcaron; si ya hay un tick en curso no hace nada.
+     */
+    public Mono<Long> tick() {
+        if (!ticking.compareAndSet(false, true)) {
+            return Mono.just(0L);
+        }
+        LocalDate today = LocalDate.now();
+        long[] expired;
+        synchronized (wheel) {
+            expired = wheel.advance(today.toEpochDay());
+        }
+        if (expired.length == 0) {
+            ticking.set(false);
+            return Mono.just(0L);
+        }
+        log.debug("Rueda de vencimientos: {} préstamos vencidos antes de {}", expired.length, today);
+        return Flux.range(0, (expired.length + batchSize - 1) / batchSize)
+                .map(batch -> Arrays.copyOfRange(expired, batch * batchSize,
+                        Math.min(expired.length, (batch + 1) * batchSize)))
+                .concatMap(ids -> markBatch(ids, today))
+                .reduce(0L, Long::sum)
+                .doOnNext(count -> {
+                    if (count > 0) {
+                        log.info("Rueda de vencimientos: {} préstamos marcados como vencidos", count);
+                    }
+                })
+                .doFinally(signal -> ticking.set(false));
+    }
+
+    private Mono<Long> markBatch(long[] ids, LocalDate today) {
+        return loanRepository.markOverdue(Arrays.stream(ids).boxed().toArray(Long[]::new), today)
+                .collectList()
+                .map(loans -> {
+                    // Los vencidos dejan de contar como activos para el límite
+                    loans.forEach(loan -> activeLoanCounters.release(loan.userEmail()));
+                    marked.increment(loans.size());
+                    return (long) loans.size();
+                })
+                .onErrorResume(error -> {
+                    // Devolverlos a la rueda como ya vencidos para el siguiente tick
+                    log.error("Error al marcar {} préstamos vencidos: {}", ids.length, error.getMessage());
+                    long yesterday = today.minusDays(1).toEpochDay();
+                    synchronized (wheel) {
+                        for (long id : ids) {
+                            wheel.add(id, yesterday);
+                        }
+                    }
+                    return Mono.just(0L);
+                });
+    }
+
+    /**
+     * Recorrer los préstamos activos por id en bloques y añadirlos a la rueda
+     */
+    private Mono<Long> load() {
+        return loanRepository.findActiveDueDates(0L, LOAD_CHUNK_SIZE).collectList()
+                .expand(chunk -> chunk.size() < LOAD_CHUNK_SIZE
+                        ? Mono.empty()
+                        : loanRepository.findActiveDueDates(chunk.get(chunk.size() - 1).id(), LOAD_CHUNK_SIZE).collectList())
+                .map(this::addAll)
+                .reduce(0L, Long::sum);
+    }
+
+    private long addAll(List<LoanDueDate> chunk) {
+        synchronized (wheel) {
+            chunk.forEach(loan -> wheel.add(loan.id(), loan.dueDate().toEpochDay()));
+        }
+        return chunk.size();
+    }
+}
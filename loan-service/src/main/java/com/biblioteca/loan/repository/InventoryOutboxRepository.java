@@ -0,0 +1,63 @@
+package com.biblioteca.loan.repository;
+
+import com.biblioteca.loan.model.InventoryOutboxEntry;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Repository reactivo para la bandeja de salida de cambios de stock
+ */
+@Repository
+public interface InventoryOutboxRepository extends R2dbcRepository<InventoryOutboxEntry, Long> {
+    
+    /**
+     * Encolar un cambio de stock. Si la clave ya existe no se duplica.
+     */
+    @Modifying
+    @Query("INSERT INTO inventory_outbox (loan_id, book_id, operation, idempotency_key) " +
+           "VALUES (:loanId, :bookId, :operation, :idempotencyKey) " +
+           "ON CONFLICT (idempotency_key) DO NOTHING")
+    Mono<Integer> enqueue(Long loanId, Long bookId, String operation, String idempotencyKey);
+    
+    /**
+     * Marcar como fallida una entrada pendiente por su clave (p. ej. la
+     * liberación de una reserva que el inventario nunca llegó a aplicar)
+     */
+    @Modifying
+    @Query("UPDATE inventory_outbox SET failed_at = CURRENT_TIMESTAMP, last_error = :reason " +
+           "WHERE idempotency_key = :idempotencyKey AND failed_at IS NULL")
+    Mono<Integer> discardPending(String idempotencyKey, String reason);
+    
+    /**
+     * Reclamar un lote de entradas listas para enviar. Solo se toma la entrada
+     * pendiente más antigua de cada libro, de modo que los cambios de un mismo
+     * libro se envían en orden. SKIP LOCKED y la concesión (locked_until)
+     * permiten varias instancias sin enviar dos veces la misma entrada.
+     */
+    @Query("UPDATE inventory_outbox o " +
+           "SET locked_until = CURRENT_TIMESTAMP + make_interval(secs => :leaseSeconds), attempts = o.attempts + 1 " +
+           "WHERE o.id IN (" +
+           "  SELECT c.id FROM inventory_outbox c " +
+           "  WHERE c.failed_at IS NULL AND c.next_attempt_at <= CURRENT_TIMESTAMP " +
+           "  AND (c.locked_until IS NULL OR c.locked_until < CURRENT_TIMESTAMP) " +
+           "  AND NOT EXISTS (SELECT 1 FROM inventory_outbox p " +
+           "                  WHERE p.book_id = c.book_id AND p.id < c.id AND p.failed_at IS NULL) " +
+           "  ORDER BY c.id LIMIT :batchSize FOR UPDATE SKIP LOCKED) " +
+           "RETURNING o.*")
+    Flux<InventoryOutboxEntry> claimBatch(int batchSize, long leaseSeconds);
+    
+    /**
+     * Programar un nuevo intento tras un fallo, o marcar la entrada como
+     * fallida si se agotaron los intentos (deja de bloquear a las siguientes)
+     */
+    @Modifying
+    @Query("UPDATE inventory_outbox SET locked_until = NULL, last_error = :error, " +
+           "next_attempt_at = CURRENT_TIMESTAMP + make_interval(secs => :delaySeconds), " +
+           "failed_at = CASE WHEN attempts >= :maxAttempts THEN CURRENT_TIMESTAMP END " +
+           "WHERE id = :id")
+    Mono<Integer> reschedule(Long id, String error, long delaySeconds, int maxAttempts);
+}
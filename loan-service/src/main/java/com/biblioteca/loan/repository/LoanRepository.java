@@ -1,6 +1,7 @@
 package com.biblioteca.loan.repository;
 
 import com.biblioteca.loan.model.Loan;
+import com.biblioteca.loan.model.LoanDueDate;
 import com.biblioteca.loan.model.LoanStatus;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
@@ -31,12 +32,53 @@ public interface LoanRepository extends R2dbcRepository<Loan, Long> {
      */
     Flux<Loan> findByStatus(LoanStatus status);
     
+    /**
+     * Página de préstamos del más reciente al más antiguo por (loan_date, id):
+     * los anteriores a (beforeDate, beforeId) con loan_date desde fromDate
+     */
+    @Query("SELECT * FROM loans " +
+           "WHERE (loan_date, id) < (:beforeDate, :beforeId) AND loan_date >= :fromDate " +
+           "ORDER BY loan_date DESC, id DESC LIMIT :limit")
+    Flux<Loan> findPage(LocalDate beforeDate, Long beforeId, LocalDate fromDate, int limit);
+    
+    /**
+     * Página de préstamos de un usuario por (loan_date, id)
+     */
+    @Query("SELECT * FROM loans " +
+           "WHERE user_email = :userEmail AND (loan_date, id) < (:beforeDate, :beforeId) AND loan_date >= :fromDate " +
+           "ORDER BY loan_date DESC, id DESC LIMIT :limit")
+    Flux<Loan> findByUserEmailPage(String userEmail, LocalDate beforeDate, Long beforeId, LocalDate fromDate, int limit);
+    
+    /**
+     * Página de préstamos de un libro por (loan_date, id)
+     */
+    @Query("SELECT * FROM loans " +
+           "WHERE book_id = :bookId AND (loan_date, id) < (:beforeDate, :beforeId) AND loan_date >= :fromDate " +
+           "ORDER BY loan_date DESC, id DESC LIMIT :limit")
+    Flux<Loan> findByBookIdPage(Long bookId, LocalDate beforeDate, Long beforeId, LocalDate fromDate, int limit);
+    
+    /**
+     * Página de préstamos con un estado por (loan_date, id)
+     */
+    @Query("SELECT * FROM loans " +
+           "WHERE status = CAST(:status AS loan_status) AND (loan_date, id) < (:beforeDate, :beforeId) AND loan_date >= :fromDate " +
+           "ORDER BY loan_date DESC, id DESC LIMIT :limit")
+    Flux<Loan> findByStatusPage(String status, LocalDate beforeDate, Long beforeId, LocalDate fromDate, int limit);
+    
     /**
      * Buscar préstamos activos de un usuario
      */
     @Query("SELECT * FROM loans WHERE user_email = :userEmail AND status = 'ACTIVE'")
     Flux<Loan> findActiveLoanssByUser(String userEmail);
     
+    /**
+     * Buscar préstamos en curso (activos y vencidos) de un usuario, del que
+     * vence antes al que vence después
+     */
+    @Query("SELECT * FROM loans WHERE user_email = :userEmail AND status IN ('ACTIVE', 'OVERDUE') " +
+           "ORDER BY due_date, id")
+    Flux<Loan> findOpenLoansByUser(String userEmail);
+    
     /**
      * Buscar préstamos activos de un libro
      */
@@ -49,6 +91,54 @@ public interface LoanRepository extends R2dbcRepository<Loan, Long> {
     @Query("SELECT * FROM loans WHERE status = 'ACTIVE' AND due_date < :currentDate AND return_date IS NULL")
     Flux<Loan> findOverdueLoans(LocalDate currentDate);
     
+    /**
+     * Insertar préstamos activos de un usuario para varios libros con una sola
+     * sentencia, en el orden de bookIds. La misma sentencia suma los préstamos
+     * a loan_book_stats (en orden de libro, para no cruzar bloqueos con otras altas).
+     */
+    @Query("WITH inserted AS (" +
+           "  INSERT INTO loans (book_id, user_email, user_name, loan_date, due_date, status, notes) " +
+           "  SELECT t.book_id, :userEmail, :userName, :loanDate, :dueDate, 'ACTIVE', :notes " +
+           "  FROM unnest(:bookIds) WITH ORDINALITY AS t(book_id, position) ORDER BY t.position " +
+           "  RETURNING *), " +
+           "stats AS (" +
+           "  INSERT INTO loan_book_stats (book_id, total_loans, active_loans) " +
+           "  SELECT book_id, COUNT(*), COUNT(*) FROM inserted GROUP BY book_id ORDER BY book_id " +
+           "  ON CONFLICT (book_id) DO UPDATE SET " +
+           "    total_loans = loan_book_stats.total_loans + EXCLUDED.total_loans, " +
+           "    active_loans = loan_book_stats.active_loans + EXCLUDED.active_loans, " +
+           "    updated_at = CURRENT_TIMESTAMP) " +
+           "SELECT * FROM inserted ORDER BY id")
+    Flux<Loan> insertActiveLoans(Long[] bookIds, String userEmail, String userName,
+                                 LocalDate loanDate, LocalDate dueDate, String notes);
+    
+    /**
+     * Vencimientos de los préstamos activos con id mayor que afterId, en orden de id
+     */
+    @Query("SELECT id, due_date FROM loans " +
+           "WHERE status = 'ACTIVE' AND return_date IS NULL AND id > :afterId " +
+           "ORDER BY id LIMIT :limit")
+    Flux<LoanDueDate> findActiveDueDates(Long afterId, int limit);
+    
+    /**
+     * Marcar como vencidos los préstamos indicados que sigan activos con fecha
+     * pasada (los devueltos, cancelados o renovados entretanto se ignoran) y
+     * pasarlos de activos a vencidos en loan_book_stats en la misma sentencia
+     */
+    @Query("WITH marked AS (" +
+           "  UPDATE loans SET status = 'OVERDUE', updated_at = CURRENT_TIMESTAMP " +
+           "  WHERE id = ANY(:loanIds) AND status = 'ACTIVE' AND return_date IS NULL AND due_date < :currentDate " +
+           "  RETURNING *), " +
+           "stats AS (" +
+           "  UPDATE loan_book_stats s SET " +
+           "    active_loans = s.active_loans - m.marked, " +
+           "    overdue_loans = s.overdue_loans + m.marked, " +
+           "    updated_at = CURRENT_TIMESTAMP " +
+           "  FROM (SELECT book_id, COUNT(*) AS marked FROM marked GROUP BY book_id) m " +
+           "  WHERE s.book_id = m.book_id) " +
+           "SELECT * FROM marked ORDER BY id")
+    Flux<Loan> markOverdue(Long[] loanIds, LocalDate currentDate);
+    
     /**
      * Contar préstamos activos de un usuario
      */
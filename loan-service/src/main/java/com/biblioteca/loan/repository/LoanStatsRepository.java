@@ -0,0 +1,122 @@
+package com.biblioteca.loan.repository;
+
+import com.biblioteca.loan.model.BookLoanStats;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Repository reactivo para los agregados de préstamos por libro
+ * (loan_book_stats). Las altas de préstamos y el barrido de vencidos los
+ * actualizan en su propia sentencia (ver LoanRepository y
+ * OverdueSweepRepository); aquí están las devoluciones, las cancelaciones,
+ * las consultas y la reconstrucción.
+ */
+@Repository
+public interface LoanStatsRepository extends R2dbcRepository<BookLoanStats, Long> {
+    
+    /**
+     * Totales de todos los libros en una fila (book_id es null)
+     */
+    @Query("SELECT NULL::bigint AS book_id, " +
+           "COALESCE(SUM(total_loans), 0)::bigint AS total_loans, " +
+           "COALESCE(SUM(active_loans), 0)::bigint AS active_loans, " +
+           "COALESCE(SUM(overdue_loans), 0)::bigint AS overdue_loans, " +
+           "COALESCE(SUM(returned_loans), 0)::bigint AS returned_loans, " +
+           "COALESCE(SUM(cancelled_loans), 0)::bigint AS cancelled_loans, " +
+           "COALESCE(SUM(total_loan_days), 0)::bigint AS total_loan_days, " +
+           "MAX(updated_at) AS updated_at " +
+           "FROM loan_book_stats")
+    Mono<BookLoanStats> totals();
+    
+    /**
+     * Número de libros con algún préstamo
+     */
+    @Query("SELECT COUNT(*) FROM loan_book_stats WHERE total_loans > 0")
+    Mono<Long> countBooksWithLoans();
+    
+    /**
+     * Libros más prestados
+     */
+    @Query("SELECT * FROM loan_book_stats ORDER BY total_loans DESC, book_id LIMIT :limit")
+    Flux<BookLoanStats> findMostBorrowed(int limit);
+    
+    /**
+     * Libros con préstamos en curso (activos o vencidos)
+     */
+    @Query("SELECT * FROM loan_book_stats WHERE active_loans > 0 OR overdue_loans > 0 ORDER BY book_id")
+    Flux<BookLoanStats> findWithLoansOut();
+    
+    /**
+     * Registrar la devolución de un préstamo que estaba en previousStatus
+     * (ACTIVE u OVERDUE) y duró loanDays días
+     */
+    @Modifying
+    @Query("UPDATE loan_book_stats SET " +
+           "active_loans = active_loans - CASE WHEN :previousStatus = 'ACTIVE' THEN 1 ELSE 0 END, " +
+           "overdue_loans = overdue_loans - CASE WHEN :previousStatus = 'OVERDUE' THEN 1 ELSE 0 END, " +
+           "returned_loans = returned_loans + 1, " +
+           "total_loan_days = total_loan_days + :loanDays, " +
+           "updated_at = CURRENT_TIMESTAMP " +
+           "WHERE book_id = :bookId")
+    Mono<Integer> recordReturned(Long bookId, String previousStatus, long loanDays);
+    
+    /**
+     * Registrar la cancelación de un préstamo activo
+     */
+    @Modifying
+    @Query("UPDATE loan_book_stats SET " +
+           "active_loans = active_loans - 1, " +
+           "cancelled_loans = cancelled_loans + 1, " +
+           "updated_at = CURRENT_TIMESTAMP " +
+           "WHERE book_id = :bookId")
+    Mono<Integer> recordCancelled(Long bookId);
+    
+    /**
+     * Agregados recalculados desde cero a partir de loans (recorre la tabla entera)
+     */
+    @Query("SELECT book_id, " +
+           "COUNT(*) AS total_loans, " +
+           "COUNT(*) FILTER (WHERE status = 'ACTIVE') AS active_loans, " +
+           "COUNT(*) FILTER (WHERE status = 'OVERDUE') AS overdue_loans, " +
+           "COUNT(*) FILTER (WHERE status = 'RETURNED') AS returned_loans, " +
+           "COUNT(*) FILTER (WHERE status = 'CANCELLED') AS cancelled_loans, " +
+           "COALESCE(SUM(return_date - loan_date) FILTER (WHERE status = 'RETURNED'), 0)::bigint AS total_loan_days, " +
+           "NULL::timestamp AS updated_at " +
+           "FROM loans GROUP BY book_id ORDER BY book_id")
+    Flux<BookLoanStats> recompute();
+    
+    /**
+     * Bloquear los agregados frente a escrituras hasta el final de la transacción.
+     * Las transacciones de préstamos que ya los tocaron terminan antes, y las
+     * nuevas esperan a que acabe la reconstrucción.
+     */
+    @Modifying
+    @Query("LOCK TABLE loan_book_stats IN EXCLUSIVE MODE")
+    Mono<Void> lockForRebuild();
+    
+    /**
+     * Vaciar los agregados
+     */
+    @Modifying
+    @Query("DELETE FROM loan_book_stats")
+    Mono<Integer> clear();
+    
+    /**
+     * Rellenar los agregados desde loans con un solo recorrido
+     */
+    @Modifying
+    @Query("INSERT INTO loan_book_stats (book_id, total_loans, active_loans, overdue_loans, " +
+           "returned_loans, cancelled_loans, total_loan_days) " +
+           "SELECT book_id, COUNT(*), " +
+           "COUNT(*) FILTER (WHERE status = 'ACTIVE'), " +
+           "COUNT(*) FILTER (WHERE status = 'OVERDUE'), " +
+           "COUNT(*) FILTER (WHERE status = 'RETURNED'), " +
+           "COUNT(*) FILTER (WHERE status = 'CANCELLED'), " +
+           "COALESCE(SUM(return_date - loan_date) FILTER (WHERE status = 'RETURNED'), 0) " +
+           "FROM loans GROUP BY book_id")
+    Mono<Integer> fillFromLoans();
+}
@@ -0,0 +1,67 @@
+package com.biblioteca.loan.repository;
+
+import com.biblioteca.loan.model.OverdueSweep;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * Repository reactivo para el barrido de préstamos vencidos
+ */
+@Repository
+public interface OverdueSweepRepository extends R2dbcRepository<OverdueSweep, Long> {
+    
+    /**
+     * Buscar el barrido sin terminar más reciente (interrumpido por una caída)
+     */
+    @Query("SELECT * FROM overdue_sweeps WHERE finished_at IS NULL ORDER BY id DESC LIMIT 1")
+    Mono<OverdueSweep> findUnfinished();
+    
+    /**
+     * Registrar el inicio de un barrido
+     */
+    @Query("INSERT INTO overdue_sweeps (sweep_date) VALUES (:sweepDate) RETURNING *")
+    Mono<OverdueSweep> start(LocalDate sweepDate);
+    
+    /**
+     * Marcar como vencido un tramo de hasta chunkSize préstamos con id mayor que
+     * afterId y avanzar el progreso del barrido en la misma sentencia.
+     * Devuelve los ids marcados. SKIP LOCKED evita esperar a préstamos que se
+     * están devolviendo; el siguiente barrido los recoge si siguen activos.
+     * Los marcados pasan de activos a vencidos en loan_book_stats en la misma sentencia.
+     */
+    @Query("WITH chunk AS (" +
+           "  SELECT id FROM loans " +
+           "  WHERE status = 'ACTIVE' AND return_date IS NULL AND due_date < :currentDate AND id > :afterId " +
+           "  ORDER BY id LIMIT :chunkSize FOR UPDATE SKIP LOCKED), " +
+           "marked AS (" +
+           "  UPDATE loans l SET status = 'OVERDUE', updated_at = CURRENT_TIMESTAMP " +
+           "  FROM chunk WHERE l.id = chunk.id RETURNING l.id, l.book_id), " +
+           "stats AS (" +
+           "  UPDATE loan_book_stats s SET " +
+           "    active_loans = s.active_loans - m.marked, " +
+           "    overdue_loans = s.overdue_loans + m.marked, " +
+           "    updated_at = CURRENT_TIMESTAMP " +
+           "  FROM (SELECT book_id, COUNT(*) AS marked FROM marked GROUP BY book_id) m " +
+           "  WHERE s.book_id = m.book_id), " +
+           "progress AS (" +
+           "  UPDATE overdue_sweeps SET " +
+           "    last_loan_id = GREATEST(last_loan_id, COALESCE((SELECT MAX(id) FROM chunk), 0)), " +
+           "    marked_count = marked_count + (SELECT COUNT(*) FROM marked), " +
+           "    chunks = chunks + 1 " +
+           "  WHERE id = :sweepId) " +
+           "SELECT id FROM marked ORDER BY id")
+    Flux<Long> markOverdueChunk(Long sweepId, LocalDate currentDate, Long afterId, int chunkSize);
+    
+    /**
+     * Registrar el fin de un barrido
+     */
+    @Modifying
+    @Query("UPDATE overdue_sweeps SET finished_at = CURRENT_TIMESTAMP WHERE id = :id")
+    Mono<Integer> finish(Long id);
+}
@@ -0,0 +1,210 @@
+package com.biblioteca.loan.service;
+
+import com.biblioteca.loan.repository.LoanRepository;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contadores en memoria de préstamos activos por usuario, para comprobar el
+ * límite sin un COUNT(*) en cada préstamo.
+ *
+ * Cada contador se carga desde la base de datos la primera vez que se usa (las
+ * cargas concurrentes de un mismo email comparten la consulta) y la caché está
+ * acotada en tamaño, así que los usuarios inactivos se desalojan. Las plazas se
+ * toman de forma atómica antes de guardar el préstamo: una plaza tomada queda
+ * pendiente hasta que el préstamo se confirma o se descarta.
+ *
+ * Las cuentas son exactas mientras solo esta instancia cree y devuelva
+ * préstamos; la reconciliación periódica corrige las desviaciones (otras
+ * instancias, cambios directos en la base de datos, desalojos a mitad de un
+ * préstamo). Solo corrige los usuarios sin plazas pendientes ni cambios
+ * mientras se contaba, cuya cuenta de la base de datos ya los incluye.
+ */
+@Component
+@Slf4j
+public class ActiveLoanCounters {
+
+    private final LoanRepository loanRepository;
+    private final AsyncCache<String, UserCounter> counters;
+
+    public ActiveLoanCounters(LoanRepository loanRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${loan.limits.counters.max-size:100000}") long maxSize,
+                              @Value("${loan.limits.counters.expire-after-access:1h}") Duration expireAfterAccess) {
+        this.loanRepository = loanRepository;
+        this.counters = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(expireAfterAccess)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, counters, "loan.active-counters");
+    }
+
+    /**
+     * Tomar una plaza de préstamo activo si el usuario no ha llegado a limit
+     */
+    public Mono<Boolean> tryAcquire(String userEmail, int limit) {
+        return tryAcquire(userEmail, limit, 1);
+    }
+
+    /**
+     * Tomar slots plazas a la vez si caben todas bajo limit, o ninguna
+     */
+    public Mono<Boolean> tryAcquire(String userEmail, int limit, int slots) {
+        return counter(userEmail).map(counter -> {
+            counter.changes.incrementAndGet();
+            while (true) {
+                int current = counter.active.get();
+                if (current + slots > limit) {
+                    return false;
+                }
+                if (counter.active.compareAndSet(current, current + slots)) {
+                    counter.pending.addAndGet(slots);
+                    return true;
+                }
+            }
+        });
+    }
+
+    /**
+     * El préstamo de una plaza tomada se guardó
+     */
+    public void confirm(String userEmail) {
+        confirm(userEmail, 1);
+    }
+
+    /**
+     * Los préstamos de slots plazas tomadas se guardaron
+     */
+    public void confirm(String userEmail, int slots) {
+        UserCounter counter = cached(userEmail);
+        if (counter != null) {
+            counter.changes.incrementAndGet();
+            decrementToZero(counter.pending, slots);
+        }
+    }
+
+    /**
+     * El préstamo de una plaza tomada no llegó a guardarse
+     */
+    public void abort(String userEmail) {
+        abort(userEmail, 1);
+    }
+
+    /**
+     * Los préstamos de slots plazas tomadas no llegaron a guardarse
+     */
+    public void abort(String userEmail, int slots) {
+        UserCounter counter = cached(userEmail);
+        if (counter != null) {
+            counter.changes.incrementAndGet();
+            decrementToZero(counter.pending, slots);
+            decrementToZero(counter.active, slots);
+        }
+    }
+
+    /**
+     * Un préstamo activo se devolvió o canceló
+     */
+    public void release(String userEmail) {
+        UserCounter counter = cached(userEmail);
+        if (counter != null) {
+            counter.changes.incrementAndGet();
+            decrementToZero(counter.active, 1);
+        }
+    }
+
+    /**
+     * Olvidar todos los contadores (p. ej. tras marcar préstamos como vencidos,
+     * que dejan de contar como activos); se recargan al volver a usarse
+     */
+    public void invalidateAll() {
+        counters.synchronous().invalidateAll();
+    }
+
+    /**
+     * Recalcular desde la base de datos los contadores en memoria
+     */
+    @Scheduled(fixedDelayString = "${loan.limits.counters.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        List<String> emails = List.copyOf(counters.asMap().keySet());
+        if (emails.isEmpty()) {
+            return;
+        }
+        Flux.fromIterable(emails)
+                .flatMap(email -> {
+                    UserCounter counter = cached(email);
+                    if (counter == null) {
+                        return Mono.empty();
+                    }
+                    // Leído antes de contar: cualquier cambio posterior puede faltar en la cuenta
+                    long changes = counter.changes.get();
+                    return loanRepository.countActiveLoanssByUser(email)
+                            .doOnNext(count -> correct(email, counter, changes, count.intValue()));
+                }, 8)
+                .then()
+                .subscribe(
+                    v -> { },
+                    error -> log.error("Error al reconciliar contadores de préstamos activos: {}", error.getMessage(), error),
+                    () -> log.debug("Contadores de préstamos activos reconciliados: {}", emails.size())
+                );
+    }
+
+    /**
+     * Sustituir el contador por count si no hay plazas pendientes ni hubo
+     * cambios desde changesBefore; si no, se deja para la siguiente vez
+     */
+    private static void correct(String email, UserCounter counter, long changesBefore, int count) {
+        // Primero el valor y después los cambios: cada cambio se anota antes de aplicarse
+        int current = counter.active.get();
+        if (counter.pending.get() != 0 || counter.changes.get() != changesBefore) {
+            log.debug("Contador de préstamos activos de {} en uso: se reconciliará más adelante", email);
+            return;
+        }
+        if (current != count && counter.active.compareAndSet(current, count)) {
+            log.debug("Contador de préstamos activos de {} corregido: {} -> {}", email, current, count);
+        }
+    }
+
+    private Mono<UserCounter> counter(String userEmail) {
+        return Mono.fromFuture(() -> counters.get(userEmail, (email, executor) ->
+                loanRepository.countActiveLoanssByUser(email)
+                        .map(count -> new UserCounter(count.intValue()))
+                        .toFuture()));
+    }
+
+    private UserCounter cached(String userEmail) {
+        CompletableFuture<UserCounter> future = counters.getIfPresent(userEmail);
+        return future != null && future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+    }
+
+    private static void decrementToZero(AtomicInteger value, int amount) {
+        value.updateAndGet(current -> Math.max(0, current - amount));
+    }
+
+    private static final class UserCounter {
+        // Préstamos activos más plazas tomadas pendientes de guardar
+        private final AtomicInteger active;
+        private final AtomicInteger pending = new AtomicInteger();
+        // Cambios desde esta instancia, para no pisarlos al reconciliar
+        private final AtomicLong changes = new AtomicLong();
+
+        private UserCounter(int active) {
+            this.active = new AtomicInteger(active);
+        }
+    }
+}
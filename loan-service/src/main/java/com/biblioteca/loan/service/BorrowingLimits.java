@@ -0,0 +1,44 @@
+package com.biblioteca.loan.service;
+
+import com.biblioteca.loan.config.BorrowingLimitProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Límite de préstamos activos de cada usuario según su nivel
+ */
+@Component
+@Slf4j
+public class BorrowingLimits {
+
+    private final int defaultMaxActiveLoans;
+    private final Map<String, Integer> maxActiveLoansByDomain = new HashMap<>();
+
+    public BorrowingLimits(BorrowingLimitProperties properties) {
+        this.defaultMaxActiveLoans = properties.defaultMaxActiveLoans();
+        properties.tiers().forEach((name, tier) -> tier.emailDomains().forEach(domain -> {
+            Integer previous = maxActiveLoansByDomain.put(domain.toLowerCase(Locale.ROOT), tier.maxActiveLoans());
+            if (previous != null) {
+                throw new IllegalStateException("El dominio " + domain + " está en más de un nivel de préstamo");
+            }
+        }));
+        log.info("Límites de préstamos activos: {} por defecto, {} dominios con nivel propio",
+                defaultMaxActiveLoans, maxActiveLoansByDomain.size());
+    }
+
+    /**
+     * Máximo de préstamos activos simultáneos de un usuario
+     */
+    public int maxActiveLoans(String userEmail) {
+        int at = userEmail.lastIndexOf('@');
+        if (at < 0) {
+            return defaultMaxActiveLoans;
+        }
+        String domain = userEmail.substring(at + 1).toLowerCase(Locale.ROOT);
+        return maxActiveLoansByDomain.getOrDefault(domain, defaultMaxActiveLoans);
+    }
+}
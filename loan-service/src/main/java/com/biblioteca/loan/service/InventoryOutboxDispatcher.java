@@ -0,0 +1,184 @@
+package com.biblioteca.loan.service;
+
+import com.biblioteca.loan.client.AvailabilityLookup;
+import com.biblioteca.loan.client.InventoryClient;
+import com.biblioteca.loan.model.InventoryOutboxEntry;
+import com.biblioteca.loan.model.StockOperation;
+import com.biblioteca.loan.repository.InventoryOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Envío en segundo plano de la bandeja de salida de cambios de stock.
+ *
+ * Cada ronda reclama un lote de entradas (la más antigua pendiente de cada
+ * libro), las envía en paralelo entre libros con su clave de idempotencia y
+ * borra las confirmadas. Un fallo programa otro intento con espera exponencial;
+ * agotados los intentos, o si el inventario rechaza la operación (4xx), la
+ * entrada queda marcada como fallida para revisarla. Si lo rechazado es un
+ * decremento, su incremento inverso pendiente se descarta también.
+ * Se ejecuta periódicamente y también justo después de cada commit que encola.
+ *
+ * Métricas: inventory.outbox.dispatch (tag result: success, retry, failed) e
+ * inventory.outbox.lag (tiempo desde que se encoló hasta que se confirmó).
+ */
+@Component
+@Slf4j
+public class InventoryOutboxDispatcher {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final InventoryOutboxRepository outboxRepository;
+    private final InventoryClient inventoryClient;
+    private final AvailabilityLookup availabilityLookup;
+    private final int batchSize;
+    private final int concurrency;
+    private final Duration lease;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final int maxAttempts;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean rerun = new AtomicBoolean();
+    private final Counter succeeded;
+    private final Counter retried;
+    private final Counter failed;
+    private final Timer lag;
+
+    public InventoryOutboxDispatcher(InventoryOutboxRepository outboxRepository,
+                                     InventoryClient inventoryClient,
+                                     AvailabilityLookup availabilityLookup,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${loan.outbox.batch-size:100}") int batchSize,
+                                     @Value("${loan.outbox.concurrency:8}") int concurrency,
+                                     @Value("${loan.outbox.lease:30s}") Duration lease,
+                                     @Value("${loan.outbox.initial-backoff:1s}") Duration initialBackoff,
+                                     @Value("${loan.outbox.max-backoff:5m}") Duration maxBackoff,
+                                     @Value("${loan.outbox.max-attempts:10}") int maxAttempts) {
+        this.outboxRepository = outboxRepository;
+        this.inventoryClient = inventoryClient;
+        this.availabilityLookup = availabilityLookup;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.lease = lease;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.maxAttempts = maxAttempts;
+        this.succeeded = dispatches(meterRegistry, "success");
+        this.retried = dispatches(meterRegistry, "retry");
+        this.failed = dispatches(meterRegistry, "failed");
+        this.lag = Timer.builder("inventory.outbox.lag")
+                .description("Tiempo entre encolar un cambio de stock y confirmarlo en el inventario")
+                .register(meterRegistry);
+    }
+
+    private static Counter dispatches(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("inventory.outbox.dispatch")
+                .description("Envíos de cambios de stock al inventory-service")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${loan.outbox.poll-interval-ms:1000}")
+    public void poll() {
+        trigger();
+    }
+
+    /**
+     * Vaciar la bandeja ahora. Si ya hay una ronda en curso, se repite al
+     * terminar para recoger lo encolado mientras tanto.
+     */
+    public void trigger() {
+        if (!running.compareAndSet(false, true)) {
+            rerun.set(true);
+            return;
+        }
+        dispatchBatch()
+                // Seguir mientras se envíe algo: la siguiente entrada de un libro solo
+                // se puede reclamar cuando la anterior ya se confirmó
+                .expand(dispatched -> dispatched > 0 ? dispatchBatch() : Mono.empty())
+                .doFinally(signal -> {
+                    running.set(false);
+                    if (rerun.getAndSet(false)) {
+                        trigger();
+                    }
+                })
+                .subscribe(
+                    dispatched -> { },
+                    error -> log.error("Error al vaciar la bandeja de salida de inventario: {}", error.getMessage(), error)
+                );
+    }
+
+    private Mono<Long> dispatchBatch() {
+        return outboxRepository.claimBatch(batchSize, lease.toSeconds())
+                .flatMap(this::dispatch, concurrency)
+                .count();
+    }
+
+    private Mono<Void> dispatch(InventoryOutboxEntry entry) {
+        Mono<Void> call = entry.operation() == StockOperation.DECREMENT
+                ? inventoryClient.decrementCopies(entry.bookId(), entry.idempotencyKey())
+                : inventoryClient.incrementCopies(entry.bookId(), entry.idempotencyKey());
+
+        return call
+                .then(outboxRepository.deleteById(entry.id()))
+                .doOnSuccess(v -> {
+                    availabilityLookup.invalidate(entry.bookId());
+                    succeeded.increment();
+                    if (entry.createdAt() != null) {
+                        lag.record(Duration.between(entry.createdAt(), LocalDateTime.now()));
+                    }
+                    log.debug("Cambio de stock enviado: {}", entry.idempotencyKey());
+                })
+                .onErrorResume(error -> reschedule(entry, error));
+    }
+
+    private Mono<Void> reschedule(InventoryOutboxEntry entry, Throwable error) {
+        // Un 4xx (sin copias, libro inexistente) no cambia al reintentar
+        boolean rejected = error instanceof WebClientResponseException response
+                && response.getStatusCode().is4xxClientError();
+        boolean exhausted = rejected || entry.attempts() >= maxAttempts;
+        String message = String.valueOf(error.getMessage());
+        if (exhausted) {
+            failed.increment();
+            log.error("Cambio de stock {} descartado tras {} intentos: {}",
+                    entry.idempotencyKey(), entry.attempts(), message);
+        } else {
+            retried.increment();
+            log.warn("Error al enviar el cambio de stock {} (intento {}): {}",
+                    entry.idempotencyKey(), entry.attempts(), message);
+        }
+        Mono<Integer> discardRelease = exhausted && entry.operation() == StockOperation.DECREMENT
+                ? outboxRepository.discardPending(entry.releaseKey(), "Decremento " + entry.idempotencyKey() + " no aplicado")
+                : Mono.just(0);
+        return outboxRepository.reschedule(entry.id(),
+                        message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message,
+                        backoff(entry.attempts()).toSeconds(), rejected ? 0 : maxAttempts)
+                .then(discardRelease)
+                .onErrorResume(e -> {
+                    // La concesión caduca y la entrada se volverá a reclamar
+                    log.error("No se pudo reprogramar {}: {}", entry.idempotencyKey(), e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Espera exponencial: initial-backoff * 2^(intento - 1), como máximo max-backoff
+     */
+    private Duration backoff(int attempts) {
+        int exponent = Math.min(Math.max(attempts - 1, 0), 20);
+        Duration delay = initialBackoff.multipliedBy(1L << exponent);
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+}
@@ -1,20 +1,41 @@
 package com.biblioteca.loan.service;
 
+import com.biblioteca.loan.client.AvailabilityLookup;
+import com.biblioteca.loan.client.InventoryClient;
+import com.biblioteca.loan.dto.LoanBatchRequest;
+import com.biblioteca.loan.dto.LoanBatchResponse;
+import com.biblioteca.loan.dto.LoanPage;
 import com.biblioteca.loan.dto.LoanRequest;
 import com.biblioteca.loan.dto.LoanResponse;
+import com.biblioteca.loan.dto.OverdueSweepSummary;
 import com.biblioteca.loan.model.Loan;
+import com.biblioteca.loan.model.InventoryOutboxEntry;
 import com.biblioteca.loan.model.LoanStatus;
+import com.biblioteca.loan.model.StockOperation;
+import com.biblioteca.loan.overdue.OverdueWheel;
+import com.biblioteca.loan.repository.InventoryOutboxRepository;
 import com.biblioteca.loan.repository.LoanRepository;
+import com.biblioteca.loan.repository.LoanStatsRepository;
+import com.biblioteca.loan.util.PageCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 /**
  * Servicio para gestionar préstamos de libros
@@ -25,13 +46,41 @@ import java.time.LocalDate;
 public class LoanService {
 
     private final LoanRepository loanRepository;
-    private final WebClient.Builder webClientBuilder;
-    
-    @Value("${inventory.service.url:http://inventory-service:8081}")
-    private String inventoryServiceUrl;
+    private final InventoryOutboxRepository outboxRepository;
+    private final InventoryOutboxDispatcher outboxDispatcher;
+    private final AvailabilityLookup availabilityLookup;
+    private final InventoryClient inventoryClient;
+    private final TransactionalOperator transactionalOperator;
+    private final OverdueSweeper overdueSweeper;
+    private final ActiveLoanCounters activeLoanCounters;
+    private final BorrowingLimits borrowingLimits;
+    private final LoanStatsRepository loanStatsRepository;
+    private final OverdueWheel overdueWheel;
+
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int STREAM_CHUNK_SIZE = 500;
+    // Límites de loan_date cuando no se filtra por fechas
+    private static final LocalDate MIN_LOAN_DATE = LocalDate.of(1, 1, 1);
+    private static final LocalDate MAX_LOAN_DATE = LocalDate.of(9999, 12, 31);
 
-    // Límite de libros que un usuario puede tener prestados simultáneamente
-    private static final Long MAX_ACTIVE_LOANS_PER_USER = 5L;
+    /**
+     * Resultado de reservar una copia en el inventario
+     */
+    private enum Reservation {
+        RESERVED,
+        REJECTED,
+        // Error de red, timeout o 5xx: la reserva pudo aplicarse o no
+        UNKNOWN
+    }
+
+    /**
+     * Consulta de una página de préstamos anteriores a (beforeDate, beforeId)
+     * con loan_date desde fromDate, del más reciente al más antiguo
+     */
+    @FunctionalInterface
+    private interface KeysetQuery {
+        Flux<Loan> apply(LocalDate beforeDate, Long beforeId, LocalDate fromDate, int limit);
+    }
 
     /**
      * Obtener todos los préstamos
@@ -72,6 +121,15 @@ public class LoanService {
                 .map(LoanResponse::fromLoan);
     }
 
+    /**
+     * Obtener préstamos en curso (activos y vencidos) de un usuario
+     */
+    public Flux<LoanResponse> getOpenLoansByUser(String userEmail) {
+        log.info("Buscando préstamos en curso del usuario: {}", userEmail);
+        return loanRepository.findOpenLoansByUser(userEmail)
+                .map(LoanResponse::fromLoan);
+    }
+
     /**
      * Obtener préstamos por libro
      */
@@ -90,6 +148,138 @@ public class LoanService {
                 .map(LoanResponse::fromLoan);
     }
 
+    /**
+     * Obtener una página del historial de préstamos por cursor, opcionalmente
+     * entre dos fechas de préstamo
+     */
+    public Mono<LoanPage> getLoansPage(LocalDate from, LocalDate to, String cursor, int size) {
+        log.info("Obteniendo página de préstamos (from={}, to={}, size={})", from, to, size);
+        return toPage(from, to, cursor, size, loanRepository::findPage);
+    }
+
+    /**
+     * Obtener una página de los préstamos de un usuario por cursor
+     */
+    public Mono<LoanPage> getLoansByUserPage(String userEmail, LocalDate from, LocalDate to, String cursor, int size) {
+        log.info("Obteniendo página de préstamos del usuario: {} (size={})", userEmail, size);
+        return toPage(from, to, cursor, size, (beforeDate, beforeId, fromDate, limit) ->
+                loanRepository.findByUserEmailPage(userEmail, beforeDate, beforeId, fromDate, limit));
+    }
+
+    /**
+     * Obtener una página de los préstamos de un libro por cursor
+     */
+    public Mono<LoanPage> getLoansByBookPage(Long bookId, LocalDate from, LocalDate to, String cursor, int size) {
+        log.info("Obteniendo página de préstamos del libro ID: {} (size={})", bookId, size);
+        return toPage(from, to, cursor, size, (beforeDate, beforeId, fromDate, limit) ->
+                loanRepository.findByBookIdPage(bookId, beforeDate, beforeId, fromDate, limit));
+    }
+
+    /**
+     * Obtener una página de los préstamos con un estado por cursor
+     */
+    public Mono<LoanPage> getLoansByStatusPage(LoanStatus status, LocalDate from, LocalDate to, String cursor, int size) {
+        log.info("Obteniendo página de préstamos con estado: {} (size={})", status, size);
+        return toPage(from, to, cursor, size, (beforeDate, beforeId, fromDate, limit) ->
+                loanRepository.findByStatusPage(status.name(), beforeDate, beforeId, fromDate, limit));
+    }
+
+    /**
+     * Streaming del historial de préstamos, del más reciente al más antiguo
+     */
+    public Flux<LoanResponse> streamLoans(LocalDate from, LocalDate to) {
+        log.info("Streaming de préstamos (from={}, to={})", from, to);
+        return streamByKeyset(from, to, loanRepository::findPage);
+    }
+
+    /**
+     * Streaming de los préstamos de un usuario
+     */
+    public Flux<LoanResponse> streamLoansByUser(String userEmail, LocalDate from, LocalDate to) {
+        log.info("Streaming de préstamos del usuario: {}", userEmail);
+        return streamByKeyset(from, to, (beforeDate, beforeId, fromDate, limit) ->
+                loanRepository.findByUserEmailPage(userEmail, beforeDate, beforeId, fromDate, limit));
+    }
+
+    /**
+     * Streaming de los préstamos de un libro
+     */
+    public Flux<LoanResponse> streamLoansByBook(Long bookId, LocalDate from, LocalDate to) {
+        log.info("Streaming de préstamos del libro ID: {}", bookId);
+        return streamByKeyset(from, to, (beforeDate, beforeId, fromDate, limit) ->
+                loanRepository.findByBookIdPage(bookId, beforeDate, beforeId, fromDate, limit));
+    }
+
+    /**
+     * Streaming de los préstamos con un estado
+     */
+    public Flux<LoanResponse> streamLoansByStatus(LoanStatus status, LocalDate from, LocalDate to) {
+        log.info("Streaming de préstamos con estado: {}", status);
+        return streamByKeyset(from, to, (beforeDate, beforeId, fromDate, limit) ->
+                loanRepository.findByStatusPage(status.name(), beforeDate, beforeId, fromDate, limit));
+    }
+
+    /**
+     * Leer size + 1 filas para saber si existe una página siguiente sin contar la tabla
+     */
+    private Mono<LoanPage> toPage(LocalDate from, LocalDate to, String cursor, int size, KeysetQuery pageQuery) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "El tamaño de página debe estar entre 1 y " + MAX_PAGE_SIZE
+            ));
+        }
+        return Mono.fromCallable(() -> startPosition(from, to, cursor))
+                .flatMap(start -> pageQuery.apply(start.loanDate(), start.id(), fromDate(from), size + 1).collectList())
+                .map(loans -> {
+                    boolean hasNext = loans.size() > size;
+                    List<Loan> content = hasNext ? loans.subList(0, size) : loans;
+                    Loan last = content.isEmpty() ? null : content.get(content.size() - 1);
+                    String nextCursor = hasNext ? PageCursor.encode(last.loanDate(), last.id()) : null;
+                    return new LoanPage(content.stream().map(LoanResponse::fromLoan).toList(), content.size(), nextCursor);
+                });
+    }
+
+    /**
+     * Recorrer la consulta en bloques por clave: cada bloque solo se pide cuando
+     * el cliente ha consumido el anterior, por lo que la memoria queda acotada
+     * y se respeta la contrapresión
+     */
+    private Flux<LoanResponse> streamByKeyset(LocalDate from, LocalDate to, KeysetQuery pageQuery) {
+        return Mono.fromCallable(() -> startPosition(from, to, null))
+                .flatMap(start -> pageQuery.apply(start.loanDate(), start.id(), fromDate(from), STREAM_CHUNK_SIZE).collectList())
+                .expand(chunk -> {
+                    if (chunk.size() < STREAM_CHUNK_SIZE) {
+                        return Mono.empty();
+                    }
+                    Loan last = chunk.get(chunk.size() - 1);
+                    return pageQuery.apply(last.loanDate(), last.id(), fromDate(from), STREAM_CHUNK_SIZE).collectList();
+                })
+                .concatMapIterable(Function.identity(), 1)
+                .map(LoanResponse::fromLoan);
+    }
+
+    /**
+     * Posición de partida de una página: el cursor o, en la primera página, justo
+     * después del último préstamo del día to. Si llegan ambos manda el más restrictivo.
+     */
+    private static PageCursor.Position startPosition(LocalDate from, LocalDate to, String cursor) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "La fecha from no puede ser posterior a to");
+        }
+        PageCursor.Position first = new PageCursor.Position(to != null ? to : MAX_LOAN_DATE, Long.MAX_VALUE);
+        PageCursor.Position position;
+        try {
+            position = PageCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        return position == null || position.loanDate().isAfter(first.loanDate()) ? first : position;
+    }
+
+    private static LocalDate fromDate(LocalDate from) {
+        return from != null ? from : MIN_LOAN_DATE;
+    }
+
     /**
      * Obtener préstamos vencidos
      */
@@ -100,60 +290,207 @@ public class LoanService {
     }
 
     /**
-     * Crear un nuevo préstamo
+     * Crear un nuevo préstamo. La copia se reserva en el inventario a la vez que
+     * se toma una plaza del límite del usuario; si el préstamo no llega a
+     * guardarse, la reserva se libera a través de la bandeja de salida y la
+     * plaza se devuelve.
      */
-    @Transactional
     public Mono<LoanResponse> createLoan(LoanRequest request) {
         log.info("Creando nuevo préstamo para el libro ID: {} - Usuario: {}", 
                  request.bookId(), request.userEmail());
 
-        // Verificar límite de préstamos activos del usuario
-        return loanRepository.countActiveLoanssByUser(request.userEmail())
-                .flatMap(count -> {
-                    if (count >= MAX_ACTIVE_LOANS_PER_USER) {
-                        return Mono.error(new RuntimeException(
-                            "El usuario ha alcanzado el límite máximo de préstamos activos: " + MAX_ACTIVE_LOANS_PER_USER
-                        ));
+        Long bookId = request.bookId();
+        String userEmail = request.userEmail();
+        int maxActiveLoans = borrowingLimits.maxActiveLoans(userEmail);
+        if (availabilityLookup.isKnownUnavailable(bookId)) {
+            return Mono.error(bookUnavailable(bookId));
+        }
+
+        String reservationId = UUID.randomUUID().toString();
+        // Cacheada: la compensación espera al mismo resultado en vez de repetir la llamada
+        Mono<Reservation> reservation = reserveCopy(bookId, reservationId).cache();
+        Mono<Boolean> slot = activeLoanCounters.tryAcquire(userEmail, maxActiveLoans).cache();
+        AtomicBoolean decided = new AtomicBoolean();
+
+        return Mono.zip(slot, reservation)
+                .onErrorResume(error -> reservation
+                        .flatMap(result -> releaseReservation(bookId, reservationId, result))
+                        .then(Mono.error(error)))
+                // Si se abandona la petición antes de decidir, la reserva y la plaza no deben quedarse colgadas
+                .doOnCancel(() -> {
+                    if (decided.compareAndSet(false, true)) {
+                        slot.subscribe(acquired -> {
+                            if (acquired) {
+                                activeLoanCounters.abort(userEmail);
+                            }
+                        }, error -> { });
+                        reservation.flatMap(result -> releaseReservation(bookId, reservationId, result))
+                                .subscribe();
                     }
+                })
+                .filter(tuple -> decided.compareAndSet(false, true))
+                .flatMap(tuple -> {
+                    boolean acquired = tuple.getT1();
+                    Reservation result = tuple.getT2();
 
-                    // Verificar disponibilidad del libro en el servicio de inventario
-                    return checkBookAvailability(request.bookId())
-                            .flatMap(isAvailable -> {
-                                if (!isAvailable) {
-                                    return Mono.error(new RuntimeException(
-                                        "El libro ID " + request.bookId() + " no está disponible"
-                                    ));
-                                }
-
-                                // Crear el préstamo
-                                Loan newLoan = new Loan(
-                                    request.bookId(),
-                                    request.userEmail(),
-                                    request.userName(),
-                                    LocalDate.now(),
-                                    request.dueDate(),
-                                    LoanStatus.ACTIVE,
-                                    request.notes()
-                                );
-
-                                // Guardar préstamo y decrementar copias disponibles
-                                return loanRepository.save(newLoan)
-                                        .flatMap(savedLoan -> 
-                                            decrementBookCopies(savedLoan.bookId())
-                                                .thenReturn(savedLoan)
-                                        )
-                                        .map(LoanResponse::fromLoan)
-                                        .doOnSuccess(loan -> log.info("Préstamo creado exitosamente: {}", loan.id()));
-                            });
+                    if (acquired && result != Reservation.RESERVED) {
+                        activeLoanCounters.abort(userEmail);
+                    }
+                    if (result == Reservation.REJECTED) {
+                        availabilityLookup.rememberUnavailable(bookId);
+                        return Mono.error(bookUnavailable(bookId));
+                    }
+                    if (result == Reservation.UNKNOWN) {
+                        return releaseReservation(bookId, reservationId, result)
+                                .then(Mono.error(new RuntimeException(
+                                    "No se pudo reservar el libro ID " + bookId + " en el inventario"
+                                )));
+                    }
+                    if (!acquired) {
+                        return releaseReservation(bookId, reservationId, result)
+                                .then(Mono.error(new RuntimeException(
+                                    "El usuario ha alcanzado el límite máximo de préstamos activos: " + maxActiveLoans
+                                )));
+                    }
+
+                    // Crear el préstamo sobre la copia ya reservada (la misma sentencia
+                    // actualiza las estadísticas del libro)
+                    Mono<LoanResponse> insert = loanRepository.insertActiveLoans(new Long[]{bookId}, userEmail,
+                                    request.userName(), LocalDate.now(), request.dueDate(), request.notes())
+                            .single()
+                            .map(LoanResponse::fromLoan)
+                            .doOnSuccess(loan -> {
+                                activeLoanCounters.confirm(userEmail);
+                                availabilityLookup.invalidate(bookId);
+                                overdueWheel.track(loan.id(), loan.dueDate());
+                                log.info("Préstamo creado exitosamente: {}", loan.id());
+                            })
+                            .onErrorResume(error -> {
+                                activeLoanCounters.abort(userEmail);
+                                return releaseReservation(bookId, reservationId, result)
+                                        .then(Mono.error(error));
+                            })
+                            .cache();
+                    return insert.doOnCancel(() -> completeDetached(insert));
                 });
     }
 
     /**
-     * Devolver un libro (marcar préstamo como devuelto)
+     * Si se abandona la petición durante el INSERT, se deja terminar: puede que
+     * ya se haya guardado, así que no se puede liberar la reserva a ciegas. Su
+     * resultado confirma la plaza o la libera junto con la reserva.
+     */
+    private static <T> void completeDetached(Mono<T> insert) {
+        insert.subscribe(result -> { }, error -> { });
+    }
+
+    /**
+     * Crear varios préstamos de un mismo usuario en una sola operación (préstamo
+     * en mostrador). El límite se comprueba una vez para todos los libros y las
+     * copias se reservan con una llamada al inventario. Todo o nada: si falta
+     * alguna copia o se supera el límite, se liberan las reservas hechas y no se
+     * crea ningún préstamo.
+     */
+    public Mono<LoanBatchResponse> createLoans(LoanBatchRequest request) {
+        List<Long> bookIds = request.bookIds();
+        String userEmail = request.userEmail();
+        log.info("Creando {} préstamos para el usuario: {}", bookIds.size(), userEmail);
+
+        if (bookIds.stream().distinct().count() != bookIds.size()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "No se puede prestar dos veces el mismo libro en una operación"));
+        }
+        int slots = bookIds.size();
+        int maxActiveLoans = borrowingLimits.maxActiveLoans(userEmail);
+
+        String batchKey = InventoryOutboxEntry.reservationKey(UUID.randomUUID().toString(), StockOperation.DECREMENT);
+        Function<Long, String> itemKey = bookId -> InventoryOutboxEntry.batchItemKey(batchKey, bookId);
+        Mono<Map<Long, Reservation>> reservations = reserveCopies(bookIds, batchKey).cache();
+        Mono<Boolean> slot = activeLoanCounters.tryAcquire(userEmail, maxActiveLoans, slots).cache();
+        AtomicBoolean decided = new AtomicBoolean();
+
+        return Mono.zip(slot, reservations)
+                .onErrorResume(error -> reservations
+                        .flatMap(result -> releaseReservations(result, itemKey))
+                        .then(Mono.error(error)))
+                .doOnCancel(() -> {
+                    if (decided.compareAndSet(false, true)) {
+                        slot.subscribe(acquired -> {
+                            if (acquired) {
+                                activeLoanCounters.abort(userEmail, slots);
+                            }
+                        }, error -> { });
+                        reservations.flatMap(result -> releaseReservations(result, itemKey))
+                                .subscribe();
+                    }
+                })
+                .filter(tuple -> decided.compareAndSet(false, true))
+                .flatMap(tuple -> {
+                    boolean acquired = tuple.getT1();
+                    Map<Long, Reservation> result = tuple.getT2();
+                    boolean allReserved = result.values().stream().allMatch(Reservation.RESERVED::equals);
+
+                    if (!acquired || !allReserved) {
+                        if (acquired) {
+                            activeLoanCounters.abort(userEmail, slots);
+                        }
+                        result.forEach((bookId, reservation) -> {
+                            if (reservation == Reservation.REJECTED) {
+                                availabilityLookup.rememberUnavailable(bookId);
+                            }
+                        });
+                        String message = !acquired
+                                ? "El usuario superaría el límite máximo de préstamos activos: " + maxActiveLoans
+                                : "No se pudieron reservar todos los libros; no se ha creado ningún préstamo";
+                        return releaseReservations(result, itemKey)
+                                .thenReturn(notCreated(message, result));
+                    }
+
+                    Mono<LoanBatchResponse> insert = loanRepository.insertActiveLoans(bookIds.toArray(Long[]::new),
+                                    userEmail, request.userName(), LocalDate.now(), request.dueDate(), request.notes())
+                            .map(LoanResponse::fromLoan)
+                            .map(loan -> new LoanBatchResponse.Item(loan.bookId(), LoanBatchResponse.Status.CREATED, loan, null))
+                            .collectList()
+                            .map(items -> new LoanBatchResponse(true, null, items))
+                            .doOnSuccess(response -> {
+                                activeLoanCounters.confirm(userEmail, slots);
+                                bookIds.forEach(availabilityLookup::invalidate);
+                                response.items().forEach(item -> overdueWheel.track(item.loan().id(), item.loan().dueDate()));
+                                log.info("Préstamos creados exitosamente: {} para {}", slots, userEmail);
+                            })
+                            .onErrorResume(error -> {
+                                activeLoanCounters.abort(userEmail, slots);
+                                return releaseReservations(result, itemKey)
+                                        .then(Mono.error(error));
+                            })
+                            .cache();
+                    return insert.doOnCancel(() -> completeDetached(insert));
+                });
+    }
+
+    private static LoanBatchResponse notCreated(String message, Map<Long, Reservation> reservations) {
+        List<LoanBatchResponse.Item> items = reservations.entrySet().stream()
+                .map(entry -> switch (entry.getValue()) {
+                    case REJECTED -> new LoanBatchResponse.Item(entry.getKey(), LoanBatchResponse.Status.UNAVAILABLE,
+                            null, "El libro ID " + entry.getKey() + " no está disponible");
+                    case UNKNOWN -> new LoanBatchResponse.Item(entry.getKey(), LoanBatchResponse.Status.NOT_CREATED,
+                            null, "No se pudo reservar el libro en el inventario");
+                    case RESERVED -> new LoanBatchResponse.Item(entry.getKey(), LoanBatchResponse.Status.NOT_CREATED,
+                            null, "Reserva liberada");
+                })
+                .toList();
+        return new LoanBatchResponse(false, message, items);
+    }
+
+    /**
+     * Devolver un libro (marcar préstamo como devuelto). La liberación de la
+     * copia se encola y las estadísticas del libro se actualizan en la misma
+     * transacción.
      */
-    @Transactional
     public Mono<LoanResponse> returnLoan(Long loanId) {
         log.info("Procesando devolución del préstamo ID: {}", loanId);
+        // Estado previo: solo los préstamos ACTIVE cuentan para el límite
+        LoanStatus[] previous = new LoanStatus[1];
 
         return loanRepository.findById(loanId)
                 .switchIfEmpty(Mono.error(new RuntimeException("Préstamo no encontrado con ID: " + loanId)))
@@ -164,15 +501,27 @@ public class LoanService {
                         ));
                     }
 
+                    previous[0] = loan.status();
                     Loan returnedLoan = loan.withReturn(LocalDate.now());
+                    String previousStatus = loan.status().name();
+                    long loanDays = ChronoUnit.DAYS.between(loan.loanDate(), returnedLoan.returnDate());
                     
                     return loanRepository.save(returnedLoan)
                             .flatMap(savedLoan -> 
-                                incrementBookCopies(savedLoan.bookId())
+                                enqueueStockChange(savedLoan, StockOperation.INCREMENT)
+                                    .then(loanStatsRepository.recordReturned(savedLoan.bookId(), previousStatus, loanDays))
                                     .thenReturn(savedLoan)
                             )
                             .map(LoanResponse::fromLoan)
                             .doOnSuccess(l -> log.info("Préstamo devuelto exitosamente: {}", l.id()));
+                })
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(loan -> {
+                    if (previous[0] == LoanStatus.ACTIVE) {
+                        activeLoanCounters.release(loan.userEmail());
+                        overdueWheel.untrack(loan.id(), loan.dueDate());
+                    }
+                    outboxDispatcher.trigger();
                 });
     }
 
@@ -212,14 +561,17 @@ public class LoanService {
 
                     return loanRepository.save(renewedLoan)
                             .map(LoanResponse::fromLoan)
-                            .doOnSuccess(l -> log.info("Préstamo renovado exitosamente: {}", l.id()));
+                            .doOnSuccess(l -> {
+                                overdueWheel.reschedule(l.id(), loan.dueDate(), l.dueDate());
+                                log.info("Préstamo renovado exitosamente: {}", l.id());
+                            });
                 });
     }
 
     /**
-     * Cancelar un préstamo
+     * Cancelar un préstamo. La liberación de la copia se encola y las
+     * estadísticas del libro se actualizan en la misma transacción.
      */
-    @Transactional
     public Mono<LoanResponse> cancelLoan(Long loanId) {
         log.info("Cancelando préstamo ID: {}", loanId);
 
@@ -236,82 +588,138 @@ public class LoanService {
                     
                     return loanRepository.save(cancelledLoan)
                             .flatMap(savedLoan -> 
-                                incrementBookCopies(savedLoan.bookId())
+                                enqueueStockChange(savedLoan, StockOperation.INCREMENT)
+                                    .then(loanStatsRepository.recordCancelled(savedLoan.bookId()))
                                     .thenReturn(savedLoan)
                             )
                             .map(LoanResponse::fromLoan)
                             .doOnSuccess(l -> log.info("Préstamo cancelado exitosamente: {}", l.id()));
+                })
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(loan -> {
+                    activeLoanCounters.release(loan.userEmail());
+                    overdueWheel.untrack(loan.id(), loan.dueDate());
+                    outboxDispatcher.trigger();
                 });
     }
 
     /**
-     * Actualizar préstamos vencidos
+     * Marcar como vencidos los préstamos activos con fecha pasada. Lo hace el
+     * barrido programado; esto lo lanza a demanda y devuelve su resumen.
      */
-    @Transactional
-    public Flux<LoanResponse> updateOverdueLoans() {
+    public Mono<OverdueSweepSummary> updateOverdueLoans() {
         log.info("Actualizando préstamos vencidos");
-        
-        return loanRepository.findOverdueLoans(LocalDate.now())
-                .flatMap(loan -> {
-                    Loan overdueloan = loan.withStatus(LoanStatus.OVERDUE);
-                    return loanRepository.save(overdueloan);
-                })
-                .map(LoanResponse::fromLoan)
-                .doOnComplete(() -> log.info("Préstamos vencidos actualizados"));
+        return overdueSweeper.sweep();
     }
 
     /**
-     * Verificar disponibilidad del libro en el servicio de inventario
+     * Reservar una copia en el inventario. Nunca falla: un 4xx es un rechazo
+     * (sin copias o libro inexistente) y cualquier otro error deja la reserva
+     * en duda.
      */
-    private Mono<Boolean> checkBookAvailability(Long bookId) {
-        log.debug("Verificando disponibilidad del libro ID: {}", bookId);
-        
-        return webClientBuilder.build()
-                .get()
-                .uri(inventoryServiceUrl + "/api/books/{id}/availability", bookId)
-                .retrieve()
-                .bodyToMono(Boolean.class)
-                .doOnSuccess(available -> log.debug("Disponibilidad del libro {}: {}", bookId, available))
+    private Mono<Reservation> reserveCopy(Long bookId, String reservationId) {
+        log.debug("Reservando copia del libro ID: {} (reserva {})", bookId, reservationId);
+
+        return inventoryClient.decrementCopies(bookId, InventoryOutboxEntry.reservationKey(reservationId, StockOperation.DECREMENT))
+                .thenReturn(Reservation.RESERVED)
                 .onErrorResume(error -> {
-                    log.error("Error al verificar disponibilidad del libro {}: {}", bookId, error.getMessage());
-                    return Mono.just(false);
+                    if (error instanceof WebClientResponseException response
+                            && response.getStatusCode().is4xxClientError()) {
+                        log.debug("Reserva del libro {} rechazada: {}", bookId, response.getStatusCode());
+                        return Mono.just(Reservation.REJECTED);
+                    }
+                    log.error("Error al reservar copia del libro {}: {}", bookId, error.getMessage());
+                    return Mono.just(Reservation.UNKNOWN);
                 });
     }
 
     /**
-     * Decrementar copias disponibles en el servicio de inventario
+     * Reservar una copia de cada libro con una sola llamada al inventario. Como
+     * reserveCopy, nunca falla: un error de la llamada completa se aplica a
+     * todos los libros.
      */
-    private Mono<Void> decrementBookCopies(Long bookId) {
-        log.debug("Decrementando copias del libro ID: {}", bookId);
-        
-        return webClientBuilder.build()
-                .post()
-                .uri(inventoryServiceUrl + "/api/books/{id}/decrement", bookId)
-                .retrieve()
-                .bodyToMono(Void.class)
-                .doOnSuccess(v -> log.debug("Copias decrementadas para el libro {}", bookId))
+    private Mono<Map<Long, Reservation>> reserveCopies(List<Long> bookIds, String batchKey) {
+        log.debug("Reservando copias de {} libros (reserva {})", bookIds.size(), batchKey);
+
+        return inventoryClient.decrementCopiesBatch(bookIds, batchKey)
+                .map(results -> {
+                    Map<Long, Reservation> reservations = new LinkedHashMap<>();
+                    bookIds.forEach(bookId -> reservations.put(bookId, Reservation.REJECTED));
+                    results.forEach(result -> reservations.put(result.bookId(),
+                            Boolean.TRUE.equals(result.success()) ? Reservation.RESERVED : Reservation.REJECTED));
+                    return reservations;
+                })
                 .onErrorResume(error -> {
-                    log.error("Error al decrementar copias del libro {}: {}", bookId, error.getMessage());
-                    return Mono.empty();
+                    Reservation outcome = error instanceof WebClientResponseException response
+                            && response.getStatusCode().is4xxClientError()
+                            ? Reservation.REJECTED
+                            : Reservation.UNKNOWN;
+                    log.error("Error al reservar copias de {} libros: {}", bookIds.size(), error.getMessage());
+                    Map<Long, Reservation> reservations = new LinkedHashMap<>();
+                    bookIds.forEach(bookId -> reservations.put(bookId, outcome));
+                    return Mono.just(reservations);
                 });
     }
 
     /**
-     * Incrementar copias disponibles en el servicio de inventario
+     * Deshacer una reserva que no terminó en préstamo
      */
-    private Mono<Void> incrementBookCopies(Long bookId) {
-        log.debug("Incrementando copias del libro ID: {}", bookId);
-        
-        return webClientBuilder.build()
-                .post()
-                .uri(inventoryServiceUrl + "/api/books/{id}/increment", bookId)
-                .retrieve()
-                .bodyToMono(Void.class)
-                .doOnSuccess(v -> log.debug("Copias incrementadas para el libro {}", bookId))
+    private Mono<Void> releaseReservation(Long bookId, String reservationId, Reservation reservation) {
+        String decrementKey = InventoryOutboxEntry.reservationKey(reservationId, StockOperation.DECREMENT);
+        return releaseReservations(Map.of(bookId, reservation), id -> decrementKey);
+    }
+
+    /**
+     * Deshacer reservas que no terminaron en préstamo, encolando las
+     * liberaciones en una transacción. Si no se sabe si el inventario aplicó una
+     * reserva, se encola también el decremento con la misma clave: es un no-op
+     * si ya se aplicó y, si no, la liberación lo compensa.
+     */
+    private Mono<Void> releaseReservations(Map<Long, Reservation> reservations, Function<Long, String> decrementKey) {
+        List<Map.Entry<Long, Reservation>> toRelease = reservations.entrySet().stream()
+                .filter(entry -> entry.getValue() != Reservation.REJECTED)
+                .toList();
+        if (toRelease.isEmpty()) {
+            return Mono.empty();
+        }
+
+        return Flux.fromIterable(toRelease)
+                .concatMap(entry -> {
+                    Long bookId = entry.getKey();
+                    String key = decrementKey.apply(bookId);
+                    log.info("Liberando reserva {} del libro ID: {}", key, bookId);
+
+                    Mono<Integer> decrement = entry.getValue() == Reservation.UNKNOWN
+                            ? outboxRepository.enqueue(null, bookId, StockOperation.DECREMENT.name(), key)
+                            : Mono.just(0);
+                    return decrement.then(outboxRepository.enqueue(null, bookId, StockOperation.INCREMENT.name(),
+                            InventoryOutboxEntry.releaseKey(key)));
+                })
+                .then()
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(v -> outboxDispatcher.trigger())
                 .onErrorResume(error -> {
-                    log.error("Error al incrementar copias del libro {}: {}", bookId, error.getMessage());
+                    log.error("No se pudo encolar la liberación de reservas: {}", error.getMessage());
                     return Mono.empty();
                 });
     }
-}
 
+    private static RuntimeException bookUnavailable(Long bookId) {
+        return new RuntimeException("El libro ID " + bookId + " no está disponible");
+    }
+
+    /**
+     * Encolar un cambio de stock del préstamo en la bandeja de salida
+     */
+    private Mono<Void> enqueueStockChange(Loan loan, StockOperation operation) {
+        log.debug("Encolando {} del libro ID: {} (préstamo {})", operation, loan.bookId(), loan.id());
+        
+        return outboxRepository.enqueue(
+                    loan.id(),
+                    loan.bookId(),
+                    operation.name(),
+                    InventoryOutboxEntry.idempotencyKey(loan.id(), operation)
+                )
+                .then();
+    }
+}
@@ -0,0 +1,214 @@
+package com.biblioteca.loan.service;
+
+import com.biblioteca.loan.client.BookLookup;
+import com.biblioteca.loan.dto.BookLoanStatsResponse;
+import com.biblioteca.loan.dto.BookSummary;
+import com.biblioteca.loan.dto.CategoryLoanStats;
+import com.biblioteca.loan.dto.LoanStatsRebuildSummary;
+import com.biblioteca.loan.dto.LoanStatsSummary;
+import com.biblioteca.loan.dto.LoanStatsVerification;
+import com.biblioteca.loan.model.BookLoanStats;
+import com.biblioteca.loan.repository.LoanStatsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Estadísticas de préstamos servidas desde loan_book_stats, sin recorrer loans.
+ *
+ * Los agregados por libro se mantienen de forma incremental en las mismas
+ * sentencias o transacciones que crean, devuelven, cancelan o marcan como
+ * vencidos los préstamos. La reconstrucción los recalcula desde cero y la
+ * verificación los compara con un recálculo completo.
+ */
+@Service
+@Slf4j
+public class LoanStatsService {
+
+    private static final int MAX_TOP_BOOKS = 100;
+    private static final int MAX_MISMATCHES = 100;
+    private static final int BOOK_LOOKUP_CHUNK = 100;
+    private static final String UNKNOWN_CATEGORY = "Sin categoría";
+
+    private final LoanStatsRepository statsRepository;
+    private final BookLookup bookLookup;
+    private final TransactionalOperator transactionalOperator;
+    // Lectura de loans y de los agregados sobre la misma instantánea
+    private final TransactionalOperator snapshotOperator;
+
+    public LoanStatsService(LoanStatsRepository statsRepository,
+                            BookLookup bookLookup,
+                            TransactionalOperator transactionalOperator,
+                            ReactiveTransactionManager transactionManager) {
+        this.statsRepository = statsRepository;
+        this.bookLookup = bookLookup;
+        this.transactionalOperator = transactionalOperator;
+        DefaultTransactionDefinition snapshot = new DefaultTransactionDefinition();
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshot.setReadOnly(true);
+        this.snapshotOperator = TransactionalOperator.create(transactionManager, snapshot);
+    }
+
+    /**
+     * Totales de préstamos de toda la biblioteca
+     */
+    public Mono<LoanStatsSummary> getSummary() {
+        log.info("Obteniendo resumen de estadísticas de préstamos");
+        return Mono.zip(statsRepository.totals(), statsRepository.countBooksWithLoans())
+                .map(tuple -> {
+                    BookLoanStats totals = tuple.getT1();
+                    return new LoanStatsSummary(
+                        tuple.getT2(),
+                        totals.totalLoans(),
+                        totals.activeLoans(),
+                        totals.overdueLoans(),
+                        totals.returnedLoans(),
+                        totals.cancelledLoans(),
+                        totals.averageLoanDays()
+                    );
+                });
+    }
+
+    /**
+     * Estadísticas de un libro (a cero si nunca se ha prestado)
+     */
+    public Mono<BookLoanStatsResponse> getBookStats(Long bookId) {
+        log.info("Obteniendo estadísticas de préstamos del libro ID: {}", bookId);
+        return statsRepository.findById(bookId)
+                .defaultIfEmpty(new BookLoanStats(bookId, 0L, 0L, 0L, 0L, 0L, 0L, null))
+                .map(BookLoanStatsResponse::fromStats);
+    }
+
+    /**
+     * Libros más prestados, con su título si el inventario responde
+     */
+    public Flux<BookLoanStatsResponse> getMostBorrowed(int limit) {
+        log.info("Obteniendo los {} libros más prestados", limit);
+        if (limit < 1 || limit > MAX_TOP_BOOKS) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "El límite debe estar entre 1 y " + MAX_TOP_BOOKS));
+        }
+        return statsRepository.findMostBorrowed(limit)
+                .collectList()
+                .flatMapMany(top -> lookupBooks(top.stream().map(BookLoanStats::bookId).toList())
+                        .onErrorResume(error -> {
+                            log.warn("No se pudieron obtener los títulos del inventario: {}", error.getMessage());
+                            return Mono.just(Map.of());
+                        })
+                        .flatMapIterable(books -> top.stream()
+                                .map(stats -> {
+                                    BookSummary book = books.get(stats.bookId());
+                                    return BookLoanStatsResponse.fromStats(stats, book != null ? book.title() : null);
+                                })
+                                .toList()));
+    }
+
+    /**
+     * Préstamos en curso por categoría. Solo se consulta al inventario la
+     * categoría de los libros con préstamos en curso.
+     */
+    public Flux<CategoryLoanStats> getLoansOutByCategory() {
+        log.info("Obteniendo préstamos en curso por categoría");
+        return statsRepository.findWithLoansOut()
+                .buffer(BOOK_LOOKUP_CHUNK)
+                .concatMap(chunk -> lookupBooks(chunk.stream().map(BookLoanStats::bookId).toList())
+                        .flatMapIterable(books -> chunk.stream()
+                                .map(stats -> new CategoryLoanStats(category(books.get(stats.bookId())),
+                                        stats.activeLoans(), stats.overdueLoans(), 1))
+                                .toList()))
+                .collect(HashMap<String, CategoryLoanStats>::new, (byCategory, book) ->
+                        byCategory.merge(book.category(), book, (a, b) -> new CategoryLoanStats(a.category(),
+                                a.activeLoans() + b.activeLoans(), a.overdueLoans() + b.overdueLoans(),
+                                a.books() + b.books())))
+                .flatMapIterable(byCategory -> byCategory.values().stream()
+                        .sorted(Comparator.comparingLong((CategoryLoanStats stats) -> stats.activeLoans() + stats.overdueLoans())
+                                .reversed()
+                                .thenComparing(CategoryLoanStats::category))
+                        .toList());
+    }
+
+    /**
+     * Recalcular los agregados desde cero en una transacción. Mientras dura, las
+     * altas, devoluciones y cancelaciones esperan al bloqueo de loan_book_stats.
+     */
+    public Mono<LoanStatsRebuildSummary> rebuild() {
+        log.info("Reconstruyendo estadísticas de préstamos");
+        long start = System.nanoTime();
+        return statsRepository.lockForRebuild()
+                .then(statsRepository.clear())
+                .then(statsRepository.fillFromLoans())
+                .as(transactionalOperator::transactional)
+                .map(books -> {
+                    long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+                    log.info("Estadísticas de préstamos reconstruidas: {} libros ({} ms)", books, elapsedMs);
+                    return new LoanStatsRebuildSummary(books, elapsedMs);
+                });
+    }
+
+    /**
+     * Comparar los agregados incrementales con un recálculo completo desde loans,
+     * leyendo ambos en la misma instantánea
+     */
+    public Mono<LoanStatsVerification> verify() {
+        log.info("Verificando estadísticas de préstamos");
+        return statsRepository.recompute().collectMap(BookLoanStats::bookId)
+                .flatMap(expected -> statsRepository.findAll().collectMap(BookLoanStats::bookId)
+                        .map(actual -> compare(expected, actual)))
+                .as(snapshotOperator::transactional)
+                .doOnNext(result -> {
+                    if (result.consistent()) {
+                        log.info("Estadísticas de préstamos verificadas: {} libros", result.booksChecked());
+                    } else {
+                        log.warn("Estadísticas de préstamos con {} libros descuadrados", result.mismatchCount());
+                    }
+                });
+    }
+
+    private static LoanStatsVerification compare(Map<Long, BookLoanStats> expected, Map<Long, BookLoanStats> actual) {
+        TreeSet<Long> bookIds = new TreeSet<>(expected.keySet());
+        bookIds.addAll(actual.keySet());
+        List<LoanStatsVerification.Mismatch> mismatches = new ArrayList<>();
+        int mismatchCount = 0;
+        for (Long bookId : bookIds) {
+            BookLoanStats wanted = expected.get(bookId);
+            BookLoanStats found = actual.get(bookId);
+            if (wanted != null && wanted.sameCounters(found)) {
+                continue;
+            }
+            mismatchCount++;
+            if (mismatches.size() < MAX_MISMATCHES) {
+                mismatches.add(new LoanStatsVerification.Mismatch(bookId,
+                        wanted != null ? BookLoanStatsResponse.fromStats(wanted) : null,
+                        found != null ? BookLoanStatsResponse.fromStats(found) : null));
+            }
+        }
+        return new LoanStatsVerification(mismatchCount == 0, bookIds.size(), mismatchCount, mismatches);
+    }
+
+    private Mono<Map<Long, BookSummary>> lookupBooks(List<Long> bookIds) {
+        return Flux.fromIterable(bookIds)
+                .buffer(BOOK_LOOKUP_CHUNK)
+                .concatMap(bookLookup::getBooks)
+                .flatMapIterable(Function.identity())
+                .collectMap(BookSummary::id);
+    }
+
+    private static String category(BookSummary book) {
+        return book == null || book.category() == null || book.category().isBlank() ? UNKNOWN_CATEGORY : book.category();
+    }
+}
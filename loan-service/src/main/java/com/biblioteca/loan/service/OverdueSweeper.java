@@ -0,0 +1,130 @@
+package com.biblioteca.loan.service;
+
+import com.biblioteca.loan.dto.OverdueSweepSummary;
+import com.biblioteca.loan.model.OverdueSweep;
+import com.biblioteca.loan.repository.OverdueSweepRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Barrido de préstamos vencidos: los marca como OVERDUE en tramos acotados con
+ * un UPDATE ... RETURNING por tramo, recorriendo los préstamos en orden de id.
+ *
+ * El progreso (último id procesado, préstamos marcados) se guarda en
+ * overdue_sweeps en la misma sentencia que cada tramo; si el proceso cae a
+ * mitad, el siguiente barrido continúa el que quedó sin terminar.
+ *
+ * La detección habitual la hace OverdueWheel; el barrido diario recoge lo que
+ * la rueda no ve (préstamos de otras instancias o cambiados en la base de datos).
+ *
+ * Métricas: loans.overdue.marked (préstamos marcados) y loans.overdue.sweep
+ * (duración de cada barrido).
+ */
+@Component
+@Slf4j
+public class OverdueSweeper {
+
+    private final OverdueSweepRepository sweepRepository;
+    private final ActiveLoanCounters activeLoanCounters;
+    private final int chunkSize;
+    private final AtomicReference<Mono<OverdueSweepSummary>> inFlight = new AtomicReference<>();
+    private final Counter marked;
+    private final Timer duration;
+
+    public OverdueSweeper(OverdueSweepRepository sweepRepository,
+                          ActiveLoanCounters activeLoanCounters,
+                          MeterRegistry meterRegistry,
+                          @Value("${loan.overdue-sweep.chunk-size:500}") int chunkSize) {
+        this.sweepRepository = sweepRepository;
+        this.activeLoanCounters = activeLoanCounters;
+        this.chunkSize = chunkSize;
+        this.marked = Counter.builder("loans.overdue.marked")
+                .description("Préstamos marcados como vencidos por el barrido")
+                .register(meterRegistry);
+        this.duration = Timer.builder("loans.overdue.sweep")
+                .description("Duración del barrido de préstamos vencidos")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${loan.overdue-sweep.cron:0 5 3 * * *}")
+    public void scheduledSweep() {
+        sweep().subscribe(
+            summary -> { },
+            error -> log.error("Error en el barrido de préstamos vencidos: {}", error.getMessage(), error)
+        );
+    }
+
+    /**
+     * Ejecutar un barrido ahora. Si ya hay uno en curso, se devuelve su resumen
+     * en vez de lanzar otro.
+     */
+    public Mono<OverdueSweepSummary> sweep() {
+        return Mono.defer(() -> {
+            Mono<OverdueSweepSummary> running = inFlight.get();
+            if (running != null) {
+                return running;
+            }
+            Mono<OverdueSweepSummary> run = runSweep()
+                    .doFinally(signal -> inFlight.set(null))
+                    // Compartido: cancelar la petición HTTP no corta el barrido a mitad
+                    .cache();
+            return inFlight.compareAndSet(null, run) ? run : sweep();
+        });
+    }
+
+    private Mono<OverdueSweepSummary> runSweep() {
+        LocalDate today = LocalDate.now();
+        long start = System.nanoTime();
+
+        return sweepRepository.findUnfinished()
+                .map(sweep -> new Start(sweep, true))
+                .switchIfEmpty(Mono.defer(() -> sweepRepository.start(today).map(sweep -> new Start(sweep, false))))
+                .flatMap(started -> {
+                    OverdueSweep sweep = started.sweep();
+                    if (started.resumed()) {
+                        log.info("Reanudando barrido de vencidos {} desde el préstamo {}", sweep.id(), sweep.lastLoanId());
+                    }
+                    return markChunk(sweep.id(), today, sweep.lastLoanId())
+                            // Un tramo completo indica que puede haber más
+                            .expand(ids -> ids.size() < chunkSize
+                                    ? Mono.empty()
+                                    : markChunk(sweep.id(), today, ids.get(ids.size() - 1)))
+                            .then(sweepRepository.finish(sweep.id()))
+                            .then(sweepRepository.findById(sweep.id()))
+                            .map(finished -> {
+                                Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+                                duration.record(elapsed);
+                                log.info("Barrido de vencidos {} terminado: {} préstamos en {} tramos ({} ms)",
+                                        finished.id(), finished.markedCount(), finished.chunks(), elapsed.toMillis());
+                                return new OverdueSweepSummary(finished.id(), finished.sweepDate(),
+                                        finished.markedCount(), finished.chunks(), started.resumed(), elapsed.toMillis());
+                            });
+                });
+    }
+
+    private Mono<List<Long>> markChunk(Long sweepId, LocalDate today, Long afterId) {
+        return sweepRepository.markOverdueChunk(sweepId, today, afterId, chunkSize)
+                .collectList()
+                .doOnNext(ids -> {
+                    if (!ids.isEmpty()) {
+                        // Los vencidos dejan de contar como activos para el límite
+                        activeLoanCounters.invalidateAll();
+                    }
+                    marked.increment(ids.size());
+                    log.debug("Barrido {}: {} préstamos marcados como vencidos tras el ID {}", sweepId, ids.size(), afterId);
+                });
+    }
+
+    private record Start(OverdueSweep sweep, boolean resumed) {}
+}
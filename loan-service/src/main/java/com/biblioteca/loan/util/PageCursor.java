@@ -0,0 +1,50 @@
+package com.biblioteca.loan.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Codificación de cursores opacos para paginación por clave (loan_date, id).
+ * El cliente solo debe reenviar el valor recibido en nextCursor.
+ */
+public final class PageCursor {
+
+    private static final String PREFIX = "loan:";
+
+    private PageCursor() {
+    }
+
+    /**
+     * Último préstamo visto: la página siguiente empieza justo antes de él
+     */
+    public record Position(LocalDate loanDate, long id) {}
+
+    public static String encode(LocalDate loanDate, Long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + loanDate + ":" + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Devuelve la posición del último préstamo visto, o null si no hay cursor (primera página)
+     */
+    public static Position decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf(':');
+            if (!value.startsWith(PREFIX) || separator <= PREFIX.length()) {
+                throw new IllegalArgumentException("Cursor inválido: " + cursor);
+            }
+            return new Position(
+                LocalDate.parse(value.substring(PREFIX.length(), separator)),
+                Long.parseLong(value.substring(separator + 1))
+            );
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.biblioteca.loan;
+
+import io.r2dbc.postgresql.PostgresqlConnectionConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import io.r2dbc.spi.Connection;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Base de datos PostgreSQL para las pruebas de integración: las consultas del
+ * repositorio (CTE con INSERT/UPDATE, unnest, FOR UPDATE SKIP LOCKED) no
+ * funcionan en H2.
+ *
+ * Usa un esquema propio (loan_test) que se recrea con schema.sql antes de
+ * cada clase de prueba. Servidor y credenciales se toman de TEST_DB_HOST,
+ * TEST_DB_PORT, TEST_DB_NAME, TEST_DB_USERNAME y TEST_DB_PASSWORD (por defecto
+ * localhost:5432/biblioteca_db con postgres); si no responde, las pruebas se
+ * omiten.
+ */
+public final class PostgresTestDatabase {
+
+    private static final String SCHEMA = "loan_test";
+
+    private static final String HOST = setting("TEST_DB_HOST", "localhost");
+    private static final int PORT = Integer.parseInt(setting("TEST_DB_PORT", "5432"));
+    private static final String DATABASE = setting("TEST_DB_NAME", "biblioteca_db");
+    private static final String USERNAME = setting("TEST_DB_USERNAME", "postgres");
+    private static final String PASSWORD = setting("TEST_DB_PASSWORD", "");
+
+    private PostgresTestDatabase() {
+    }
+
+    /**
+     * Si el servidor responde; en ese caso el esquema de pruebas queda recreado
+     */
+    public static boolean reset() {
+        try {
+            execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE; CREATE SCHEMA " + SCHEMA);
+            execute(script("schema.sql"));
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    public static void register(DynamicPropertyRegistry registry) {
+        registry.add("spring.r2dbc.url", () -> "r2dbc:postgresql://" + HOST + ":" + PORT + "/" + DATABASE
+                + "?schema=" + SCHEMA);
+        registry.add("spring.r2dbc.username", () -> USERNAME);
+        registry.add("spring.r2dbc.password", () -> PASSWORD);
+    }
+
+    /**
+     * Ejecutar varias sentencias con el protocolo simple, como psql
+     */
+    private static void execute(String sql) {
+        PostgresqlConnectionFactory factory = new PostgresqlConnectionFactory(
+                PostgresqlConnectionConfiguration.builder()
+                        .host(HOST)
+                        .port(PORT)
+                        .database(DATABASE)
+                        .username(USERNAME)
+                        .password(PASSWORD)
+                        .schema(SCHEMA)
+                        .connectTimeout(Duration.ofSeconds(2))
+                        .build());
+        Flux.usingWhen(factory.create(),
+                        connection -> Flux.from(connection.createStatement(sql).execute())
+                                .flatMap(result -> result.getRowsUpdated()),
+                        Connection::close)
+                .blockLast(Duration.ofSeconds(30));
+    }
+
+    private static String script(String name) {
+        try (InputStream in = PostgresTestDatabase.class.getClassLoader().getResourceAsStream(name)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String setting(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+}
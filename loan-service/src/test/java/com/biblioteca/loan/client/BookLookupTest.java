@@ -0,0 +1,77 @@
+package com.biblioteca.loan.client;
+
+import com.biblioteca.loan.dto.BookSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Las consultas concurrentes de los mismos libros comparten una llamada y,
+ * al terminar, la siguiente vuelve a preguntar al inventario
+ */
+class BookLookupTest {
+
+    private static final List<Long> IDS = List.of(1L, 2L);
+
+    private final InventoryClient inventoryClient = mock(InventoryClient.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BookLookup lookup = new BookLookup(inventoryClient, meterRegistry);
+
+    @Test
+    void concurrentLookupsShareOneCall() {
+        Sinks.One<List<BookSummary>> response = Sinks.one();
+        when(inventoryClient.getBooks(IDS)).thenReturn(response.asMono());
+
+        StepVerifier first = StepVerifier.create(lookup.getBooks(IDS))
+                .expectNextCount(1)
+                .expectComplete()
+                .verifyLater();
+        StepVerifier second = StepVerifier.create(lookup.getBooks(List.of(1L, 2L)))
+                .expectNextCount(1)
+                .expectComplete()
+                .verifyLater();
+        // Otra lista es otra llamada
+        when(inventoryClient.getBooks(List.of(3L))).thenReturn(Mono.just(List.of()));
+        StepVerifier.create(lookup.getBooks(List.of(3L))).expectNext(List.of()).verifyComplete();
+
+        response.tryEmitValue(List.of(book(1L), book(2L)));
+        first.verify();
+        second.verify();
+        verify(inventoryClient, times(1)).getBooks(IDS);
+        assertThat(count("upstream")).isEqualTo(2);
+        assertThat(count("coalesced")).isEqualTo(1);
+
+        when(inventoryClient.getBooks(IDS)).thenReturn(Mono.just(List.of(book(1L))));
+        StepVerifier.create(lookup.getBooks(IDS)).expectNext(List.of(book(1L))).verifyComplete();
+        verify(inventoryClient, times(2)).getBooks(IDS);
+    }
+
+    @Test
+    void errorsAreNotReused() {
+        when(inventoryClient.getBooks(IDS))
+                .thenReturn(Mono.error(new IllegalStateException("inventario caído")))
+                .thenReturn(Mono.just(List.of(book(1L))));
+
+        StepVerifier.create(lookup.getBooks(IDS)).verifyError(IllegalStateException.class);
+        StepVerifier.create(lookup.getBooks(IDS)).expectNext(List.of(book(1L))).verifyComplete();
+        assertThat(count("upstream")).isEqualTo(2);
+    }
+
+    private double count(String result) {
+        return meterRegistry.counter("inventory.book.lookups", "result", result).count();
+    }
+
+    private static BookSummary book(Long id) {
+        return new BookSummary(id, "Título " + id, "Autora", "Pruebas");
+    }
+}
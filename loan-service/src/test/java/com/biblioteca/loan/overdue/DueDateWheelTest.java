@@ -0,0 +1,176 @@
+package com.biblioteca.loan.overdue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * La rueda dispara cada préstamo el día siguiente a su vencimiento, también
+ * cuando el vencimiento cae en otro bloque de 64 o 4096 días o en el
+ * desbordamiento y hay que repartir ranuras de niveles superiores
+ */
+class DueDateWheelTest {
+
+    // Tres días antes del comienzo de un bloque de 4096 (y por tanto de 64)
+    private static final long TODAY = 5 * 4096 - 3;
+
+    @Test
+    void firesEachLoanTheDayAfterItIsDue() {
+        DueDateWheel wheel = new DueDateWheel(TODAY);
+        long[] dueDays = {
+            TODAY,              // nivel 0
+            TODAY + 2,          // último día del bloque de 64 y del de 4096 actuales
+            TODAY + 3,          // primer día del bloque de 4096 siguiente (nivel 2)
+            TODAY + 3 + 63,     // último día de su primer bloque de 64
+            TODAY + 3 + 64,     // primer día de su segundo bloque de 64
+            TODAY + 3 + 4095,   // último día del bloque de 4096 siguiente
+            TODAY + 3 + 4096,   // primer día del bloque de 4096 posterior
+            TODAY + 3 + 262144  // desbordamiento
+        };
+        for (int i = 0; i < dueDays.length; i++) {
+            assertThat(wheel.add(i + 1, dueDays[i])).isTrue();
+        }
+        assertThat(wheel.size()).isEqualTo(dueDays.length);
+
+        for (int i = 0; i < dueDays.length; i++) {
+            // El día de vencimiento aún no ha vencido; al día siguiente sí
+            assertThat(wheel.advance(dueDays[i])).isEmpty();
+            assertThat(wheel.advance(dueDays[i] + 1)).containsExactly(i + 1);
+        }
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void matchesASortedModelAcrossBlockBoundaries() {
+        Random random = new Random(42);
+        DueDateWheel wheel = new DueDateWheel(TODAY);
+        TreeMap<Long, TreeSet<Long>> model = new TreeMap<>();
+        Map<Long, Long> dueDayOf = new TreeMap<>();
+        long nextId = 1;
+        long today = TODAY;
+        int[] steps = {1, 1, 2, 7, 61, 63, 64, 65, 127, 4095, 4096, 4097, 9000};
+
+        for (int round = 0; round < 200; round++) {
+            for (int i = 0; i < 50; i++) {
+                long dueDay = today + randomOffset(random);
+                long id = nextId++;
+                wheel.add(id, dueDay);
+                model.computeIfAbsent(dueDay, day -> new TreeSet<>()).add(id);
+                dueDayOf.put(id, dueDay);
+            }
+            // Devoluciones de préstamos al azar, antes o después de su reparto
+            List<Long> pending = new ArrayList<>(dueDayOf.keySet());
+            for (int i = 0; i < 10 && !pending.isEmpty(); i++) {
+                Long id = pending.get(random.nextInt(pending.size()));
+                long dueDay = dueDayOf.remove(id);
+                assertThat(wheel.remove(id, dueDay)).isTrue();
+                model.get(dueDay).remove(id);
+                pending.remove(id);
+            }
+
+            today += steps[random.nextInt(steps.length)];
+            List<Long> expected = new ArrayList<>();
+            model.headMap(today).values().forEach(expected::addAll);
+            model.headMap(today).clear();
+            expected.forEach(dueDayOf::remove);
+            expected.sort(null);
+
+            assertThat(wheel.advance(today)).containsExactly(expected.stream().mapToLong(Long::longValue).toArray());
+            assertThat(wheel.size()).isEqualTo(dueDayOf.size());
+        }
+    }
+
+    @Test
+    void loansAlreadyPastDueFireOnTheNextAdvance() {
+        DueDateWheel wheel = new DueDateWheel(TODAY);
+        assertThat(wheel.add(7, TODAY - 1)).isTrue();
+        assertThat(wheel.add(3, TODAY - 4096)).isTrue();
+        assertThat(wheel.add(5, TODAY - 1)).isTrue();
+        assertThat(wheel.remove(5, TODAY - 1)).isTrue();
+        assertThat(wheel.size()).isEqualTo(2);
+
+        // Sin cambiar de día
+        assertThat(wheel.advance(TODAY)).containsExactly(3, 7);
+        assertThat(wheel.size()).isZero();
+        assertThat(wheel.advance(TODAY + 1)).isEmpty();
+    }
+
+    @Test
+    void removesEntriesBeforeAndAfterTheirSlotIsCascaded() {
+        DueDateWheel wheel = new DueDateWheel(TODAY);
+        long block = TODAY + 3;                // comienzo del bloque de 4096 siguiente
+        long nearDay = block + 64 + 10;        // segundo bloque de 64 de ese bloque
+        long farDay = block + 4096 + 64 + 10;  // dos bloques de 4096 más allá
+        wheel.add(1, nearDay);
+        wheel.add(2, nearDay);
+        wheel.add(3, farDay);
+        wheel.add(4, farDay);
+        wheel.add(5, farDay);
+
+        // Antes de repartir
+        assertThat(wheel.remove(1, nearDay)).isTrue();
+        assertThat(wheel.remove(3, farDay)).isTrue();
+
+        // Entrar en el bloque de 64 de nearDay reparte sus ranuras hasta el nivel 0
+        assertThat(wheel.advance(block + 64)).isEmpty();
+        assertThat(wheel.remove(2, nearDay)).isTrue();
+        assertThat(wheel.remove(2, nearDay)).isFalse();
+        assertThat(wheel.advance(nearDay + 1)).isEmpty();
+
+        // Y entrar en el bloque de 4096 de farDay reparte la ranura del nivel 2
+        assertThat(wheel.advance(block + 4096)).isEmpty();
+        assertThat(wheel.remove(4, farDay)).isTrue();
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(farDay + 1)).containsExactly(5);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void ignoresDuplicatesAndUnknownLoans() {
+        DueDateWheel wheel = new DueDateWheel(TODAY);
+        assertThat(wheel.add(1, TODAY + 100)).isTrue();
+        assertThat(wheel.add(1, TODAY + 100)).isFalse();
+        assertThat(wheel.add(2, TODAY - 1)).isTrue();
+        assertThat(wheel.add(2, TODAY - 1)).isFalse();
+        assertThat(wheel.size()).isEqualTo(2);
+
+        assertThat(wheel.remove(1, TODAY + 101)).isFalse();
+        assertThat(wheel.remove(3, TODAY + 100)).isFalse();
+        assertThat(wheel.size()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsDaysAndIdsOutOfRange() {
+        assertThatThrownBy(() -> new DueDateWheel(-1)).isInstanceOf(IllegalArgumentException.class);
+        DueDateWheel wheel = new DueDateWheel(TODAY);
+        assertThatThrownBy(() -> wheel.add(0, TODAY)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> wheel.add(DueDateWheel.MAX_LOAN_ID + 1, TODAY))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> wheel.add(1, 1L << 22)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(wheel.add(DueDateWheel.MAX_LOAN_ID, TODAY)).isTrue();
+        assertThat(wheel.advance(TODAY + 1)).containsExactly(DueDateWheel.MAX_LOAN_ID);
+    }
+
+    /**
+     * Vencimientos repartidos por los tres niveles y el desbordamiento, con
+     * algunos ya pasados
+     */
+    private static long randomOffset(Random random) {
+        return switch (random.nextInt(6)) {
+            case 0 -> -random.nextInt(30);
+            case 1 -> random.nextInt(64);
+            case 2 -> random.nextInt(4096);
+            case 3 -> random.nextInt(20000);
+            case 4 -> 262144 + random.nextInt(1000);
+            default -> random.nextInt(200);
+        };
+    }
+}
@@ -0,0 +1,82 @@
+package com.biblioteca.loan.overdue;
+
+import com.biblioteca.loan.model.Loan;
+import com.biblioteca.loan.model.LoanDueDate;
+import com.biblioteca.loan.model.LoanStatus;
+import com.biblioteca.loan.repository.LoanRepository;
+import com.biblioteca.loan.service.ActiveLoanCounters;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Al arrancar, la rueda recupera los préstamos activos de la base de datos y
+ * marca en el primer tick los que vencieron con el servicio parado
+ */
+class OverdueWheelTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+    private static final int CHUNK = 5000;
+
+    private final LoanRepository loanRepository = mock(LoanRepository.class);
+    private final ActiveLoanCounters activeLoanCounters = mock(ActiveLoanCounters.class);
+
+    @Test
+    void startMarksLoansThatExpiredWhileTheServiceWasDown() {
+        // Un bloque completo de la carga inicial y uno parcial: la mitad vencidos
+        List<LoanDueDate> firstChunk = LongStream.rangeClosed(1, CHUNK)
+                .mapToObj(id -> new LoanDueDate(id, id % 2 == 0 ? TODAY.minusDays(id % 90 + 1) : TODAY))
+                .toList();
+        List<LoanDueDate> secondChunk = List.of(
+                new LoanDueDate(CHUNK + 1L, TODAY.minusDays(400)),
+                new LoanDueDate(CHUNK + 2L, TODAY.plusDays(10)));
+        when(loanRepository.findActiveDueDates(0L, CHUNK)).thenReturn(Flux.fromIterable(firstChunk));
+        when(loanRepository.findActiveDueDates((long) CHUNK, CHUNK)).thenReturn(Flux.fromIterable(secondChunk));
+        when(loanRepository.markOverdue(any(), eq(TODAY))).thenAnswer(invocation ->
+                Flux.fromArray(invocation.getArgument(0, Long[].class)).map(OverdueWheelTest::overdueLoan));
+
+        OverdueWheel wheel = new OverdueWheel(loanRepository, activeLoanCounters, new SimpleMeterRegistry(), true, 500);
+        wheel.start();
+
+        long[] expected = LongStream.concat(LongStream.rangeClosed(1, CHUNK).filter(id -> id % 2 == 0),
+                LongStream.of(CHUNK + 1L)).toArray();
+        ArgumentCaptor<Long[]> batches = ArgumentCaptor.forClass(Long[].class);
+        verify(loanRepository, timeout(5000).times((expected.length + 499) / 500)).markOverdue(batches.capture(), eq(TODAY));
+        long[] marked = batches.getAllValues().stream().flatMap(Arrays::stream).mapToLong(Long::longValue).toArray();
+        assertThat(marked).containsExactly(expected);
+        verify(activeLoanCounters, timeout(5000).times(expected.length)).release(any());
+
+        // Los que vencen hoy o más adelante siguen en la rueda
+        assertThat(wheel.size()).isEqualTo(CHUNK / 2 + 1);
+    }
+
+    @Test
+    void startDoesNothingWhenDisabled() {
+        OverdueWheel wheel = new OverdueWheel(loanRepository, activeLoanCounters, new SimpleMeterRegistry(), false, 500);
+        wheel.start();
+
+        verify(loanRepository, never()).findActiveDueDates(any(), anyInt());
+        assertThat(wheel.size()).isZero();
+    }
+
+    private static Loan overdueLoan(Long id) {
+        return new Loan(id, 1L, "usuario" + id + "@biblioteca.com", "Usuario", TODAY.minusDays(500),
+                TODAY.minusDays(1), null, LoanStatus.OVERDUE, null);
+    }
+}
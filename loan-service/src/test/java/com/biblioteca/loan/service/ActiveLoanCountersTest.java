@@ -0,0 +1,91 @@
+package com.biblioteca.loan.service;
+
+import com.biblioteca.loan.repository.LoanRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * La reconciliación corrige los contadores desviados, pero no pisa los
+ * cambios hechos mientras contaba ni las plazas pendientes
+ */
+class ActiveLoanCountersTest {
+
+    private static final String EMAIL = "lectora@biblioteca.com";
+
+    private final LoanRepository loanRepository = mock(LoanRepository.class);
+    private final ActiveLoanCounters counters = new ActiveLoanCounters(loanRepository, new SimpleMeterRegistry(),
+            100, Duration.ofHours(1));
+
+    @BeforeEach
+    void loadCounter() {
+        when(loanRepository.countActiveLoanssByUser(EMAIL)).thenReturn(Mono.just(2L));
+        assertThat(active()).isEqualTo(2);
+    }
+
+    @Test
+    void correctsACounterThatDrifted() {
+        when(loanRepository.countActiveLoanssByUser(EMAIL)).thenReturn(Mono.just(4L));
+        counters.reconcile();
+        assertThat(active()).isEqualTo(4);
+    }
+
+    @Test
+    void doesNotUndoAReturnMadeWhileCounting() {
+        Sinks.One<Long> count = Sinks.one();
+        when(loanRepository.countActiveLoanssByUser(EMAIL)).thenReturn(count.asMono());
+        counters.reconcile();
+
+        // La cuenta empezó antes de la devolución y todavía la incluye
+        counters.release(EMAIL);
+        count.tryEmitValue(2L);
+        assertThat(active()).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotLoseALoanConfirmedWhileCounting() {
+        assertThat(counters.tryAcquire(EMAIL, 5).block()).isTrue();
+        Sinks.One<Long> count = Sinks.one();
+        when(loanRepository.countActiveLoanssByUser(EMAIL)).thenReturn(count.asMono());
+        counters.reconcile();
+
+        // La cuenta empezó antes de guardar el préstamo y no lo incluye
+        counters.confirm(EMAIL);
+        count.tryEmitValue(2L);
+        assertThat(active()).isEqualTo(3);
+    }
+
+    @Test
+    void skipsUsersWithPendingSlots() {
+        assertThat(counters.tryAcquire(EMAIL, 5).block()).isTrue();
+        when(loanRepository.countActiveLoanssByUser(EMAIL)).thenReturn(Mono.just(0L));
+        counters.reconcile();
+        counters.abort(EMAIL);
+        assertThat(active()).isEqualTo(2);
+
+        // Sin plazas pendientes, la siguiente reconciliación sí corrige
+        counters.reconcile();
+        assertThat(active()).isZero();
+    }
+
+    /**
+     * Préstamos activos según el contador: el menor límite que aún admite uno
+     * más, menos uno (sin dejar la plaza tomada)
+     */
+    private int active() {
+        int limit = 1;
+        while (!counters.tryAcquire(EMAIL, limit).block()) {
+            limit++;
+        }
+        counters.abort(EMAIL);
+        return limit - 1;
+    }
+}
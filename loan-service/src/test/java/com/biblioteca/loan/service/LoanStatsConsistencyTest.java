@@ -0,0 +1,195 @@
+package com.biblioteca.loan.service;
+
+import com.biblioteca.loan.PostgresTestDatabase;
+import com.biblioteca.loan.dto.BookLoanStatsResponse;
+import com.biblioteca.loan.dto.BookStockResult;
+import com.biblioteca.loan.dto.LoanBatchRequest;
+import com.biblioteca.loan.dto.LoanBatchResponse;
+import com.biblioteca.loan.dto.LoanRequest;
+import com.biblioteca.loan.dto.LoanResponse;
+import com.biblioteca.loan.dto.LoanStatsVerification;
+import com.biblioteca.loan.model.LoanStatus;
+import com.biblioteca.loan.overdue.OverdueWheel;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Las estadísticas incrementales de loan_book_stats cuadran con un recálculo
+ * completo desde loans después de altas (sueltas y en lote), devoluciones,
+ * cancelaciones, renovaciones y vencimientos. El inventario es un servidor
+ * de pega que acepta todas las reservas salvo las del libro REJECTED_BOOK.
+ */
+@SpringBootTest(properties = {
+    "loan.overdue-wheel.tick-interval-ms=3600000",
+    "loan.outbox.poll-interval-ms=3600000",
+    "logging.level.com.biblioteca.loan=INFO",
+    "logging.level.org.springframework.r2dbc=INFO"
+})
+class LoanStatsConsistencyTest {
+
+    private static final long REJECTED_BOOK = 99;
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private static DisposableServer inventory;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private LoanStatsService loanStatsService;
+
+    @Autowired
+    private OverdueWheel overdueWheel;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeAll
+    static void database() {
+        assumeTrue(PostgresTestDatabase.reset(), "PostgreSQL no disponible");
+    }
+
+    @AfterAll
+    static void stopInventory() {
+        if (inventory != null) {
+            inventory.disposeNow();
+        }
+    }
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry);
+        inventory = fakeInventory();
+        registry.add("inventory.service.url", () -> "http://127.0.0.1:" + inventory.port());
+    }
+
+    @Test
+    void incrementalStatsMatchAFullRecompute() {
+        LocalDate nextMonth = LocalDate.now().plusDays(30);
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+
+        // Altas sueltas y en lote
+        List<LoanResponse> loans = new ArrayList<>();
+        for (long bookId = 1; bookId <= 4; bookId++) {
+            loans.add(create(bookId, "lectora" + bookId + "@biblioteca.com", nextMonth));
+            loans.add(create(bookId, "lector" + bookId + "@biblioteca.com", nextMonth));
+        }
+        LoanBatchResponse batch = loanService.createLoans(new LoanBatchRequest(List.of(2L, 5L, 6L),
+                        "mostrador@biblioteca.com", "Mostrador", nextMonth, null))
+                .block(TIMEOUT);
+        assertThat(batch.created()).isTrue();
+        batch.items().forEach(item -> loans.add(item.loan()));
+
+        // Una reserva rechazada no deja rastro en las estadísticas
+        assertThatThrownBy(() -> create(REJECTED_BOOK, "rechazo@biblioteca.com", nextMonth));
+
+        // Devoluciones, cancelaciones y una renovación de préstamos activos
+        loanService.returnLoan(loans.get(0).id()).block(TIMEOUT);
+        loanService.returnLoan(loans.get(2).id()).block(TIMEOUT);
+        loanService.cancelLoan(loans.get(3).id()).block(TIMEOUT);
+        loanService.cancelLoan(loans.get(9).id()).block(TIMEOUT);
+        loanService.renewLoan(loans.get(4).id(), nextMonth.plusDays(14)).block(TIMEOUT);
+
+        // Vencimientos (check_dates no deja crearlos ya vencidos: se retrasan las fechas en la base).
+        // La rueda marca uno, el barrido completo el resto y ninguno se cuenta dos veces
+        LoanResponse lateOne = create(7L, "tarde1@biblioteca.com", nextMonth);
+        LoanResponse lateTwo = create(7L, "tarde2@biblioteca.com", nextMonth);
+        LoanResponse lateThree = create(1L, "tarde3@biblioteca.com", nextMonth);
+        backdate(lateOne, lateTwo, lateThree);
+        overdueWheel.reschedule(lateOne.id(), nextMonth, yesterday);
+        assertThat(overdueWheel.tick().block(TIMEOUT)).isEqualTo(1);
+        assertThat(loanService.updateOverdueLoans().block(TIMEOUT).markedCount()).isEqualTo(2);
+        overdueWheel.reschedule(lateTwo.id(), nextMonth, yesterday);
+        assertThat(overdueWheel.tick().block(TIMEOUT)).isZero();
+        assertThat(loanService.getLoanById(lateThree.id()).block(TIMEOUT).status()).isEqualTo(LoanStatus.OVERDUE);
+
+        // Devolución de un préstamo vencido
+        loanService.returnLoan(lateTwo.id()).block(TIMEOUT);
+
+        LoanStatsVerification verification = loanStatsService.verify().block(TIMEOUT);
+        assertThat(verification.mismatches()).isEmpty();
+        assertThat(verification.consistent()).isTrue();
+        assertThat(verification.booksChecked()).isEqualTo(7);
+
+        BookLoanStatsResponse book7 = loanStatsService.getBookStats(7L).block(TIMEOUT);
+        assertThat(book7.totalLoans()).isEqualTo(2);
+        assertThat(book7.activeLoans()).isZero();
+        assertThat(book7.overdueLoans()).isEqualTo(1);
+        assertThat(book7.returnedLoans()).isEqualTo(1);
+    }
+
+    private LoanResponse create(Long bookId, String userEmail, LocalDate dueDate) {
+        return loanService.createLoan(new LoanRequest(bookId, userEmail, "Usuario de prueba", dueDate, null))
+                .block(TIMEOUT);
+    }
+
+    /**
+     * Mover los préstamos 30 días atrás: vencieron ayer
+     */
+    private void backdate(LoanResponse... loans) {
+        databaseClient.sql("UPDATE loans SET loan_date = loan_date - 30, due_date = CURRENT_DATE - 1 WHERE id = ANY(:ids)")
+                .bind("ids", Arrays.stream(loans).map(LoanResponse::id).toArray(Long[]::new))
+                .fetch()
+                .rowsUpdated()
+                .block(TIMEOUT);
+    }
+
+    /**
+     * Inventario de pega: acepta reservas y liberaciones (las de la bandeja de
+     * salida incluidas) y rechaza con 409 las de REJECTED_BOOK
+     */
+    private static DisposableServer fakeInventory() {
+        return HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .route(routes -> routes
+                        .post("/api/books/batch/decrement", (request, response) -> request.receive()
+                                .aggregate()
+                                .asString()
+                                .map(LoanStatsConsistencyTest::reserveAll)
+                                .flatMap(body -> response.header("Content-Type", "application/json")
+                                        .sendString(Mono.just(body))
+                                        .then()))
+                        .post("/api/books/{id}/{operation}", (request, response) ->
+                                Long.parseLong(request.param("id")) == REJECTED_BOOK
+                                        && "decrement".equals(request.param("operation"))
+                                        ? response.status(409).send()
+                                        : response.status(200).send()))
+                .bindNow();
+    }
+
+    private static String reserveAll(String body) {
+        try {
+            List<BookStockResult> results = new ArrayList<>();
+            for (JsonNode id : JSON.readTree(body).get("bookIds")) {
+                boolean success = id.asLong() != REJECTED_BOOK;
+                results.add(new BookStockResult(id.asLong(), 1, success, success ? 0 : null, null));
+            }
+            return JSON.writeValueAsString(results);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}